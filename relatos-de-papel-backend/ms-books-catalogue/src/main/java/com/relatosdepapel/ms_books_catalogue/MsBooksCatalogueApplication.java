@@ -2,8 +2,10 @@ package com.relatosdepapel.ms_books_catalogue;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MsBooksCatalogueApplication {
 
 	public static void main(String[] args) {
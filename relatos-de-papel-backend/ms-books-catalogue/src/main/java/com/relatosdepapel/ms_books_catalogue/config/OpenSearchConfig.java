@@ -1,12 +1,25 @@
 package com.relatosdepapel.ms_books_catalogue.config;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.hc.client5.http.auth.AuthScope;
 import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
 import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.opensearch.client.NodeSelector;
 import org.opensearch.client.RestClient;
+import org.opensearch.client.RestClientBuilder;
+import org.opensearch.client.sniff.OpenSearchNodesSniffer;
+import org.opensearch.client.sniff.SniffOnFailureListener;
+import org.opensearch.client.sniff.Sniffer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,6 +27,8 @@ import org.springframework.context.annotation.Configuration;
 /**
  * Configuración del cliente REST de OpenSearch para el microservicio de catálogo.
  * Soporta credenciales explícitas por propiedades y fallback a user-info en la URL.
+ * Con varios nodos en `opensearch.url` el cliente reparte las requests en round-robin y aparta
+ * temporalmente los nodos que fallan; opcionalmente descubre el resto del cluster con sniffing.
  */
 @Configuration
 @EnableConfigurationProperties(OpenSearchProperties.class)
@@ -23,16 +38,93 @@ public class OpenSearchConfig {
      * Crea el cliente REST de OpenSearch con autenticación básica cuando está disponible.
      *
      * @param properties propiedades externas de OpenSearch.
+     * @param sniffOnFailure listener que dispara un sniffing inmediato cuando un nodo falla.
      * @return cliente REST listo para operaciones del repositorio.
      * @throws IllegalStateException cuando no se define `opensearch.url`.
      */
     @Bean(destroyMethod = "close")
-    public RestClient openSearchRestClient(OpenSearchProperties properties) {
+    public RestClient openSearchRestClient(OpenSearchProperties properties, SniffOnFailureListener sniffOnFailure) {
         if (properties.getUrl() == null || properties.getUrl().isBlank()) {
             throw new IllegalStateException("OPENSEARCH_URL es obligatorio para ms-books-catalogue");
         }
 
-        URI uri = URI.create(properties.getUrl());
+        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        List<HttpHost> hosts = new ArrayList<>();
+        for (String url : properties.getUrl().split(",")) {
+            if (!url.isBlank()) {
+                hosts.add(toHost(URI.create(url.trim()), properties, credentialsProvider));
+            }
+        }
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setMaxConnTotal(properties.getMaxConnectionsTotal())
+                .setTlsStrategy(ClientTlsStrategyBuilder.create().useSystemProperties().build())
+                .build();
+        TimeValue keepAlive = TimeValue.ofMilliseconds(properties.getKeepAlive().toMillis());
+
+        RestClientBuilder builder = RestClient.builder(hosts.toArray(HttpHost[]::new))
+                .setNodeSelector(NodeSelector.SKIP_DEDICATED_CLUSTER_MANAGERS)
+                .setCompressionEnabled(properties.isCompressionEnabled())
+                .setRequestConfigCallback(requestConfig -> requestConfig
+                        .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeout().toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(properties.getSocketTimeout().toMillis())))
+                .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder
+                        .setDefaultCredentialsProvider(credentialsProvider)
+                        .setConnectionManager(connectionManager)
+                        .setKeepAliveStrategy((response, context) -> keepAlive)
+                        .evictIdleConnections(keepAlive));
+        if (properties.isSniffEnabled()) {
+            builder.setFailureListener(sniffOnFailure);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Listener de fallos de nodo que solicita un sniffing inmediato; solo se registra en el
+     * cliente cuando `opensearch.sniff-enabled` está activo.
+     *
+     * @return listener sin sniffer asociado hasta que se crea {@link #openSearchSniffer}.
+     */
+    @Bean
+    public SniffOnFailureListener openSearchSniffOnFailureListener() {
+        return new SniffOnFailureListener();
+    }
+
+    /**
+     * Descubre periódicamente los nodos del cluster y actualiza el cliente con ellos.
+     *
+     * @param restClient cliente REST a actualizar.
+     * @param properties propiedades externas de OpenSearch.
+     * @param sniffOnFailure listener de fallos registrado en el cliente.
+     * @return sniffer asociado al cliente.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "opensearch", name = "sniff-enabled", havingValue = "true")
+    public Sniffer openSearchSniffer(RestClient restClient, OpenSearchProperties properties,
+            SniffOnFailureListener sniffOnFailure) {
+        OpenSearchNodesSniffer.Scheme scheme = properties.getUrl().trim().toLowerCase().startsWith("https")
+                ? OpenSearchNodesSniffer.Scheme.HTTPS
+                : OpenSearchNodesSniffer.Scheme.HTTP;
+        Sniffer sniffer = Sniffer.builder(restClient)
+                .setNodesSniffer(new OpenSearchNodesSniffer(
+                        restClient, OpenSearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme))
+                .setSniffIntervalMillis((int) properties.getSniffInterval().toMillis())
+                .setSniffAfterFailureDelayMillis((int) properties.getSniffAfterFailureDelay().toMillis())
+                .build();
+        sniffOnFailure.setSniffer(sniffer);
+        return sniffer;
+    }
+
+    /**
+     * Convierte una URL de nodo en host y registra sus credenciales.
+     *
+     * @param uri URL del nodo (puede incluir user-info).
+     * @param properties propiedades externas de OpenSearch.
+     * @param credentialsProvider proveedor donde se registran las credenciales del nodo.
+     * @return host del nodo.
+     */
+    private HttpHost toHost(URI uri, OpenSearchProperties properties, BasicCredentialsProvider credentialsProvider) {
         int port = uri.getPort() == -1 ? ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80) : uri.getPort();
         String username = properties.getUsername();
         String password = properties.getPassword();
@@ -45,18 +137,17 @@ public class OpenSearchConfig {
             }
         }
 
-        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
         if (username != null && !username.isBlank()) {
+            // Con sniffing los nodos descubiertos no están en la lista, así que las credenciales
+            // aplican a cualquier host.
+            AuthScope scope = properties.isSniffEnabled()
+                    ? new AuthScope(null, -1)
+                    : new AuthScope(uri.getHost(), port);
             credentialsProvider.setCredentials(
-                    new AuthScope(uri.getHost(), port),
+                    scope,
                     new UsernamePasswordCredentials(username, password != null ? password.toCharArray() : new char[0]));
         }
 
-        HttpHost host = new HttpHost(uri.getScheme(), uri.getHost(), port);
-
-        return RestClient.builder(host)
-                .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder
-                        .setDefaultCredentialsProvider(credentialsProvider))
-                .build();
+        return new HttpHost(uri.getScheme(), uri.getHost(), port);
     }
 }
@@ -1,5 +1,7 @@
 package com.relatosdepapel.ms_books_catalogue.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Getter;
@@ -13,7 +15,8 @@ import lombok.Setter;
 @ConfigurationProperties(prefix = "opensearch")
 public class OpenSearchProperties {
     /**
-     * URL base del cluster (puede incluir user-info).
+     * URL base del cluster (puede incluir user-info). Admite varios nodos separados por coma;
+     * las requests se reparten entre ellos y un nodo caído se reintenta más tarde.
      */
     private String url;
     /**
@@ -25,13 +28,245 @@ public class OpenSearchProperties {
      */
     private String password;
     /**
-     * Nombre del índice de catálogo.
+     * Máximo de conexiones simultáneas por nodo.
+     */
+    private int maxConnectionsPerRoute = 32;
+    /**
+     * Máximo de conexiones simultáneas contra todo el cluster; acota la concurrencia real de
+     * requests a OpenSearch, el resto espera una conexión libre sin ocupar hilos.
+     */
+    private int maxConnectionsTotal = 128;
+    /**
+     * Tiempo máximo para establecer una conexión con un nodo.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    /**
+     * Tiempo máximo de espera de datos de respuesta en una conexión abierta.
+     */
+    private Duration socketTimeout = Duration.ofSeconds(30);
+    /**
+     * Tiempo que una conexión ociosa se conserva para reutilizarse; debe ser menor que el
+     * timeout de inactividad de balanceadores intermedios.
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+    /**
+     * Comprime con gzip los cuerpos enviados y solicita respuestas comprimidas.
+     */
+    private boolean compressionEnabled = true;
+    /**
+     * Máximo de lecturas (GET, `_search`, `_count`) simultáneas; el límite efectivo se adapta por
+     * debajo de este valor según latencia y respuestas `429`.
+     */
+    private int readConcurrencyLimit = 64;
+    /**
+     * Máximo de escrituras simultáneas; el límite efectivo se reduce ante respuestas `429`.
+     */
+    private int writeConcurrencyLimit = 32;
+    /**
+     * Requests que pueden esperar lugar por presupuesto cuando el límite está alcanzado; las
+     * siguientes se rechazan con `503`.
+     */
+    private int concurrencyQueueSize = 100;
+    /**
+     * Espera máxima de una request en la cola de su presupuesto antes de rechazarse con `503`.
+     */
+    private Duration concurrencyQueueTimeout = Duration.ofSeconds(2);
+    /**
+     * Latencia de lectura a partir de la cual se considera que el cluster está congestionado.
+     */
+    private Duration readLatencyThreshold = Duration.ofSeconds(1);
+    /**
+     * Descubre periódicamente los nodos del cluster a partir de los configurados en `url`.
+     * No debe activarse cuando el cluster solo es accesible a través de un balanceador o proxy.
+     */
+    private boolean sniffEnabled = false;
+    /**
+     * Intervalo entre descubrimientos de nodos.
+     */
+    private Duration sniffInterval = Duration.ofMinutes(5);
+    /**
+     * Espera hasta el siguiente descubrimiento tras el fallo de un nodo.
+     */
+    private Duration sniffAfterFailureDelay = Duration.ofMinutes(1);
+    /**
+     * Alias del catálogo; apunta al índice físico vigente `<index>-v<versión>-<timestamp>`.
      */
     private String index = "relatos";
     /**
-     * Habilita una migración automática de índice cuando el mapping detectado no permite
-     * agregaciones de facets (p. ej. campos `text` sin subcampo `keyword`).
-     * Debe usarse como operación puntual de mantenimiento.
+     * Shards primarios de cada índice físico nuevo; un cambio se aplica con una migración.
+     */
+    private int indexShards = 1;
+    /**
+     * Réplicas del índice de catálogo; se aplican al arrancar.
+     */
+    private int indexReplicas = 1;
+    /**
+     * Intervalo de refresh del índice de catálogo; se aplica al arrancar.
+     */
+    private String indexRefreshInterval = "1s";
+    /**
+     * Campo de orden de los segmentos (`index.sort.field`); conviene que sea el del listado más
+     * frecuente. Un cambio se aplica con una migración.
+     */
+    private String indexSortField = "id";
+    /**
+     * Sentido del orden de los segmentos (`asc` o `desc`).
+     */
+    private String indexSortOrder = "asc";
+    /**
+     * Migra en segundo plano el catálogo a un índice físico nuevo cuando el vigente no está
+     * detrás del alias, tiene una versión de mapping anterior o no permite agregaciones de
+     * facets. Un documento de lock impide que dos instancias migren a la vez.
+     */
+    private boolean indexMigrationEnabled = false;
+    /**
+     * Plazo máximo de una migración completa; al vencer se cancela la copia y se descarta el
+     * índice nuevo.
+     */
+    private Duration indexMigrationTimeout = Duration.ofHours(12);
+    /**
+     * Plazo máximo con las escrituras del índice anterior bloqueadas mientras se copian los
+     * cambios finales; al vencer la migración se aborta y las escrituras se desbloquean.
+     */
+    private Duration indexMigrationWriteBlockTimeout = Duration.ofMinutes(2);
+    /**
+     * Slices paralelos de `_reindex` durante una migración (`auto` o un número).
+     */
+    private String reindexSlices = "auto";
+    /**
+     * Documentos por segundo que puede copiar `_reindex` durante una migración; `-1` no limita.
+     */
+    private float reindexRequestsPerSecond = 500;
+    /**
+     * Tiempo de vida del point-in-time usado por la paginación con cursor.
+     * Se renueva en cada página, por lo que solo acota la pausa máxima entre páginas.
+     */
+    private String pitKeepAlive = "1m";
+    /**
+     * Cantidad de slices paralelos del point-in-time al exportar el catálogo.
+     */
+    private int exportSlices = 4;
+    /**
+     * Documentos solicitados por página en cada slice de exportación.
+     */
+    private int exportBatchSize = 1000;
+    /**
+     * Máximo de documentos por request `_bulk` en importaciones masivas.
+     */
+    private int importChunkSize = 1000;
+    /**
+     * Máximo aproximado de bytes por request `_bulk` en importaciones masivas.
+     */
+    private long importChunkBytes = 5L * 1024 * 1024;
+    /**
+     * Requests `_bulk` simultáneos por importación; al alcanzarse, la lectura del archivo espera.
+     */
+    private int importConcurrency = 4;
+    /**
+     * Máximo de errores detallados en la respuesta de una importación.
+     */
+    private int importMaxReportedErrors = 100;
+    /**
+     * Política de refresh para escrituras individuales (alta, edición, stock y baja).
+     * La lectura por id es realtime en cualquier modo, por lo que quien escribe ve su cambio.
+     */
+    private WriteConsistency writeConsistency = WriteConsistency.WAIT_FOR;
+    /**
+     * Con escrituras `ASYNC`, tiempo hasta que una escritura local es visible en búsquedas; debe
+     * cubrir el `refresh_interval` del índice.
+     */
+    private Duration asyncWriteVisibilityDelay = Duration.ofSeconds(1);
+    /**
+     * Cantidad de ids que cada instancia reserva por operación sobre el contador compartido.
+     */
+    private int idBlockSize = 50;
+    /**
+     * Antigüedad mínima de una guarda de ISBN cuyo libro no está indexado para considerarla
+     * huérfana; debe superar la duración de un alta.
+     */
+    private Duration isbnClaimGracePeriod = Duration.ofMinutes(1);
+    /**
+     * Máximo de libros en la cache local de lecturas por id; `0` la deshabilita.
+     */
+    private int nearCacheMaxEntries = 10_000;
+    /**
+     * Tiempo máximo que un libro permanece en la cache local. Acota cuánto tarda una instancia
+     * en ver cambios hechos por otras instancias.
+     */
+    private Duration nearCacheTtl = Duration.ofSeconds(10);
+    /**
+     * Máximo de consultas distintas en la caché de facets; al superarlo se descartan las menos
+     * usadas.
+     */
+    private long facetsCacheMaxEntries = 1_000;
+    /**
+     * Antigüedad a partir de la cual una entrada de facets se recalcula en segundo plano
+     * mientras se sigue sirviendo el valor anterior.
+     */
+    private Duration facetsCacheTtl = Duration.ofSeconds(30);
+    /**
+     * Antigüedad máxima de una entrada de facets; pasado este tiempo no se sirve y se recalcula
+     * de forma síncrona.
+     */
+    private Duration facetsCacheMaxStale = Duration.ofMinutes(5);
+    /**
+     * Máximo de consultas distintas en la cache de resultados de listados, búsquedas y
+     * sugerencias; `0` la deshabilita.
+     */
+    private long resultCacheMaxEntries = 5_000;
+    /**
+     * Tiempo de vida de un listado del catálogo visible en la cache de resultados; `0` no lo cachea.
+     */
+    private Duration listResultCacheTtl = Duration.ofSeconds(30);
+    /**
+     * Tiempo de vida de una búsqueda en la cache de resultados; `0` no la cachea.
+     */
+    private Duration searchResultCacheTtl = Duration.ofSeconds(10);
+    /**
+     * Tiempo de vida de una sugerencia resuelta en OpenSearch en la cache de resultados.
+     */
+    private Duration suggestResultCacheTtl = Duration.ofSeconds(60);
+    /**
+     * Intervalo de reconciliación de los contadores de facets contra una agregación completa.
+     */
+    private Duration facetCountersReconcileInterval = Duration.ofMinutes(5);
+    /**
+     * Resuelve suggest con el índice en memoria de la instancia en lugar de consultar OpenSearch.
+     */
+    private boolean localSuggestEnabled = true;
+    /**
+     * Intervalo de reconstrucción completa del índice local de sugerencias.
+     */
+    private Duration suggestIndexRebuildInterval = Duration.ofMinutes(10);
+    /**
+     * Archivo del snapshot binario local del catálogo; vacío lo deshabilita.
+     */
+    private String snapshotPath = "";
+    /**
+     * Intervalo de reconstrucción completa del snapshot local a partir de OpenSearch.
+     */
+    private Duration snapshotRefreshInterval = Duration.ofMinutes(15);
+    /**
+     * Modo degradado: responde lecturas por id, disponibilidad y búsquedas sin texto desde el
+     * snapshot local cuando OpenSearch no responde.
+     */
+    private boolean snapshotFallbackEnabled = true;
+
+    /**
+     * Modos de consistencia de escritura frente a búsquedas.
      */
-    private boolean recreateOnIncompatibleMapping = false;
+    public enum WriteConsistency {
+        /**
+         * `refresh=true`: visible en búsquedas al responder, pero crea un segmento por escritura.
+         */
+        IMMEDIATE,
+        /**
+         * `refresh=wait_for`: espera al siguiente refresh periódico sin forzar segmentos nuevos.
+         */
+        WAIT_FOR,
+        /**
+         * Sin refresh: visible en búsquedas tras el próximo `refresh_interval`.
+         */
+        ASYNC
+    }
 }
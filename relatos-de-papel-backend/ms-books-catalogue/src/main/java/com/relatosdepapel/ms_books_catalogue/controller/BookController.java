@@ -1,66 +1,160 @@
 package com.relatosdepapel.ms_books_catalogue.controller;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityBatchItemDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookBatchItemDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookFacetsResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookImportResultDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSearchCriteria;
 import com.relatosdepapel.ms_books_catalogue.dto.ErrorResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.VersionedBookDTO;
+import com.relatosdepapel.ms_books_catalogue.service.BookBulkImporter;
+import com.relatosdepapel.ms_books_catalogue.service.BookFields;
 import com.relatosdepapel.ms_books_catalogue.service.BookService;
+import com.relatosdepapel.ms_books_catalogue.service.BookSort;
 
 import lombok.RequiredArgsConstructor;
 
 /**
  * Controlador REST del catálogo de libros.
- * Expone operaciones CRUD, búsqueda, sugerencias, facets y stock.
+ * Expone operaciones CRUD, búsqueda, sugerencias, facets y stock. El listado, la búsqueda y el
+ * detalle por id responden de forma asíncrona: el hilo de la request se libera mientras
+ * OpenSearch resuelve la consulta.
  */
 @RestController
 @RequestMapping("/api/books")
 @RequiredArgsConstructor
 public class BookController {
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+
     private final BookService bookService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Lista los libros visibles del catálogo.
+     * Sin `size` ni `cursor` conserva la respuesta histórica en forma de lista; con cualquiera de
+     * ellos responde una página con cursor para recorrer el catálogo completo.
      *
-     * @return listado de libros publicados.
+     * @param size tamaño de página opcional.
+     * @param cursor cursor opaco de la página anterior.
+     * @param fields campos a incluir separados por coma (opcional; `id` siempre se incluye).
+     * @return listado de libros publicados, página con cursor o 400 si el cursor o los campos
+     *         son inválidos.
      */
     @GetMapping
-    public ResponseEntity<List<BookResponseDTO>> getAllBooks() {
-        return ResponseEntity.ok(bookService.getAll());
+    public CompletableFuture<ResponseEntity<?>> getAllBooks(
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields) {
+        try {
+            BookFields projection = BookFields.parse(fields);
+            if (size == null && cursor == null) {
+                return bookService.getAllAsync(projection)
+                        .thenApply(books -> ResponseEntity.ok(render(books, projection)));
+            }
+            BookPageResponseDTO page = bookService.getAllPage(size, cursor, projection);
+            return CompletableFuture.completedFuture(ResponseEntity.ok(render(page, projection)));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage())));
+        }
     }
 
     /**
      * Obtiene detalle de libro por identificador.
      *
      * @param id identificador de libro.
-     * @return libro encontrado o 404 si no existe.
+     * @param fields campos a incluir separados por coma (opcional; `id` siempre se incluye).
+     * @return libro encontrado, 404 si no existe o 400 si los campos son inválidos.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<BookResponseDTO> getBookById(@PathVariable Long id) {
-        BookResponseDTO book = bookService.getById(id);
-        if (book == null) {
-            return ResponseEntity.notFound().build();
+    public CompletableFuture<ResponseEntity<?>> getBookById(
+            @PathVariable Long id,
+            @RequestParam(required = false) String fields) {
+        BookFields projection;
+        try {
+            projection = BookFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage())));
+        }
+        return bookService.getVersionedByIdAsync(id, projection).thenApply(book -> {
+            if (book == null) {
+                return ResponseEntity.notFound().build();
+            }
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (book.getVersion() != null) {
+                ok.eTag(book.getVersion());
+            }
+            return ok.body(render(book.getBook(), projection));
+        });
+    }
+
+    /**
+     * Obtiene varios libros por id con una única consulta a OpenSearch, p. ej. los ítems de un
+     * carrito.
+     *
+     * @param ids ids separados por coma (máximo 100); se responden en el mismo orden.
+     * @param fields campos a incluir separados por coma (opcional; `id` siempre se incluye).
+     * @return un resultado por id, con `found=false` en los que no existen, o 400 si los ids o
+     *         los campos son inválidos.
+     */
+    @GetMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> getBooksBatch(
+            @RequestParam List<Long> ids,
+            @RequestParam(required = false) String fields) {
+        try {
+            BookFields projection = BookFields.parse(fields);
+            return bookService.getByIdsAsync(ids, projection).thenApply(books -> {
+                List<BookBatchItemDTO> items = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    items.add(new BookBatchItemDTO(ids.get(i), books.get(i) != null, books.get(i)));
+                }
+                return ResponseEntity.ok(renderBatch(items, projection));
+            });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage())));
         }
-        return ResponseEntity.ok(book);
     }
 
     /**
@@ -95,6 +189,24 @@ public class BookController {
         }
     }
 
+    /**
+     * Importa libros de forma masiva desde un archivo NDJSON (`application/x-ndjson`) o CSV
+     * (`text/csv`, con cabecera). El contenido se procesa en streaming.
+     *
+     * @param contentType tipo de contenido del archivo.
+     * @param body contenido del archivo.
+     * @return resumen de la importación con errores por registro.
+     */
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public ResponseEntity<BookImportResultDTO> importBooks(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        BookBulkImporter.Format format = contentType.toLowerCase().contains("csv")
+                ? BookBulkImporter.Format.CSV
+                : BookBulkImporter.Format.NDJSON;
+        return ResponseEntity.ok(bookService.importBooks(body, format));
+    }
+
     /**
      * Actualiza un libro completo por id.
      *
@@ -129,33 +241,52 @@ public class BookController {
 
     /**
      * Actualiza parcialmente un libro.
+     * Si se envía `If-Match` con el `ETag` obtenido previamente, la actualización solo se aplica
+     * cuando el libro no cambió desde esa versión.
      *
      * @param id identificador de libro.
      * @param dto campos parciales a actualizar.
-     * @return libro actualizado o 404 si no existe.
+     * @param ifMatch versión esperada del libro (opcional).
+     * @return libro actualizado con su nuevo `ETag`, 404 si no existe, 400 si la versión es
+     *         inválida o 412 si el libro cambió.
      */
     @PatchMapping("/{id}")
-    public ResponseEntity<BookResponseDTO> patchBook(@PathVariable Long id, @RequestBody BookPatchDTO dto) {
-        BookResponseDTO updatedBook = bookService.patch(id, dto);
-        if (updatedBook == null) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> patchBook(
+            @PathVariable Long id,
+            @RequestBody BookPatchDTO dto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            VersionedBookDTO updatedBook = bookService.patch(id, dto, ifMatch);
+            if (updatedBook == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok().eTag(updatedBook.getVersion()).body(updatedBook.getBook());
+        } catch (ConcurrentModificationException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(new ErrorResponseDTO(412, e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage()));
         }
-        return ResponseEntity.ok(updatedBook);
     }
 
     /**
      * Elimina un libro por id.
      *
      * @param id identificador de libro.
-     * @return 204 si se elimina o 404 si no existe.
+     * @return 204 si se elimina, 404 si no existe o 409 si otras escrituras concurrentes lo
+     *         modificaron en todos los reintentos.
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteBook(@PathVariable Long id) {
-        boolean deleted = bookService.delete(id);
-        if (!deleted) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<?> deleteBook(@PathVariable Long id) {
+        try {
+            boolean deleted = bookService.delete(id);
+            if (!deleted) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.noContent().build();
+        } catch (ConcurrentModificationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDTO(409, e.getMessage()));
         }
-        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -173,10 +304,16 @@ public class BookController {
      * @param publicationDateFrom fecha de publicación inicial.
      * @param publicationDateTo fecha de publicación final.
      * @param minStock stock mínimo.
-     * @return listado de resultados.
+     * @param size tamaño de página opcional.
+     * @param cursor cursor opaco de la página anterior.
+     * @param sort orden: `relevance` (por defecto), `price`, `rating`, `publicationDate` o
+     *        `stock`, con prefijo `-` para descendente.
+     * @param fields campos a incluir separados por coma (opcional; `id` siempre se incluye).
+     * @return listado de resultados, página con cursor o 400 si el cursor, el orden o los campos
+     *         son inválidos.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<BookResponseDTO>> searchBooks(
+    public CompletableFuture<ResponseEntity<?>> searchBooks(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String author,
             @RequestParam(required = false) String category,
@@ -188,9 +325,35 @@ public class BookController {
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) LocalDate publicationDateFrom,
             @RequestParam(required = false) LocalDate publicationDateTo,
-            @RequestParam(required = false) Integer minStock) {
+            @RequestParam(required = false) Integer minStock,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+
+        BookFields projection;
+        BookSort order;
+        try {
+            projection = BookFields.parse(fields);
+            order = BookSort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage())));
+        }
+
+        if (size != null || cursor != null) {
+            BookSearchCriteria criteria = new BookSearchCriteria(title, author, category, isbn, ratingMin, ratingMax,
+                    visible, minPrice, maxPrice, publicationDateFrom, publicationDateTo, minStock);
+            try {
+                BookPageResponseDTO page = bookService.searchPage(criteria, size, cursor, order, projection);
+                return CompletableFuture.completedFuture(ResponseEntity.ok(render(page, projection)));
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage())));
+            }
+        }
 
-        List<BookResponseDTO> results = bookService.search(
+        return bookService.searchAsync(
                 title,
                 author,
                 category,
@@ -202,8 +365,56 @@ public class BookController {
                 maxPrice,
                 publicationDateFrom,
                 publicationDateTo,
-                minStock);
-        return ResponseEntity.ok(results);
+                minStock,
+                order,
+                projection)
+                .thenApply(results -> ResponseEntity.ok(render(results, projection)));
+    }
+
+    /**
+     * Exporta en streaming NDJSON todos los libros que cumplen los filtros de búsqueda.
+     * Cada libro se escribe en la respuesta a medida que llega desde OpenSearch, sin
+     * acumular el catálogo en memoria.
+     *
+     * @param title texto para título.
+     * @param author texto para autor.
+     * @param category categoría exacta.
+     * @param isbn isbn exacto.
+     * @param ratingMin rating mínimo.
+     * @param ratingMax rating máximo.
+     * @param visible filtro de visibilidad.
+     * @param minPrice precio mínimo.
+     * @param maxPrice precio máximo.
+     * @param publicationDateFrom fecha de publicación inicial.
+     * @param publicationDateTo fecha de publicación final.
+     * @param minStock stock mínimo.
+     * @return flujo NDJSON con un `BookResponseDTO` por línea.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBooks(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String isbn,
+            @RequestParam(required = false) Integer ratingMin,
+            @RequestParam(required = false) Integer ratingMax,
+            @RequestParam(required = false) Boolean visible,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) LocalDate publicationDateFrom,
+            @RequestParam(required = false) LocalDate publicationDateTo,
+            @RequestParam(required = false) Integer minStock) {
+        BookSearchCriteria criteria = new BookSearchCriteria(title, author, category, isbn, ratingMin, ratingMax,
+                visible, minPrice, maxPrice, publicationDateFrom, publicationDateTo, minStock);
+
+        StreamingResponseBody stream = outputStream -> {
+            BufferedOutputStream buffered = new BufferedOutputStream(outputStream, EXPORT_BUFFER_BYTES);
+            bookService.export(criteria, book -> writeNdjsonLine(buffered, book));
+            buffered.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(stream);
     }
 
     /**
@@ -252,6 +463,31 @@ public class BookController {
         return ResponseEntity.ok(availability);
     }
 
+    /**
+     * Consulta la disponibilidad de varios libros con una única consulta a OpenSearch, para
+     * validar un carrito completo antes del pago.
+     *
+     * @param ids ids separados por coma (máximo 100); se responden en el mismo orden.
+     * @return disponibilidad por id, con `found=false` en los que no existen, o 400 si los ids
+     *         son inválidos.
+     */
+    @GetMapping("/availability")
+    public CompletableFuture<ResponseEntity<?>> checkAvailabilityBatch(@RequestParam List<Long> ids) {
+        try {
+            return bookService.checkAvailabilityAsync(ids).thenApply(availabilities -> {
+                List<AvailabilityBatchItemDTO> items = new ArrayList<>(ids.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    AvailabilityResponseDTO availability = availabilities.get(i);
+                    items.add(new AvailabilityBatchItemDTO(ids.get(i), availability != null, availability));
+                }
+                return ResponseEntity.ok(items);
+            });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage())));
+        }
+    }
+
     /**
      * Ajusta stock de un libro con cantidad relativa.
      *
@@ -265,20 +501,131 @@ public class BookController {
             return ResponseEntity.badRequest().body(new ErrorResponseDTO(400, "La cantidad no puede ser nula"));
         }
 
-        BookResponseDTO book = bookService.getById(id);
-        if (book == null) {
-            return ResponseEntity.notFound().build();
+        try {
+            BookResponseDTO updatedBook = bookService.updateStock(id, dto);
+            if (updatedBook == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(updatedBook);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponseDTO(400, e.getMessage()));
+        }
+    }
+
+    /**
+     * Responde `503` cuando OpenSearch está saturado o se alcanzó el límite de concurrencia, para
+     * que el cliente reintente más tarde en lugar de recibir resultados vacíos.
+     *
+     * @param e rechazo del limitador de concurrencia.
+     * @return error 503 con `Retry-After`.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponseDTO> handleOverload(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponseDTO(503, e.getMessage()));
+    }
+
+    /**
+     * Renderiza un listado aplicando la proyección pedida.
+     *
+     * @param books libros a responder.
+     * @param fields proyección de campos.
+     * @return el listado tal cual o un arreglo JSON solo con los campos incluidos.
+     */
+    private Object render(List<BookResponseDTO> books, BookFields fields) {
+        return fields.isAll() ? books : projectAll(books, fields);
+    }
+
+    /**
+     * Renderiza una página aplicando la proyección a sus libros.
+     *
+     * @param page página a responder.
+     * @param fields proyección de campos.
+     * @return la página tal cual o un objeto JSON con los libros proyectados.
+     */
+    private Object render(BookPageResponseDTO page, BookFields fields) {
+        if (fields.isAll()) {
+            return page;
         }
+        ObjectNode node = objectMapper.valueToTree(page);
+        node.set("items", projectAll(page.getItems(), fields));
+        return node;
+    }
+
+    /**
+     * Renderiza un libro aplicando la proyección pedida.
+     *
+     * @param book libro a responder.
+     * @param fields proyección de campos.
+     * @return el libro tal cual o un objeto JSON solo con los campos incluidos.
+     */
+    private Object render(BookResponseDTO book, BookFields fields) {
+        return fields.isAll() ? book : project(book, fields);
+    }
 
-        int currentStock = book.getStock() == null ? 0 : book.getStock();
-        if (dto.getQuantity() < 0 && currentStock + dto.getQuantity() < 0) {
-            return ResponseEntity.badRequest().body(new ErrorResponseDTO(400, "Stock insuficiente"));
+    /**
+     * Renderiza el resultado de una consulta por lote aplicando la proyección a cada libro.
+     *
+     * @param items resultados por id.
+     * @param fields proyección de campos.
+     * @return los resultados tal cual o un arreglo JSON con los libros proyectados.
+     */
+    private Object renderBatch(List<BookBatchItemDTO> items, BookFields fields) {
+        if (fields.isAll()) {
+            return items;
         }
+        ArrayNode array = objectMapper.createArrayNode();
+        for (BookBatchItemDTO item : items) {
+            ObjectNode node = objectMapper.valueToTree(item);
+            if (item.getBook() != null) {
+                node.set("book", project(item.getBook(), fields));
+            }
+            array.add(node);
+        }
+        return array;
+    }
 
-        BookResponseDTO updatedBook = bookService.updateStock(id, dto);
-        if (updatedBook == null) {
-            return ResponseEntity.notFound().build();
+    /**
+     * Convierte libros a JSON conservando solo los campos de la proyección, de modo que los
+     * omitidos no aparecen como `null` en la respuesta.
+     *
+     * @param books libros proyectados.
+     * @param fields proyección de campos.
+     * @return arreglo JSON.
+     */
+    private ArrayNode projectAll(List<BookResponseDTO> books, BookFields fields) {
+        ArrayNode array = objectMapper.createArrayNode();
+        for (BookResponseDTO book : books) {
+            array.add(project(book, fields));
+        }
+        return array;
+    }
+
+    /**
+     * Convierte un libro a JSON conservando solo los campos de la proyección.
+     *
+     * @param book libro proyectado.
+     * @param fields proyección de campos.
+     * @return objeto JSON.
+     */
+    private ObjectNode project(BookResponseDTO book, BookFields fields) {
+        ObjectNode node = objectMapper.valueToTree(book);
+        return node.retain(fields.names());
+    }
+
+    /**
+     * Escribe un libro como una línea JSON en el flujo de exportación.
+     *
+     * @param out flujo de salida.
+     * @param book libro a serializar.
+     */
+    private void writeNdjsonLine(OutputStream out, BookResponseDTO book) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(book));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return ResponseEntity.ok(updatedBook);
     }
 }
@@ -0,0 +1,27 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Disponibilidad de un id dentro de una consulta por lote, p. ej. los ítems de un carrito.
+ * Los resultados se devuelven en el mismo orden que los ids pedidos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityBatchItemDTO {
+    /**
+     * Id pedido.
+     */
+    private Long id;
+    /**
+     * `false` cuando el libro no existe.
+     */
+    private boolean found;
+    /**
+     * Disponibilidad del libro o `null` si no existe.
+     */
+    private AvailabilityResponseDTO availability;
+}
@@ -0,0 +1,27 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de un id dentro de una consulta de libros por lote.
+ * Los resultados se devuelven en el mismo orden que los ids pedidos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchItemDTO {
+    /**
+     * Id pedido.
+     */
+    private Long id;
+    /**
+     * `false` cuando el libro no existe.
+     */
+    private boolean found;
+    /**
+     * Libro encontrado o `null` si no existe.
+     */
+    private BookResponseDTO book;
+}
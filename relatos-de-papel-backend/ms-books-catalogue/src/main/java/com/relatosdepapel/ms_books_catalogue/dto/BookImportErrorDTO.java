@@ -0,0 +1,22 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * DTO con el detalle de un registro rechazado en una importación masiva
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportErrorDTO {
+    /** Número de línea del archivo importado (comenzando en 1) */
+    private Long line;
+
+    /** ISBN del registro, si pudo leerse */
+    private String isbn;
+
+    /** Motivo del rechazo */
+    private String message;
+}
@@ -0,0 +1,33 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen de una importación masiva de libros.
+ * El detalle de errores se limita para no crecer con el tamaño del archivo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+    /**
+     * Registros leídos del archivo (sin contar cabecera ni líneas vacías).
+     */
+    private long processed;
+    /**
+     * Libros creados correctamente.
+     */
+    private long created;
+    /**
+     * Registros rechazados por validación, ISBN duplicado o error de OpenSearch.
+     */
+    private long failed;
+    /**
+     * Detalle de los primeros registros rechazados.
+     */
+    private List<BookImportErrorDTO> errors;
+}
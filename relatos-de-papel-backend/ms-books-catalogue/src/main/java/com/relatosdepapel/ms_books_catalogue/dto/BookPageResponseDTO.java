@@ -0,0 +1,29 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de resultados del catálogo paginada por cursor.
+ * El cursor es opaco para el cliente y se reenvía tal cual para obtener la página siguiente.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPageResponseDTO {
+    /**
+     * Libros de la página actual.
+     */
+    private List<BookResponseDTO> items;
+    /**
+     * Tamaño de página aplicado por el servidor.
+     */
+    private int size;
+    /**
+     * Cursor para la página siguiente o `null` cuando no hay más resultados.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,53 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Criterios de búsqueda del catálogo
+ * Agrupa los filtros opcionales de /api/books/search para reutilizarlos
+ * en listados paginados y exportaciones
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchCriteria {
+    /** Texto parcial para título */
+    private String title;
+
+    /** Texto parcial para autor */
+    private String author;
+
+    /** Categoría exacta */
+    private String category;
+
+    /** ISBN exacto */
+    private String isbn;
+
+    /** Rating mínimo */
+    private Integer ratingMin;
+
+    /** Rating máximo */
+    private Integer ratingMax;
+
+    /** Filtro de visibilidad */
+    private Boolean visible;
+
+    /** Precio mínimo */
+    private BigDecimal minPrice;
+
+    /** Precio máximo */
+    private BigDecimal maxPrice;
+
+    /** Fecha de publicación inicial */
+    private LocalDate publicationDateFrom;
+
+    /** Fecha de publicación final */
+    private LocalDate publicationDateTo;
+
+    /** Stock mínimo */
+    private Integer minStock;
+}
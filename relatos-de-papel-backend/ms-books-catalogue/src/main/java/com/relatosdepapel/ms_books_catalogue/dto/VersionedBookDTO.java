@@ -0,0 +1,24 @@
+package com.relatosdepapel.ms_books_catalogue.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Libro junto con la versión del documento en OpenSearch.
+ * La versión se expone al cliente como `ETag` y se recibe en `If-Match` para detectar
+ * modificaciones concurrentes sin lecturas adicionales.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VersionedBookDTO {
+    /**
+     * Libro en su versión actual.
+     */
+    private BookResponseDTO book;
+    /**
+     * Versión opaca del documento (`<primary_term>-<seq_no>`).
+     */
+    private String version;
+}
@@ -0,0 +1,332 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+import com.relatosdepapel.ms_books_catalogue.dto.BookImportErrorDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookImportResultDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Pipeline de importación masiva de libros.
+ * Lee el archivo en streaming, lo divide en lotes `_bulk` acotados por cantidad y bytes y
+ * mantiene varios lotes en vuelo con backpressure sobre la lectura.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookBulkImporter {
+    private static final int BULK_ACTION_OVERHEAD_BYTES = 96;
+
+    private final OpenSearchBookStore bookStore;
+    private final OpenSearchProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Formatos de archivo soportados por la importación.
+     */
+    public enum Format {
+        /** Un `BookRequestDTO` JSON por línea. */
+        NDJSON,
+        /** CSV con cabecera usando los nombres de campo de `BookRequestDTO`. */
+        CSV
+    }
+
+    /**
+     * Importa libros desde un flujo NDJSON o CSV.
+     * El refresh del índice se suspende durante la importación y se restaura al finalizar.
+     *
+     * @param input contenido del archivo.
+     * @param format formato del contenido.
+     * @return resumen con creados, rechazados y detalle de errores.
+     */
+    public BookImportResultDTO importBooks(InputStream input, Format format) {
+        ImportProgress progress = new ImportProgress(properties.getImportMaxReportedErrors());
+        Semaphore inFlight = new Semaphore(Math.max(1, properties.getImportConcurrency()));
+
+        bookStore.suspendRefresh();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = format == Format.CSV ? readCsvHeader(reader) : null;
+            long lineNumber = format == Format.CSV ? 1 : 0;
+            List<ImportLine> chunk = new ArrayList<>();
+            long chunkBytes = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                progress.read();
+
+                BookRequestDTO dto;
+                try {
+                    dto = format == Format.CSV ? parseCsvLine(line, csvColumns) : parseNdjsonLine(line);
+                } catch (IllegalArgumentException | DateTimeException | JsonProcessingException ex) {
+                    progress.reject(lineNumber, null, "Registro inválido: " + ex.getMessage());
+                    continue;
+                }
+                String validationError = validate(dto);
+                if (validationError != null) {
+                    progress.reject(lineNumber, dto.getIsbn(), validationError);
+                    continue;
+                }
+
+                chunk.add(new ImportLine(lineNumber, dto));
+                chunkBytes += line.length() + BULK_ACTION_OVERHEAD_BYTES;
+                if (chunk.size() >= properties.getImportChunkSize() || chunkBytes >= properties.getImportChunkBytes()) {
+                    dispatch(chunk, executor, inFlight, progress);
+                    chunk = new ArrayList<>();
+                    chunkBytes = 0;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                dispatch(chunk, executor, inFlight, progress);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Error leyendo archivo de importación: " + ex.getMessage(), ex);
+        } finally {
+            bookStore.resumeRefresh();
+        }
+        return progress.toResult();
+    }
+
+    /**
+     * Envía un lote a OpenSearch en segundo plano.
+     * Bloquea al lector mientras haya `importConcurrency` lotes en vuelo.
+     *
+     * @param chunk registros del lote.
+     * @param executor ejecutor de lotes.
+     * @param inFlight permisos de lotes simultáneos.
+     * @param progress acumulador de resultados.
+     */
+    private void dispatch(List<ImportLine> chunk, ExecutorService executor, Semaphore inFlight,
+            ImportProgress progress) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación interrumpida", ex);
+        }
+        executor.submit(() -> {
+            try {
+                List<String> errors = bookStore.bulkCreate(chunk.stream().map(ImportLine::book).toList());
+                for (int i = 0; i < chunk.size(); i++) {
+                    ImportLine line = chunk.get(i);
+                    if (errors.get(i) == null) {
+                        progress.accept();
+                    } else {
+                        progress.reject(line.number(), line.book().getIsbn(), errors.get(i));
+                    }
+                }
+            } catch (RuntimeException ex) {
+                for (ImportLine line : chunk) {
+                    progress.reject(line.number(), line.book().getIsbn(), ex.getMessage());
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Convierte una línea NDJSON en payload de creación.
+     *
+     * @param line línea JSON.
+     * @return payload de creación.
+     * @throws JsonProcessingException cuando la línea no es JSON válido.
+     */
+    private BookRequestDTO parseNdjsonLine(String line) throws JsonProcessingException {
+        return objectMapper.readValue(line, BookRequestDTO.class);
+    }
+
+    /**
+     * Lee la cabecera CSV y resuelve la posición de cada columna.
+     *
+     * @param reader lector del archivo.
+     * @return mapa `columna -> posición`.
+     * @throws IOException cuando falla la lectura.
+     */
+    private Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return Map.of();
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> names = splitCsv(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        return columns;
+    }
+
+    /**
+     * Convierte una fila CSV en payload de creación.
+     *
+     * @param line fila CSV.
+     * @param columns posiciones de columnas de la cabecera.
+     * @return payload de creación.
+     * @throws IllegalArgumentException cuando algún valor no tiene el formato esperado.
+     */
+    private BookRequestDTO parseCsvLine(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        BookRequestDTO dto = new BookRequestDTO();
+        dto.setTitle(csvValue(values, columns, "title"));
+        dto.setAuthor(csvValue(values, columns, "author"));
+        String publicationDate = csvValue(values, columns, "publicationDate");
+        dto.setPublicationDate(publicationDate == null ? null : LocalDate.parse(publicationDate));
+        dto.setCategory(csvValue(values, columns, "category"));
+        dto.setIsbn(csvValue(values, columns, "isbn"));
+        String rating = csvValue(values, columns, "rating");
+        dto.setRating(rating == null ? null : Integer.valueOf(rating));
+        String visible = csvValue(values, columns, "visible");
+        dto.setVisible(visible == null ? null : Boolean.valueOf(visible));
+        String stock = csvValue(values, columns, "stock");
+        dto.setStock(stock == null ? null : Integer.valueOf(stock));
+        String price = csvValue(values, columns, "price");
+        dto.setPrice(price == null ? null : new BigDecimal(price));
+        return dto;
+    }
+
+    /**
+     * Obtiene el valor de una columna CSV o `null` si no existe o está vacío.
+     *
+     * @param values valores de la fila.
+     * @param columns posiciones de columnas.
+     * @param name nombre de columna.
+     * @return valor recortado o `null`.
+     */
+    private String csvValue(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Separa una fila CSV respetando comillas dobles y comillas escapadas (`""`).
+     *
+     * @param line fila CSV.
+     * @return valores de la fila.
+     */
+    private List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * Aplica las mismas reglas de negocio que el alta individual de libros.
+     *
+     * @param dto payload a validar.
+     * @return mensaje de error o `null` si es válido.
+     */
+    private String validate(BookRequestDTO dto) {
+        if (dto.getTitle() == null || dto.getTitle().isEmpty()) {
+            return "El título no puede estar vacío";
+        }
+        if (dto.getAuthor() == null || dto.getAuthor().isEmpty()) {
+            return "El autor no puede estar vacío";
+        }
+        if (dto.getIsbn() == null || dto.getIsbn().isEmpty()) {
+            return "El ISBN no puede estar vacío";
+        }
+        if (dto.getPrice() == null || dto.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
+            return "El precio debe ser mayor a 0";
+        }
+        if (dto.getStock() == null || dto.getStock() < 0) {
+            return "El stock no puede ser negativo";
+        }
+        return null;
+    }
+
+    /**
+     * Registro leído del archivo con su número de línea.
+     *
+     * @param number número de línea.
+     * @param book payload de creación.
+     */
+    private record ImportLine(long number, BookRequestDTO book) {
+    }
+
+    /**
+     * Acumulador thread-safe del resultado de una importación.
+     */
+    private static final class ImportProgress {
+        private final int maxReportedErrors;
+        private final List<BookImportErrorDTO> errors = new ArrayList<>();
+        private long processed;
+        private long created;
+        private long failed;
+
+        ImportProgress(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        synchronized void read() {
+            processed++;
+        }
+
+        synchronized void accept() {
+            created++;
+        }
+
+        synchronized void reject(long line, String isbn, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new BookImportErrorDTO(line, isbn, message));
+            }
+        }
+
+        synchronized BookImportResultDTO toResult() {
+            return new BookImportResultDTO(processed, created, failed, List.copyOf(errors));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.dto.BookFacetsResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+/**
+ * Contadores en memoria de categorías, autores y total por visibilidad.
+ * Se actualizan con el documento anterior y el nuevo de cada escritura local y se reemplazan
+ * periódicamente por una agregación real para corregir la deriva causada por escrituras de otras
+ * instancias o carreras entre lectura y escritura. Cada escritura aplicada avanza una generación;
+ * una reconciliación cuya agregación se solapó con escrituras locales se descarta en lugar de
+ * perderlas o contarlas dos veces.
+ */
+@Component
+public class BookFacetCounters {
+    /**
+     * Buckets por facet, igual que el `size` de las terms aggregations de facets.
+     */
+    private static final int TOP_BUCKETS = 20;
+
+    private final Map<Boolean, Bucket> buckets = new HashMap<>();
+    private final Map<Boolean, BookFacetsResponseDTO> snapshots = new HashMap<>();
+    private BookFacetsResponseDTO allSnapshot;
+    private boolean ready;
+    private long generation;
+
+    /**
+     * Indica si una escritura modifica campos que participan en las consultas de facets.
+     *
+     * @param before versión anterior o `null` en altas.
+     * @param after versión nueva o `null` en bajas.
+     * @return `true` si cambian título, autor, categoría, visibilidad o existencia.
+     */
+    public static boolean affectsFacets(BookResponseDTO before, BookResponseDTO after) {
+        if (before == null || after == null) {
+            return before != after;
+        }
+        return !Objects.equals(before.getTitle(), after.getTitle())
+                || !Objects.equals(before.getAuthor(), after.getAuthor())
+                || !Objects.equals(before.getCategory(), after.getCategory())
+                || !Objects.equals(before.getVisible(), after.getVisible());
+    }
+
+    /**
+     * Aplica una escritura a los contadores restando la versión anterior y sumando la nueva.
+     *
+     * @param before versión anterior o `null` en altas.
+     * @param after versión nueva o `null` en bajas.
+     */
+    public synchronized void apply(BookResponseDTO before, BookResponseDTO after) {
+        generation++;
+        if (!ready) {
+            return;
+        }
+        if (before != null) {
+            bucket(before.getVisible()).add(before, -1);
+        }
+        if (after != null) {
+            bucket(after.getVisible()).add(after, 1);
+        }
+        snapshots.clear();
+        allSnapshot = null;
+    }
+
+    /**
+     * Generación actual; debe leerse antes de lanzar la agregación de reconciliación.
+     *
+     * @return cantidad de escrituras aplicadas.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Reemplaza todos los contadores con el resultado de una agregación completa, salvo que se
+     * hayan aplicado escrituras desde que empezó.
+     *
+     * @param expectedGeneration generación leída antes de la agregación.
+     * @param totals total de libros por visibilidad.
+     * @param categories conteo por visibilidad y categoría.
+     * @param authors conteo por visibilidad y autor.
+     * @return `false` si la agregación quedó desactualizada y se descartó.
+     */
+    public synchronized boolean replace(
+            long expectedGeneration,
+            Map<Boolean, Long> totals,
+            Map<Boolean, Map<String, Long>> categories,
+            Map<Boolean, Map<String, Long>> authors) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        buckets.clear();
+        totals.forEach((visible, total) -> bucket(visible).total = total);
+        categories.forEach((visible, counts) -> bucket(visible).categories.putAll(counts));
+        authors.forEach((visible, counts) -> bucket(visible).authors.putAll(counts));
+        snapshots.clear();
+        allSnapshot = null;
+        ready = true;
+        return true;
+    }
+
+    /**
+     * Deshabilita los contadores hasta la próxima reconciliación exitosa.
+     */
+    public synchronized void reset() {
+        buckets.clear();
+        snapshots.clear();
+        allSnapshot = null;
+        ready = false;
+    }
+
+    /**
+     * Obtiene los facets sin filtros o filtrados solo por visibilidad.
+     *
+     * @param visible filtro de visibilidad o `null` para todo el catálogo.
+     * @return facets calculados o `null` si los contadores aún no están listos.
+     */
+    public synchronized BookFacetsResponseDTO snapshot(Boolean visible) {
+        if (!ready) {
+            return null;
+        }
+        if (visible == null) {
+            if (allSnapshot == null) {
+                allSnapshot = toResponse(buckets.values().toArray(Bucket[]::new));
+            }
+            return allSnapshot;
+        }
+        return snapshots.computeIfAbsent(visible, key -> {
+            Bucket bucket = buckets.get(key);
+            return bucket == null ? toResponse() : toResponse(bucket);
+        });
+    }
+
+    /**
+     * Obtiene o crea el bucket de una visibilidad.
+     *
+     * @param visible visibilidad.
+     * @return bucket de contadores.
+     */
+    private Bucket bucket(Boolean visible) {
+        return buckets.computeIfAbsent(visible, key -> new Bucket());
+    }
+
+    /**
+     * Combina buckets y conserva los {@value #TOP_BUCKETS} valores más frecuentes de cada facet.
+     *
+     * @param sources buckets a combinar.
+     * @return respuesta de facets.
+     */
+    private BookFacetsResponseDTO toResponse(Bucket... sources) {
+        long total = 0;
+        Map<String, Long> categories = new HashMap<>();
+        Map<String, Long> authors = new HashMap<>();
+        for (Bucket source : sources) {
+            total += source.total;
+            source.categories.forEach((key, count) -> categories.merge(key, count, Long::sum));
+            source.authors.forEach((key, count) -> authors.merge(key, count, Long::sum));
+        }
+        return new BookFacetsResponseDTO(total, top(categories), top(authors));
+    }
+
+    /**
+     * Ordena por cantidad descendente y luego por clave, como las terms aggregations.
+     *
+     * @param counts conteos completos.
+     * @return conteos principales ordenados.
+     */
+    private Map<String, Long> top(Map<String, Long> counts) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(TOP_BUCKETS)
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Contadores de una visibilidad.
+     */
+    private static final class Bucket {
+        private long total;
+        private final Map<String, Long> categories = new HashMap<>();
+        private final Map<String, Long> authors = new HashMap<>();
+
+        void add(BookResponseDTO book, int delta) {
+            total += delta;
+            increment(categories, book.getCategory(), delta);
+            increment(authors, book.getAuthor(), delta);
+        }
+
+        private static void increment(Map<String, Long> counts, String key, int delta) {
+            if (key == null) {
+                return;
+            }
+            long next = counts.getOrDefault(key, 0L) + delta;
+            if (next > 0) {
+                counts.put(key, next);
+            } else {
+                counts.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+/**
+ * Proyección de campos de libro (parámetro `fields=`).
+ * Se traduce a `_source` includes en OpenSearch, de modo que los campos no solicitados no se
+ * leen del índice ni se serializan en la respuesta. El `id` se incluye siempre.
+ */
+public final class BookFields {
+    /**
+     * Campos de {@link BookResponseDTO} en orden canónico.
+     */
+    private static final List<String> KNOWN = List.of(
+            "id", "title", "author", "publicationDate", "category", "isbn", "rating", "visible", "stock", "price");
+
+    /**
+     * Sin proyección: documento completo.
+     */
+    public static final BookFields ALL = new BookFields(null);
+    /**
+     * Campos que necesita la consulta de disponibilidad del flujo de pagos.
+     */
+    public static final BookFields AVAILABILITY = of(List.of("title", "isbn", "visible", "stock", "price"));
+
+    private final Set<String> names;
+    private final SerializableString sourceIncludes;
+
+    private BookFields(Set<String> names) {
+        this.names = names;
+        this.sourceIncludes = names == null ? null : new SerializedString(names.stream()
+                .map(name -> "\"" + name + "\"")
+                .collect(Collectors.joining(",", "[", "]")));
+    }
+
+    /**
+     * Interpreta el parámetro `fields` (nombres separados por coma).
+     *
+     * @param fields valor recibido o `null`.
+     * @return proyección; {@link #ALL} si no se informa.
+     * @throws IllegalArgumentException cuando algún campo no existe.
+     */
+    public static BookFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        List<String> requested = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!KNOWN.contains(name)) {
+                throw new IllegalArgumentException("Campo desconocido: " + name);
+            }
+            requested.add(name);
+        }
+        return requested.isEmpty() ? ALL : of(requested);
+    }
+
+    /**
+     * Crea una proyección con los campos indicados más `id`, en orden canónico para que
+     * consultas equivalentes produzcan el mismo cuerpo.
+     *
+     * @param requested campos conocidos.
+     * @return proyección.
+     */
+    private static BookFields of(List<String> requested) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : KNOWN) {
+            if ("id".equals(name) || requested.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names.size() == KNOWN.size() ? ALL : new BookFields(Collections.unmodifiableSet(names));
+    }
+
+    /**
+     * Indica si la proyección abarca el documento completo.
+     *
+     * @return `true` sin proyección.
+     */
+    public boolean isAll() {
+        return names == null;
+    }
+
+    /**
+     * Indica si un campo forma parte de la proyección.
+     *
+     * @param field nombre de campo.
+     * @return `true` si se incluye.
+     */
+    public boolean includes(String field) {
+        return names == null || names.contains(field);
+    }
+
+    /**
+     * Campos incluidos.
+     *
+     * @return nombres en orden canónico; todos los campos si no hay proyección.
+     */
+    public Set<String> names() {
+        return names == null ? new LinkedHashSet<>(KNOWN) : names;
+    }
+
+    /**
+     * Arreglo JSON precodificado para `_source`.
+     *
+     * @return includes o `null` si no hay proyección.
+     */
+    SerializableString sourceIncludes() {
+        return sourceIncludes;
+    }
+
+    /**
+     * Valor del parámetro `_source_includes` de un GET.
+     *
+     * @return campos separados por coma o `null` si no hay proyección.
+     */
+    String sourceIncludesParam() {
+        return names == null ? null : String.join(",", names);
+    }
+
+    /**
+     * Aplica la proyección a un libro completo (p. ej. uno servido desde la cache local).
+     *
+     * @param book libro completo.
+     * @return el mismo libro sin proyección, o una copia con solo los campos incluidos.
+     */
+    public BookResponseDTO project(BookResponseDTO book) {
+        if (names == null || book == null) {
+            return book;
+        }
+        return new BookResponseDTO(
+                book.getId(),
+                includes("title") ? book.getTitle() : null,
+                includes("author") ? book.getAuthor() : null,
+                includes("publicationDate") ? book.getPublicationDate() : null,
+                includes("category") ? book.getCategory() : null,
+                includes("isbn") ? book.getIsbn() : null,
+                includes("rating") ? book.getRating() : null,
+                includes("visible") ? book.getVisible() : null,
+                includes("stock") ? book.getStock() : null,
+                includes("price") ? book.getPrice() : null);
+    }
+}
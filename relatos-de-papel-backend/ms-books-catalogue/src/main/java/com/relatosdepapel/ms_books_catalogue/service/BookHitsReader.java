@@ -0,0 +1,350 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+/**
+ * Lectura en streaming de respuestas de OpenSearch.
+ * Decodifica `_source` directamente a {@link BookResponseDTO} sin construir el árbol de la
+ * respuesta; solo los valores `sort` de cada hit se materializan como nodo porque se reenvían
+ * en `search_after`.
+ */
+final class BookHitsReader {
+
+    private BookHitsReader() {
+    }
+
+    /**
+     * Lee una respuesta `_search` y decodifica sus hits.
+     *
+     * @param parser parser al inicio de la respuesta; debe tener codec para leer `sort`.
+     * @param fields proyección pedida en `_source`.
+     * @return hits decodificados.
+     * @throws IOException cuando la respuesta no puede leerse.
+     */
+    static SearchHits readSearchResponse(JsonParser parser, BookFields fields) throws IOException {
+        String pitId = null;
+        List<BookResponseDTO> books = new ArrayList<>();
+        List<JsonNode> sorts = new ArrayList<>();
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("pit_id".equals(field) && value == JsonToken.VALUE_STRING) {
+                pitId = parser.getText();
+            } else if ("hits".equals(field) && value == JsonToken.START_OBJECT) {
+                readHitsObject(parser, fields, books, sorts);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new SearchHits(pitId, books, sorts);
+    }
+
+    /**
+     * Lee una respuesta GET de documento.
+     *
+     * @param parser parser al inicio de la respuesta.
+     * @param fields proyección pedida en `_source_includes`.
+     * @return documento leído o `null` si no existe.
+     * @throws IOException cuando la respuesta no puede leerse.
+     */
+    static StoredBook readGetResponse(JsonParser parser, BookFields fields) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        return readDocument(parser, fields);
+    }
+
+    /**
+     * Lee la respuesta de un `_update` pedido con `_source=true`, decodificando el documento
+     * resultante con las mismas reglas que las lecturas (precio decimal exacto).
+     *
+     * @param parser parser al inicio de la respuesta.
+     * @return resultado, versión y libro resultante.
+     * @throws IOException cuando la respuesta no puede leerse.
+     */
+    static UpdatedBook readUpdateResponse(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        String result = null;
+        long primaryTerm = 0L;
+        long seqNo = -1L;
+        BookResponseDTO book = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "result" -> result = parser.getValueAsString();
+                case "_primary_term" -> primaryTerm = parser.getValueAsLong(0L);
+                case "_seq_no" -> seqNo = parser.getValueAsLong(-1L);
+                case "get" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        book = readSource(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new UpdatedBook(result, book, primaryTerm, seqNo);
+    }
+
+    /**
+     * Lee el `_source` completo de un objeto `get` embebido.
+     *
+     * @param parser parser posicionado en el `START_OBJECT` de `get`.
+     * @return libro o `null` si no trae `_source`.
+     * @throws IOException cuando el objeto no puede leerse.
+     */
+    private static BookResponseDTO readSource(JsonParser parser) throws IOException {
+        BookResponseDTO book = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("_source".equals(field) && value == JsonToken.START_OBJECT) {
+                book = readBook(parser, BookFields.ALL);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Lee una respuesta `_mget`.
+     *
+     * @param parser parser al inicio de la respuesta.
+     * @param fields proyección pedida en `_source_includes`.
+     * @return documentos en el orden pedido, con `null` en los que no existen.
+     * @throws IOException cuando la respuesta no puede leerse o algún documento falló.
+     */
+    static List<StoredBook> readMgetResponse(JsonParser parser, BookFields fields) throws IOException {
+        List<StoredBook> docs = new ArrayList<>();
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"docs".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                docs.add(readDocument(parser, fields));
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Lee un documento con el formato de GET por id.
+     *
+     * @param parser parser posicionado en el `START_OBJECT` del documento.
+     * @param fields proyección pedida.
+     * @return documento leído o `null` si no existe.
+     * @throws IOException cuando el documento no puede leerse o trae un error.
+     */
+    private static StoredBook readDocument(JsonParser parser, BookFields fields) throws IOException {
+        boolean found = false;
+        long primaryTerm = 0L;
+        long seqNo = -1L;
+        BookResponseDTO book = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "found" -> found = value == JsonToken.VALUE_TRUE;
+                case "_primary_term" -> primaryTerm = parser.getValueAsLong(0L);
+                case "_seq_no" -> seqNo = parser.getValueAsLong(-1L);
+                case "_source" -> book = value == JsonToken.START_OBJECT ? readBook(parser, fields) : null;
+                case "error" -> throw new IOException("Error leyendo documento: " + parser.readValueAsTree());
+                default -> parser.skipChildren();
+            }
+        }
+        return found && book != null ? new StoredBook(book, primaryTerm, seqNo) : null;
+    }
+
+    /**
+     * Decodifica un `_source` con las mismas reglas por defecto que el mapeo desde nodos:
+     * visibilidad `false`, stock `0` y precio `0` cuando faltan. Los campos fuera de la
+     * proyección quedan en `null` y los desconocidos se omiten.
+     *
+     * @param parser parser posicionado en el `START_OBJECT` del documento.
+     * @param fields proyección pedida.
+     * @return libro decodificado.
+     * @throws IOException cuando el documento no puede leerse.
+     */
+    static BookResponseDTO readBook(JsonParser parser, BookFields fields) throws IOException {
+        BookResponseDTO book = new BookResponseDTO(
+                0L,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                fields.includes("visible") ? Boolean.FALSE : null,
+                fields.includes("stock") ? 0 : null,
+                fields.includes("price") ? BigDecimal.ZERO : null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id" -> book.setId(parser.getValueAsLong());
+                case "title" -> book.setTitle(parser.getValueAsString());
+                case "author" -> book.setAuthor(parser.getValueAsString());
+                case "publicationDate" -> {
+                    String date = parser.getValueAsString();
+                    book.setPublicationDate(date == null || date.isBlank() ? null : LocalDate.parse(date));
+                }
+                case "category" -> book.setCategory(parser.getValueAsString());
+                case "isbn" -> book.setIsbn(parser.getValueAsString());
+                case "rating" -> book.setRating(parser.getValueAsInt());
+                case "visible" -> book.setVisible(parser.getValueAsBoolean());
+                case "stock" -> book.setStock(parser.getValueAsInt());
+                case "price" -> book.setPrice(value.isNumeric()
+                        ? parser.getDecimalValue()
+                        : new BigDecimal(parser.getValueAsString()));
+                default -> {
+                }
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Lee el objeto `hits` externo y recorre su arreglo `hits`.
+     *
+     * @param parser parser posicionado en el `START_OBJECT` de `hits`.
+     * @param fields proyección pedida.
+     * @param books libros leídos.
+     * @param sorts valores `sort` leídos.
+     * @throws IOException cuando la respuesta no puede leerse.
+     */
+    private static void readHitsObject(JsonParser parser, BookFields fields, List<BookResponseDTO> books,
+            List<JsonNode> sorts) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"hits".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                readHit(parser, fields, books, sorts);
+            }
+        }
+    }
+
+    /**
+     * Lee un hit; los hits sin `_source` se omiten.
+     *
+     * @param parser parser posicionado en el `START_OBJECT` del hit.
+     * @param fields proyección pedida.
+     * @param books libros leídos.
+     * @param sorts valores `sort` leídos.
+     * @throws IOException cuando la respuesta no puede leerse.
+     */
+    private static void readHit(JsonParser parser, BookFields fields, List<BookResponseDTO> books,
+            List<JsonNode> sorts) throws IOException {
+        BookResponseDTO book = null;
+        JsonNode sort = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("_source".equals(field) && value == JsonToken.START_OBJECT) {
+                book = readBook(parser, fields);
+            } else if ("sort".equals(field) && value == JsonToken.START_ARRAY) {
+                sort = parser.readValueAsTree();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (book != null) {
+            books.add(book);
+            sorts.add(sort);
+        }
+    }
+
+    /**
+     * Valida el token inicial de una respuesta.
+     *
+     * @param actual token leído.
+     * @param expected token esperado.
+     * @throws IOException cuando no coinciden.
+     */
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Respuesta de OpenSearch inesperada: " + actual);
+        }
+    }
+
+    /**
+     * Hits de una respuesta `_search`.
+     *
+     * @param pitId id del point-in-time devuelto o `null`.
+     * @param books libros en orden de respuesta.
+     * @param sorts valores `sort` de cada libro (`null` si la consulta no ordena).
+     */
+    record SearchHits(String pitId, List<BookResponseDTO> books, List<JsonNode> sorts) {
+    }
+
+    /**
+     * Documento leído por id con su versión.
+     *
+     * @param book libro.
+     * @param primaryTerm `_primary_term` del documento.
+     * @param seqNo `_seq_no` del documento.
+     */
+    record StoredBook(BookResponseDTO book, long primaryTerm, long seqNo) {
+        /**
+         * Versión opaca del documento.
+         *
+         * @return versión `<primary_term>-<seq_no>`.
+         */
+        String version() {
+            return primaryTerm + "-" + seqNo;
+        }
+    }
+
+    /**
+     * Resultado de un `_update` con el documento resultante.
+     *
+     * @param result valor de `result` (`updated`, `noop`...).
+     * @param book libro resultante o `null` si la respuesta no trae `_source`.
+     * @param primaryTerm `_primary_term` de la escritura.
+     * @param seqNo `_seq_no` de la escritura.
+     */
+    record UpdatedBook(String result, BookResponseDTO book, long primaryTerm, long seqNo) {
+        /**
+         * Indica si la actualización no cambió el documento.
+         *
+         * @return `true` cuando `result` es `noop`.
+         */
+        boolean isNoop() {
+            return "noop".equals(result);
+        }
+
+        /**
+         * Versión opaca resultante.
+         *
+         * @return versión `<primary_term>-<seq_no>`.
+         */
+        String version() {
+            return primaryTerm + "-" + seqNo;
+        }
+    }
+}
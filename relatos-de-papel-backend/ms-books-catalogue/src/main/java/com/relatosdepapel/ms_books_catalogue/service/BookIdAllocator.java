@@ -0,0 +1,308 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Asignador de ids de libros por bloques (hi/lo).
+ * Cada instancia reserva bloques de ids sobre un documento contador en OpenSearch usando
+ * concurrencia optimista (`if_seq_no`/`if_primary_term`) y los entrega desde memoria, por lo
+ * que la mayoría de las altas no requiere un round trip adicional y los ids no se repiten
+ * entre instancias. El bloque siguiente se reserva en segundo plano cuando el vigente va por la
+ * mitad, y ninguna reserva contra OpenSearch ocurre mientras se tiene el lock del bloque local.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookIdAllocator {
+    private static final String COUNTER_ID = "books";
+    private static final int MAX_LEASE_ATTEMPTS = 20;
+
+    private final OpenSearchConcurrencyLimiter concurrencyLimiter;
+    private final OpenSearchProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextLocalId;
+    private long localLimit;
+    private CompletableFuture<Block> pendingBlock;
+
+    /**
+     * Entrega el siguiente id del bloque local. Cuando se agota, espera (sin tener el lock) el
+     * bloque que ya se estaba reservando o inicia su reserva.
+     *
+     * @return id único para un libro nuevo.
+     */
+    public long nextId() {
+        while (true) {
+            CompletableFuture<Block> refill;
+            lock.lock();
+            try {
+                if (nextLocalId < localLimit) {
+                    long id = nextLocalId++;
+                    if (localLimit - nextLocalId <= blockSize() / 2) {
+                        prefetch();
+                    }
+                    return id;
+                }
+                refill = prefetch();
+            } finally {
+                lock.unlock();
+            }
+            Block block = awaitBlock(refill);
+            lock.lock();
+            try {
+                // Solo el primer hilo que ve el bloque lo instala; los demás reintentan sobre él.
+                if (pendingBlock == refill) {
+                    pendingBlock = null;
+                    nextLocalId = block.first();
+                    localLimit = block.limit();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reserva un rango contiguo de ids.
+     * Rangos pequeños se sirven del bloque local; rangos grandes (importaciones) se reservan
+     * directamente en el contador con una sola operación.
+     *
+     * @param count cantidad de ids.
+     * @return primer id del rango.
+     */
+    public long reserve(int count) {
+        if (count <= 1) {
+            return nextId();
+        }
+        lock.lock();
+        try {
+            if (localLimit - nextLocalId >= count) {
+                long first = nextLocalId;
+                nextLocalId += count;
+                return first;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lease(count);
+    }
+
+    /**
+     * Inicia la reserva del bloque siguiente en un hilo virtual si no hay una en curso. Una
+     * reserva anticipada que falló se descarta y se reintenta, para no propagar un error
+     * transitorio del cluster cuando se agote el bloque actual.
+     * Debe invocarse con el lock tomado.
+     *
+     * @return reserva en curso.
+     */
+    private CompletableFuture<Block> prefetch() {
+        if (pendingBlock == null || pendingBlock.isCompletedExceptionally()) {
+            int size = blockSize();
+            pendingBlock = CompletableFuture.supplyAsync(
+                    () -> {
+                        long first = lease(size);
+                        return new Block(first, first + size);
+                    },
+                    Thread::startVirtualThread);
+        }
+        return pendingBlock;
+    }
+
+    /**
+     * Espera una reserva de bloque. Si falla se descarta para que el próximo llamador reintente.
+     *
+     * @param refill reserva en curso.
+     * @return bloque reservado.
+     */
+    private Block awaitBlock(CompletableFuture<Block> refill) {
+        try {
+            return refill.join();
+        } catch (CompletionException ex) {
+            lock.lock();
+            try {
+                if (pendingBlock == refill) {
+                    pendingBlock = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    /**
+     * Tamaño de bloque configurado.
+     *
+     * @return ids por bloque, al menos 1.
+     */
+    private int blockSize() {
+        return Math.max(1, properties.getIdBlockSize());
+    }
+
+    /**
+     * Avanza el contador compartido `count` posiciones con concurrencia optimista.
+     *
+     * @param count tamaño del rango a reservar.
+     * @return primer id del rango reservado.
+     */
+    private long lease(long count) {
+        for (int attempt = 1; attempt <= MAX_LEASE_ATTEMPTS; attempt++) {
+            JsonNode counter = getCounter();
+            if (counter == null) {
+                initializeCounter();
+                continue;
+            }
+            long next = counter.path("_source").path("next").asLong(1L);
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("next", next + count);
+
+            Request request = new Request("PUT", "/" + counterIndex() + "/_doc/" + COUNTER_ID);
+            request.addParameter("if_seq_no", counter.path("_seq_no").asText());
+            request.addParameter("if_primary_term", counter.path("_primary_term").asText());
+            request.setJsonEntity(body.toString());
+            try {
+                concurrencyLimiter.perform(request);
+                return next;
+            } catch (ResponseException ex) {
+                if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_CONFLICT) {
+                    throw fail("Error reservando bloque de ids", ex);
+                }
+            } catch (IOException ex) {
+                throw fail("Error reservando bloque de ids", ex);
+            }
+        }
+        throw new IllegalStateException("No se pudo reservar un bloque de ids tras "
+                + MAX_LEASE_ATTEMPTS + " intentos concurrentes");
+    }
+
+    /**
+     * Lee el documento contador con su versión.
+     *
+     * @return documento contador o `null` si aún no existe.
+     */
+    private JsonNode getCounter() {
+        try {
+            Response response = concurrencyLimiter.perform(
+                    new Request("GET", "/" + counterIndex() + "/_doc/" + COUNTER_ID));
+            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+            return root.path("found").asBoolean(false) ? root : null;
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return null;
+            }
+            throw fail("Error leyendo contador de ids", ex);
+        } catch (IOException ex) {
+            throw fail("Error leyendo contador de ids", ex);
+        }
+    }
+
+    /**
+     * Crea el índice y el documento contador partiendo del mayor id ya indexado.
+     * Si otra instancia lo crea antes, el conflicto se ignora y se reintenta la reserva.
+     */
+    private void initializeCounter() {
+        ensureCounterIndex();
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("next", findMaxBookId() + 1L);
+        try {
+            Request request = new Request("PUT", "/" + counterIndex() + "/_create/" + COUNTER_ID);
+            request.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(request);
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_CONFLICT) {
+                throw fail("Error inicializando contador de ids", ex);
+            }
+        } catch (IOException ex) {
+            throw fail("Error inicializando contador de ids", ex);
+        }
+    }
+
+    /**
+     * Crea el índice de contadores (un shard, mapping no dinámico) si no existe.
+     */
+    private void ensureCounterIndex() {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("settings").put("number_of_shards", 1);
+        ObjectNode mappings = body.putObject("mappings");
+        mappings.put("dynamic", false);
+        mappings.putObject("properties").putObject("next").put("type", "long");
+        try {
+            Request request = new Request("PUT", "/" + counterIndex());
+            request.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(request);
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_BAD_REQUEST) {
+                throw fail("Error creando índice de contadores", ex);
+            }
+        } catch (IOException ex) {
+            throw fail("Error creando índice de contadores", ex);
+        }
+    }
+
+    /**
+     * Obtiene el mayor id indexado; solo se usa al crear el contador por primera vez.
+     *
+     * @return mayor id existente o `0` si el catálogo está vacío.
+     */
+    private long findMaxBookId() {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", 1);
+        body.put("_source", false);
+        body.putObject("query").putObject("match_all");
+        body.putArray("sort").addObject().put("id", "desc");
+        try {
+            Request request = new Request("GET", "/" + properties.getIndex() + "/_search");
+            request.setJsonEntity(body.toString());
+            Response response = concurrencyLimiter.perform(request);
+            JsonNode hits = objectMapper.readTree(response.getEntity().getContent()).path("hits").path("hits");
+            return hits.isEmpty() ? 0L : hits.get(0).path("sort").path(0).asLong(0L);
+        } catch (IOException ex) {
+            throw fail("Error calculando el mayor id del catálogo", ex);
+        }
+    }
+
+    /**
+     * Nombre del índice que guarda los contadores de ids.
+     *
+     * @return índice de contadores.
+     */
+    private String counterIndex() {
+        return properties.getIndex() + "-sequences";
+    }
+
+    /**
+     * Rango de ids reservado en el contador compartido.
+     *
+     * @param first primer id del rango.
+     * @param limit primer id fuera del rango.
+     */
+    private record Block(long first, long limit) {
+    }
+
+    /**
+     * Estandariza excepciones del asignador con contexto funcional.
+     *
+     * @param message mensaje de dominio.
+     * @param ex excepción original.
+     * @return excepción runtime enriquecida.
+     */
+    private RuntimeException fail(String message, Exception ex) {
+        return new IllegalStateException(message + ": " + ex.getMessage(), ex);
+    }
+}
@@ -0,0 +1,838 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Administra el índice físico del catálogo detrás del alias `opensearch.index`.
+ * Cada índice físico se llama `<alias>-v<versión de mapping>-<timestamp>` y registra la versión
+ * en `_meta.mapping_version`. Cantidad de shards, réplicas, refresh y orden del índice
+ * (`index.sort`) salen de {@link OpenSearchProperties}; réplicas y refresh se aplican al arrancar.
+ * Cuando el índice vigente tiene un mapping anterior, incompatible con facets, shards u orden
+ * distintos a los configurados, o todavía es un índice concreto sin alias, la migración construye
+ * el índice nuevo con
+ * un `_reindex` en segundo plano, dividido en slices y limitado por `requests_per_second`.
+ * Al terminar bloquea las escrituras del índice anterior solo mientras copia los documentos
+ * modificados durante la copia, y cambia el alias en una única operación que además elimina el
+ * índice anterior. Las lecturas nunca ven el catálogo vacío. Un documento de lock creado con
+ * `op_type=create` impide que dos instancias migren a la vez; la migración completa y la ventana
+ * con escrituras bloqueadas tienen plazos máximos, y el bloqueo se retira siempre al terminar.
+ * Expone `catalogue.index.migration.progress` (0 a 1), `.running` y `.failures`.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookIndexMigrator {
+    /**
+     * Versión del mapping construido por {@link #buildIndexDefinition(boolean, boolean)}; debe
+     * incrementarse con cada cambio de mapping para que la migración lo aplique.
+     */
+    static final int MAPPING_VERSION = 3;
+    private static final long PROGRESS_POLL_MS = 5_000L;
+    private static final long CATCH_UP_POLL_MS = 200L;
+    private static final int ID_SCAN_PAGE_SIZE = 5_000;
+    private static final String LOCK_ID = "index-migration";
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+
+    private final OpenSearchConcurrencyLimiter concurrencyLimiter;
+    private final OpenSearchProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong failures = new AtomicLong();
+    private final String lockOwner = UUID.randomUUID().toString();
+    private volatile double progress;
+
+    /**
+     * Registra las métricas de la migración.
+     */
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("catalogue.index.migration.progress", this, migrator -> migrator.progress)
+                .description("Fracción de documentos copiados por la migración de índice en curso")
+                .register(meterRegistry);
+        Gauge.builder("catalogue.index.migration.running", running, flag -> flag.get() ? 1 : 0)
+                .register(meterRegistry);
+        FunctionCounter.builder("catalogue.index.migration.failures", failures, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Garantiza que el alias del catálogo resuelva a un índice. Un índice concreto con el nombre
+     * del alias (creado antes de usar alias) se conserva tal cual hasta que una migración lo
+     * reemplace. Si no existe ninguno se crea el índice físico con el alias como índice de
+     * escritura.
+     */
+    public void ensureIndex() {
+        if (findAliasedIndex() != null || exists(alias())) {
+            applyDynamicSettings();
+            return;
+        }
+        try {
+            Request create = new Request("PUT", "/" + newIndexName());
+            create.setJsonEntity(buildIndexDefinition(true, false).toString());
+            concurrencyLimiter.perform(create);
+        } catch (ResponseException ex) {
+            // Otra instancia pudo crear el índice con el mismo alias a la vez.
+            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_BAD_REQUEST
+                    || findAliasedIndex() == null) {
+                throw fail("No se pudo crear el índice de OpenSearch", ex);
+            }
+        } catch (IOException ex) {
+            throw fail("No se pudo crear el índice de OpenSearch", ex);
+        }
+    }
+
+    /**
+     * Inicia la migración en segundo plano si está habilitada y el índice vigente la requiere.
+     * Si otra instancia tiene el lock de migración, no hace nada.
+     *
+     * @param onSwap acción a ejecutar después de cambiar el alias, p. ej. descartar caches con
+     *        versiones del índice anterior.
+     * @return `true` si se inició una migración.
+     */
+    public boolean startMigrationIfNeeded(Runnable onSwap) {
+        if (!properties.isIndexMigrationEnabled()) {
+            return false;
+        }
+        String source = indexRequiringMigration();
+        if (source == null || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress = 0.0;
+        Thread.startVirtualThread(() -> {
+            boolean locked = false;
+            try {
+                locked = acquireLock();
+                if (locked) {
+                    migrate(source);
+                    onSwap.run();
+                }
+            } catch (RuntimeException ex) {
+                failures.incrementAndGet();
+            } finally {
+                if (locked) {
+                    releaseLock();
+                }
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Construye el índice físico nuevo a partir de `source` y lo publica bajo el alias.
+     * Ante cualquier error o plazo vencido se elimina el índice nuevo, y en todos los casos en
+     * que el alias no cambió se desbloquean las escrituras de `source`, por lo que el catálogo
+     * queda como estaba.
+     *
+     * @param source índice físico vigente.
+     * @throws IllegalStateException cuando la migración falla.
+     */
+    private void migrate(String source) {
+        String target = newIndexName();
+        long deadline = System.currentTimeMillis() + properties.getIndexMigrationTimeout().toMillis();
+        boolean writesBlocked = false;
+        boolean swapped = false;
+        try {
+            long checkpoint = minMaxSeqNo(source);
+            Request create = new Request("PUT", "/" + target);
+            create.setJsonEntity(buildIndexDefinition(false, true).toString());
+            concurrencyLimiter.perform(create);
+
+            awaitTask(startReindex(source, target, null), deadline, PROGRESS_POLL_MS, true);
+            putSettings(target, "index.refresh_interval", properties.getIndexRefreshInterval());
+
+            long blockedDeadline = Math.min(deadline,
+                    System.currentTimeMillis() + properties.getIndexMigrationWriteBlockTimeout().toMillis());
+            writesBlocked = true;
+            putSettings(source, "index.blocks.write", true);
+            copyChangedSince(source, target, checkpoint, blockedDeadline);
+            removeDeletedDuringCopy(source, target, blockedDeadline);
+
+            swapAlias(source, target);
+            swapped = true;
+            progress = 1.0;
+        } catch (IOException | RuntimeException ex) {
+            deleteIndexQuietly(target);
+            throw fail("No se pudo migrar el índice " + source + " a " + target, ex);
+        } finally {
+            // Tras el cambio de alias `source` ya no existe; en otro caso nunca queda bloqueado.
+            if (writesBlocked && !swapped) {
+                unblockWrites(source);
+            }
+        }
+    }
+
+    /**
+     * Retira el bloqueo de escrituras de un índice.
+     *
+     * @param index índice físico.
+     * @throws IllegalStateException cuando el bloqueo no pudo retirarse.
+     */
+    private void unblockWrites(String index) {
+        try {
+            putSettings(index, "index.blocks.write", null);
+        } catch (IOException ex) {
+            throw fail("No se pudo desbloquear las escrituras del índice " + index, ex);
+        }
+    }
+
+    /**
+     * Toma el lock de migración creando su documento con `op_type=create`. Un lock más antiguo
+     * que el plazo de migración se considera abandonado por una instancia caída y se reemplaza.
+     *
+     * @return `true` si esta instancia tiene el lock.
+     */
+    private boolean acquireLock() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("owner", lockOwner);
+            body.put("acquiredAt", System.currentTimeMillis());
+            try {
+                Request request = new Request("PUT", "/" + lockIndex() + "/_create/" + LOCK_ID);
+                request.addParameter("refresh", "true");
+                request.setJsonEntity(body.toString());
+                concurrencyLimiter.perform(request);
+                return true;
+            } catch (ResponseException ex) {
+                if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_CONFLICT) {
+                    throw fail("Error tomando el lock de migración", ex);
+                }
+            } catch (IOException ex) {
+                throw fail("Error tomando el lock de migración", ex);
+            }
+            if (!deleteStaleLock()) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Elimina el lock si su dueño lo tomó hace más que el plazo de migración.
+     *
+     * @return `true` si se eliminó un lock abandonado.
+     */
+    private boolean deleteStaleLock() {
+        try {
+            Response response = concurrencyLimiter.perform(
+                    new Request("GET", "/" + lockIndex() + "/_doc/" + LOCK_ID));
+            JsonNode lock = objectMapper.readTree(response.getEntity().getContent());
+            long acquiredAt = lock.path("_source").path("acquiredAt").asLong(0L);
+            long staleBefore = System.currentTimeMillis() - properties.getIndexMigrationTimeout().toMillis()
+                    - properties.getIndexMigrationWriteBlockTimeout().toMillis();
+            if (!lock.path("found").asBoolean(false) || acquiredAt >= staleBefore) {
+                return false;
+            }
+            Request delete = new Request("DELETE", "/" + lockIndex() + "/_doc/" + LOCK_ID);
+            delete.addParameter("if_seq_no", lock.path("_seq_no").asText());
+            delete.addParameter("if_primary_term", lock.path("_primary_term").asText());
+            concurrencyLimiter.perform(delete);
+            return true;
+        } catch (ResponseException ex) {
+            int code = ex.getResponse().getStatusLine().getStatusCode();
+            if (code == HttpStatus.SC_NOT_FOUND || code == HttpStatus.SC_CONFLICT) {
+                return code == HttpStatus.SC_NOT_FOUND;
+            }
+            throw fail("Error validando el lock de migración", ex);
+        } catch (IOException ex) {
+            throw fail("Error validando el lock de migración", ex);
+        }
+    }
+
+    /**
+     * Libera el lock de migración si sigue perteneciendo a esta instancia.
+     */
+    private void releaseLock() {
+        try {
+            Response response = concurrencyLimiter.perform(
+                    new Request("GET", "/" + lockIndex() + "/_doc/" + LOCK_ID));
+            JsonNode lock = objectMapper.readTree(response.getEntity().getContent());
+            if (!lockOwner.equals(lock.path("_source").path("owner").asText())) {
+                return;
+            }
+            Request delete = new Request("DELETE", "/" + lockIndex() + "/_doc/" + LOCK_ID);
+            delete.addParameter("if_seq_no", lock.path("_seq_no").asText());
+            delete.addParameter("if_primary_term", lock.path("_primary_term").asText());
+            concurrencyLimiter.perform(delete);
+        } catch (IOException | RuntimeException ex) {
+            // Un lock no liberado vence tras el plazo de migración.
+        }
+    }
+
+    /**
+     * Determina si el índice vigente debe migrarse: índice concreto sin alias, versión de mapping
+     * anterior a {@link #MAPPING_VERSION}, `category`/`author` como `text` sin subcampo `keyword`,
+     * o cantidad de shards u orden del índice distintos a los configurados (settings que solo se
+     * fijan al crear el índice).
+     *
+     * @return nombre del índice físico a migrar o `null` si no requiere migración.
+     */
+    private String indexRequiringMigration() {
+        try {
+            Response response = concurrencyLimiter.perform(new Request("GET", "/" + alias()));
+            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+            Iterator<Map.Entry<String, JsonNode>> indices = root.fields();
+            if (!indices.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, JsonNode> index = indices.next();
+            JsonNode mappings = index.getValue().path("mappings");
+            JsonNode fields = mappings.path("properties");
+            JsonNode settings = index.getValue().path("settings").path("index");
+            boolean outdated = mappings.path("_meta").path("mapping_version").asInt(0) < MAPPING_VERSION;
+            boolean facetsIncompatible = isTextWithoutKeyword(fields.path("category"))
+                    || isTextWithoutKeyword(fields.path("author"));
+            boolean layoutChanged = settings.path("number_of_shards").asInt() != properties.getIndexShards()
+                    || !properties.getIndexSortField().equals(firstValue(settings.path("sort").path("field")))
+                    || !properties.getIndexSortOrder().equals(firstValue(settings.path("sort").path("order")));
+            return index.getKey().equals(alias()) || outdated || facetsIncompatible || layoutChanged
+                    ? index.getKey()
+                    : null;
+        } catch (IOException ex) {
+            throw fail("Error validando el mapping del índice", ex);
+        }
+    }
+
+    /**
+     * Lee un setting que OpenSearch puede devolver como valor o como arreglo de un elemento.
+     *
+     * @param value nodo del setting.
+     * @return primer valor o `null` si no está definido.
+     */
+    private String firstValue(JsonNode value) {
+        JsonNode first = value.isArray() ? value.path(0) : value;
+        return first.isMissingNode() || first.isNull() ? null : first.asText();
+    }
+
+    /**
+     * Aplica al índice vigente los settings dinámicos configurados (réplicas y refresh).
+     */
+    private void applyDynamicSettings() {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("index")
+                .put("number_of_replicas", properties.getIndexReplicas())
+                .put("refresh_interval", properties.getIndexRefreshInterval());
+        try {
+            Request request = new Request("PUT", "/" + alias() + "/_settings");
+            request.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(request);
+        } catch (IOException ex) {
+            throw fail("Error aplicando settings del índice", ex);
+        }
+    }
+
+    /**
+     * Evalúa si un campo no admite agregaciones por `keyword`.
+     *
+     * @param field mapping del campo.
+     * @return `true` si es `text` sin subcampo `keyword`.
+     */
+    private boolean isTextWithoutKeyword(JsonNode field) {
+        return "text".equals(field.path("type").asText()) && field.path("fields").path("keyword").isMissingNode();
+    }
+
+    /**
+     * Construye la definición del índice de catálogo.
+     *
+     * @param withAlias `true` para crear el índice ya publicado como índice de escritura del alias.
+     * @param forCopy `true` para deshabilitar el refresh mientras se copia.
+     * @return cuerpo de creación con `settings`, `mappings` y `aliases`.
+     */
+    private ObjectNode buildIndexDefinition(boolean withAlias, boolean forCopy) {
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode settings = body.putObject("settings").putObject("index");
+        settings.put("number_of_shards", properties.getIndexShards());
+        settings.put("number_of_replicas", properties.getIndexReplicas());
+        settings.put("refresh_interval", forCopy ? "-1" : properties.getIndexRefreshInterval());
+        // Los segmentos quedan ordenados como el listado más habitual, de modo que las consultas
+        // con ese mismo orden y sin total exacto terminan tras los primeros documentos.
+        settings.putObject("sort")
+                .put("field", properties.getIndexSortField())
+                .put("order", properties.getIndexSortOrder());
+        ObjectNode mappingsRoot = body.putObject("mappings");
+        mappingsRoot.putObject("_meta").put("mapping_version", MAPPING_VERSION);
+        ObjectNode mappings = mappingsRoot.putObject("properties");
+
+        mappings.putObject("id").put("type", "long");
+        mappings.putObject("isbn").put("type", "keyword");
+        mappings.putObject("category").put("type", "keyword");
+        mappings.putObject("rating").put("type", "integer");
+        mappings.putObject("visible").put("type", "boolean");
+        mappings.putObject("stock").put("type", "integer");
+        mappings.putObject("price").put("type", "double");
+        mappings.putObject("publicationDate").put("type", "date").put("format", "yyyy-MM-dd");
+
+        ObjectNode title = mappings.putObject("title");
+        title.put("type", "text");
+        ObjectNode titleFields = title.putObject("fields");
+        titleFields.putObject("keyword").put("type", "keyword");
+        titleFields.putObject("suggest").put("type", "search_as_you_type");
+
+        ObjectNode author = mappings.putObject("author");
+        author.put("type", "text");
+        ObjectNode authorFields = author.putObject("fields");
+        authorFields.putObject("keyword").put("type", "keyword");
+        authorFields.putObject("suggest").put("type", "search_as_you_type");
+
+        if (withAlias) {
+            body.putObject("aliases").putObject(alias()).put("is_write_index", true);
+        }
+        return body;
+    }
+
+    /**
+     * Lanza el `_reindex` como tarea de OpenSearch sin esperar a que termine.
+     * La copia completa se limita por `requests_per_second`; la de cambios no, porque corre con
+     * las escrituras bloqueadas.
+     *
+     * @param source índice origen.
+     * @param target índice destino.
+     * @param query consulta que acota los documentos o `null` para la copia completa.
+     * @return id de la tarea.
+     * @throws IOException cuando falla la llamada.
+     */
+    private String startReindex(String source, String target, ObjectNode query) throws IOException {
+        Request request = new Request("POST", "/_reindex");
+        request.addParameter("wait_for_completion", "false");
+        request.addParameter("slices", properties.getReindexSlices());
+        if (query == null) {
+            request.addParameter("requests_per_second", String.valueOf(properties.getReindexRequestsPerSecond()));
+        } else {
+            request.addParameter("refresh", "true");
+        }
+        request.setJsonEntity(reindexBody(source, target, query).toString());
+        Response response = concurrencyLimiter.perform(request);
+        String task = objectMapper.readTree(response.getEntity().getContent()).path("task").asText(null);
+        if (task == null) {
+            throw new IOException("OpenSearch no devolvió la tarea de reindexación");
+        }
+        return task;
+    }
+
+    /**
+     * Espera a que termine una tarea de reindexación. Si vence el plazo la cancela y falla.
+     *
+     * @param task id de la tarea.
+     * @param deadline instante límite en milisegundos.
+     * @param pollMs intervalo de consulta del estado.
+     * @param trackProgress `true` para actualizar el progreso expuesto.
+     * @throws IOException cuando la tarea falla, vence el plazo o no puede consultarse.
+     */
+    private void awaitTask(String task, long deadline, long pollMs, boolean trackProgress) throws IOException {
+        while (true) {
+            Response response = concurrencyLimiter.perform(new Request("GET", "/_tasks/" + task));
+            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+            JsonNode status = root.path("task").path("status");
+            long total = status.path("total").asLong(0L);
+            long done = status.path("created").asLong(0L) + status.path("updated").asLong(0L)
+                    + status.path("version_conflicts").asLong(0L);
+            if (trackProgress && total > 0) {
+                progress = Math.min(1.0, (double) done / total);
+            }
+            if (root.path("completed").asBoolean(false)) {
+                if (!root.path("error").isMissingNode()) {
+                    throw new IOException("La reindexación falló: " + root.path("error").path("reason").asText());
+                }
+                if (!root.path("response").path("failures").isEmpty()) {
+                    throw new IOException("La reindexación tuvo fallos: " + root.path("response").path("failures"));
+                }
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                cancelTaskQuietly(task);
+                throw new IOException("La reindexación " + task + " superó el plazo de la migración");
+            }
+            try {
+                Thread.sleep(Math.min(pollMs, remaining));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cancelTaskQuietly(task);
+                throw new IOException("Migración de índice interrumpida", ex);
+            }
+        }
+    }
+
+    /**
+     * Cancela una tarea de reindexación ignorando errores.
+     *
+     * @param task id de la tarea.
+     */
+    private void cancelTaskQuietly(String task) {
+        try {
+            concurrencyLimiter.perform(new Request("POST", "/_tasks/" + task + "/_cancel"));
+        } catch (IOException | RuntimeException ex) {
+            // La tarea termina sola; su índice destino se elimina igual.
+        }
+    }
+
+    /**
+     * Copia los documentos escritos en `source` después del checkpoint tomado antes de la copia
+     * principal. Se ejecuta con las escrituras de `source` bloqueadas.
+     *
+     * @param source índice origen.
+     * @param target índice destino.
+     * @param checkpoint menor `max_seq_no` de los shards primarios antes de la copia.
+     * @param deadline instante límite de la ventana con escrituras bloqueadas.
+     * @throws IOException cuando falla la copia o vence el plazo.
+     */
+    private void copyChangedSince(String source, String target, long checkpoint, long deadline)
+            throws IOException {
+        ObjectNode query = objectMapper.createObjectNode();
+        query.putObject("range").putObject("_seq_no").put("gt", checkpoint);
+        awaitTask(startReindex(source, target, query), deadline, CATCH_UP_POLL_MS, false);
+    }
+
+    /**
+     * Elimina del índice destino los libros borrados en `source` durante la copia principal.
+     * Solo compara cuando los conteos difieren, recorriendo ambos índices ordenados por `id` a la
+     * vez, de modo que la memoria usada es de una página por índice.
+     *
+     * @param source índice origen con escrituras bloqueadas.
+     * @param target índice destino.
+     * @param deadline instante límite de la ventana con escrituras bloqueadas.
+     * @throws IOException cuando falla alguna llamada o vence el plazo.
+     */
+    private void removeDeletedDuringCopy(String source, String target, long deadline) throws IOException {
+        concurrencyLimiter.perform(new Request("POST", "/" + source + "/_refresh"));
+        if (count(target) == count(source)) {
+            return;
+        }
+        IdCursor sourceIds = new IdCursor(source);
+        IdCursor targetIds = new IdCursor(target);
+        StringBuilder bulk = new StringBuilder();
+        int pending = 0;
+        while (targetIds.next()) {
+            while (sourceIds.hasCurrent() && sourceIds.id() < targetIds.id()) {
+                sourceIds.next();
+            }
+            if (sourceIds.hasCurrent() && sourceIds.id() == targetIds.id()) {
+                continue;
+            }
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject("delete").put("_index", target).put("_id", targetIds.docId());
+            bulk.append(action).append('\n');
+            if (++pending >= ID_SCAN_PAGE_SIZE) {
+                deleteAll(bulk, deadline);
+                bulk.setLength(0);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            deleteAll(bulk, deadline);
+        }
+        concurrencyLimiter.perform(new Request("POST", "/" + target + "/_refresh"));
+    }
+
+    /**
+     * Ejecuta un `_bulk` de bajas en el índice destino.
+     *
+     * @param bulk acciones NDJSON.
+     * @param deadline instante límite de la ventana con escrituras bloqueadas.
+     * @throws IOException cuando falla la llamada o ya venció el plazo.
+     */
+    private void deleteAll(StringBuilder bulk, long deadline) throws IOException {
+        if (System.currentTimeMillis() > deadline) {
+            throw new IOException("La conciliación de bajas superó el plazo de bloqueo de escrituras");
+        }
+        Request request = new Request("POST", "/_bulk");
+        request.setEntity(new StringEntity(bulk.toString(), NDJSON));
+        concurrencyLimiter.perform(request);
+    }
+
+    /**
+     * Publica el índice nuevo bajo el alias y elimina el anterior en una única operación atómica.
+     * `remove_index` también cubre el caso en que el anterior es un índice concreto con el mismo
+     * nombre que el alias.
+     *
+     * @param source índice anterior.
+     * @param target índice nuevo.
+     * @throws IOException cuando falla la llamada.
+     */
+    private void swapAlias(String source, String target) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode actions = body.putArray("actions");
+        actions.addObject().putObject("add")
+                .put("index", target)
+                .put("alias", alias())
+                .put("is_write_index", true);
+        actions.addObject().putObject("remove_index").put("index", source);
+        Request request = new Request("POST", "/_aliases");
+        request.setJsonEntity(body.toString());
+        concurrencyLimiter.perform(request);
+    }
+
+    /**
+     * Cuerpo de una reindexación entre dos índices.
+     *
+     * @param source índice origen.
+     * @param target índice destino.
+     * @param query consulta que acota los documentos o `null` para copiar todos.
+     * @return cuerpo de `_reindex`.
+     */
+    private ObjectNode reindexBody(String source, String target, ObjectNode query) {
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode sourceNode = body.putObject("source");
+        sourceNode.put("index", source);
+        sourceNode.put("size", properties.getExportBatchSize());
+        if (query != null) {
+            sourceNode.set("query", query);
+        }
+        body.putObject("dest").put("index", target);
+        body.put("conflicts", "proceed");
+        return body;
+    }
+
+    /**
+     * Menor `max_seq_no` entre los shards primarios de un índice. Todo documento escrito después
+     * de la consulta tiene un `_seq_no` mayor.
+     *
+     * @param index índice físico.
+     * @return checkpoint o `-1` si el índice no tiene operaciones.
+     * @throws IOException cuando falla la llamada.
+     */
+    private long minMaxSeqNo(String index) throws IOException {
+        Request request = new Request("GET", "/" + index + "/_stats/docs");
+        request.addParameter("level", "shards");
+        JsonNode root = objectMapper.readTree(concurrencyLimiter.perform(request).getEntity().getContent());
+        long checkpoint = Long.MAX_VALUE;
+        for (JsonNode copies : root.path("indices").path(index).path("shards")) {
+            for (JsonNode copy : copies) {
+                if (copy.path("routing").path("primary").asBoolean(false)) {
+                    checkpoint = Math.min(checkpoint, copy.path("seq_no").path("max_seq_no").asLong(-1L));
+                }
+            }
+        }
+        return checkpoint == Long.MAX_VALUE ? -1L : checkpoint;
+    }
+
+    /**
+     * Recorre los documentos de un índice ordenados por `id` con `search_after`, de a una página.
+     */
+    private final class IdCursor {
+        private final String index;
+        private JsonNode page;
+        private int position;
+        private JsonNode searchAfter;
+        private boolean exhausted;
+
+        private IdCursor(String index) {
+            this.index = index;
+        }
+
+        /**
+         * Avanza al documento siguiente, pidiendo otra página cuando se agota la actual.
+         *
+         * @return `true` si hay documento actual.
+         * @throws IOException cuando falla alguna página.
+         */
+        private boolean next() throws IOException {
+            position++;
+            if (page != null && position < page.size()) {
+                return true;
+            }
+            if (exhausted) {
+                page = null;
+                return false;
+            }
+            ObjectNode body = objectMapper.createObjectNode();
+            body.put("size", ID_SCAN_PAGE_SIZE);
+            body.put("_source", false);
+            body.putArray("sort").addObject().put("id", "asc");
+            if (searchAfter != null) {
+                body.set("search_after", searchAfter);
+            }
+            Request request = new Request("POST", "/" + index + "/_search");
+            request.setJsonEntity(body.toString());
+            page = objectMapper.readTree(concurrencyLimiter.perform(request).getEntity().getContent())
+                    .path("hits").path("hits");
+            position = 0;
+            exhausted = page.size() < ID_SCAN_PAGE_SIZE;
+            if (page.isEmpty()) {
+                page = null;
+                return false;
+            }
+            searchAfter = page.get(page.size() - 1).path("sort");
+            return true;
+        }
+
+        /**
+         * Indica si hay documento actual; antes del primer {@link #next()} no lo hay.
+         *
+         * @return `true` si {@link #id()} es válido.
+         * @throws IOException cuando falla la primera página.
+         */
+        private boolean hasCurrent() throws IOException {
+            if (page == null && !exhausted && searchAfter == null) {
+                return next();
+            }
+            return page != null && position < page.size();
+        }
+
+        /**
+         * Valor del campo `id` del documento actual.
+         *
+         * @return id numérico.
+         */
+        private long id() {
+            return page.get(position).path("sort").path(0).asLong();
+        }
+
+        /**
+         * `_id` del documento actual.
+         *
+         * @return id del documento.
+         */
+        private String docId() {
+            return page.get(position).path("_id").asText();
+        }
+    }
+
+    /**
+     * Cuenta los documentos de un índice.
+     *
+     * @param index índice físico.
+     * @return cantidad de documentos.
+     * @throws IOException cuando falla la llamada.
+     */
+    private long count(String index) throws IOException {
+        Response response = concurrencyLimiter.perform(new Request("GET", "/" + index + "/_count"));
+        return objectMapper.readTree(response.getEntity().getContent()).path("count").asLong();
+    }
+
+    /**
+     * Actualiza un setting dinámico de un índice.
+     *
+     * @param index índice físico.
+     * @param setting nombre completo del setting.
+     * @param value valor o `null` para restaurar el valor por defecto.
+     * @throws IOException cuando falla la llamada.
+     */
+    private void putSettings(String index, String setting, Object value) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        if (value == null) {
+            body.putNull(setting);
+        } else {
+            body.putPOJO(setting, value);
+        }
+        Request request = new Request("PUT", "/" + index + "/_settings");
+        request.setJsonEntity(body.toString());
+        concurrencyLimiter.perform(request);
+    }
+
+    /**
+     * Busca el índice físico al que apunta el alias del catálogo.
+     *
+     * @return nombre del índice o `null` si el alias no existe.
+     */
+    private String findAliasedIndex() {
+        try {
+            Response response = concurrencyLimiter.perform(new Request("GET", "/_alias/" + alias()));
+            Iterator<String> names = objectMapper.readTree(response.getEntity().getContent()).fieldNames();
+            return names.hasNext() ? names.next() : null;
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return null;
+            }
+            throw fail("Error validando alias del índice", ex);
+        } catch (IOException ex) {
+            throw fail("Error de red validando alias del índice", ex);
+        }
+    }
+
+    /**
+     * Indica si existe un índice o alias con el nombre dado.
+     *
+     * @param name nombre a consultar.
+     * @return `true` si existe.
+     */
+    private boolean exists(String name) {
+        try {
+            Response head = concurrencyLimiter.perform(new Request("HEAD", "/" + name));
+            return head.getStatusLine().getStatusCode() == HttpStatus.SC_OK;
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return false;
+            }
+            throw fail("Error validando índice de OpenSearch", ex);
+        } catch (IOException ex) {
+            throw fail("Error de red validando índice", ex);
+        }
+    }
+
+    /**
+     * Elimina un índice ignorando errores; se usa para descartar una migración fallida.
+     *
+     * @param index índice a eliminar.
+     */
+    private void deleteIndexQuietly(String index) {
+        try {
+            concurrencyLimiter.perform(new Request("DELETE", "/" + index));
+        } catch (IOException | RuntimeException ex) {
+            // Un índice huérfano no está publicado en el alias y no afecta al catálogo.
+        }
+    }
+
+    /**
+     * Índice que guarda el documento de lock de migración.
+     *
+     * @return índice de locks.
+     */
+    private String lockIndex() {
+        return alias() + "-locks";
+    }
+
+    /**
+     * Alias del catálogo.
+     *
+     * @return valor de `opensearch.index`.
+     */
+    private String alias() {
+        return properties.getIndex();
+    }
+
+    /**
+     * Nombre de un índice físico nuevo.
+     *
+     * @return `<alias>-v<versión>-<timestamp>`.
+     */
+    private String newIndexName() {
+        return alias() + "-v" + MAPPING_VERSION + "-" + System.currentTimeMillis();
+    }
+
+    /**
+     * Traduce error técnico a excepción runtime con contexto de negocio.
+     *
+     * @param message mensaje de dominio.
+     * @param ex excepción original.
+     * @return excepción runtime enriquecida.
+     */
+    private RuntimeException fail(String message, Exception ex) {
+        return new IllegalStateException(message + ": " + ex.getMessage(), ex);
+    }
+}
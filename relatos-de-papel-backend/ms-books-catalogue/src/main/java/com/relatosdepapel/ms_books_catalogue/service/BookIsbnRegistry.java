@@ -0,0 +1,297 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Registro de unicidad de ISBN basado en documentos guarda.
+ * Cada ISBN ocupado tiene un documento cuyo `_id` es el propio ISBN, escrito con
+ * `op_type=create`; OpenSearch rechaza el segundo alta del mismo ISBN de forma atómica y sin
+ * búsquedas, incluso entre altas concurrentes o desde varias instancias. La guarda registra
+ * también el instante de reserva (`claimedAt`) para distinguir una guarda huérfana de una cuyo
+ * libro todavía se está indexando.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookIsbnRegistry {
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+    private static final String RELEASE_SCRIPT = """
+            long owner = ctx._source.bookId == null ? -1L : ((Number) ctx._source.bookId).longValue();
+            ctx.op = owner == ((Number) params.bookId).longValue() ? 'delete' : 'noop';
+            """;
+
+    private final OpenSearchConcurrencyLimiter concurrencyLimiter;
+    private final OpenSearchProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Crea el índice de guardas si no existe.
+     *
+     * @return `true` si el índice se creó en esta llamada y debe poblarse con el catálogo actual.
+     */
+    public boolean ensureIndex() {
+        try {
+            Response head = concurrencyLimiter.perform(new Request("HEAD", "/" + guardIndex()));
+            if (head.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                return false;
+            }
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                throw fail("Error validando índice de ISBN", ex);
+            }
+        } catch (IOException ex) {
+            throw fail("Error validando índice de ISBN", ex);
+        }
+
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode mappings = body.putObject("mappings");
+        mappings.put("dynamic", false);
+        ObjectNode fields = mappings.putObject("properties");
+        fields.putObject("bookId").put("type", "long");
+        fields.putObject("claimedAt").put("type", "long");
+        try {
+            Request create = new Request("PUT", "/" + guardIndex());
+            create.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(create);
+            return true;
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_BAD_REQUEST) {
+                return false;
+            }
+            throw fail("Error creando índice de ISBN", ex);
+        } catch (IOException ex) {
+            throw fail("Error creando índice de ISBN", ex);
+        }
+    }
+
+    /**
+     * Reserva un ISBN para un libro.
+     *
+     * @param isbn ISBN a reservar.
+     * @param bookId libro dueño del ISBN.
+     * @return `true` si se reservó, `false` si ya pertenecía a otro libro.
+     */
+    public boolean claim(String isbn, long bookId) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("bookId", bookId);
+        body.put("claimedAt", System.currentTimeMillis());
+        try {
+            Request request = new Request("PUT", "/" + guardIndex() + "/_create/" + encodeId(isbn));
+            request.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(request);
+            return true;
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_CONFLICT) {
+                return false;
+            }
+            throw fail("Error reservando ISBN", ex);
+        } catch (IOException ex) {
+            throw fail("Error reservando ISBN", ex);
+        }
+    }
+
+    /**
+     * Reserva un lote de ISBN con un único `_bulk` de operaciones `create`.
+     * Un ISBN repetido dentro del lote o ya reservado falla solo en su posición.
+     *
+     * @param claims pares `isbn -> bookId` en orden.
+     * @return mensaje de error por posición (`null` cuando el ISBN quedó reservado).
+     */
+    public List<String> claimAll(List<Map.Entry<String, Long>> claims) {
+        List<String> errors = new ArrayList<>(Collections.nCopies(claims.size(), null));
+        if (claims.isEmpty()) {
+            return errors;
+        }
+        StringBuilder bulk = new StringBuilder();
+        long claimedAt = System.currentTimeMillis();
+        for (Map.Entry<String, Long> claim : claims) {
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject("create").put("_index", guardIndex()).put("_id", claim.getKey());
+            bulk.append(action).append('\n');
+            bulk.append("{\"bookId\":").append(claim.getValue())
+                    .append(",\"claimedAt\":").append(claimedAt).append("}\n");
+        }
+        try {
+            JsonNode root = executeBulk(bulk.toString());
+            if (!root.path("errors").asBoolean(false)) {
+                return errors;
+            }
+            JsonNode items = root.path("items");
+            for (int i = 0; i < items.size() && i < claims.size(); i++) {
+                JsonNode item = items.get(i).path("create");
+                int status = item.path("status").asInt();
+                if (status == HttpStatus.SC_CONFLICT) {
+                    errors.set(i, "El ISBN ya existe: " + claims.get(i).getKey());
+                } else if (status >= 300) {
+                    errors.set(i, item.path("error").path("type").asText("error") + ": "
+                            + item.path("error").path("reason").asText(""));
+                }
+            }
+            return errors;
+        } catch (IOException ex) {
+            throw fail("Error reservando lote de ISBN", ex);
+        }
+    }
+
+    /**
+     * Obtiene la guarda actual de un ISBN.
+     *
+     * @param isbn ISBN a consultar.
+     * @return dueño e instante de reserva, o `null` si el ISBN está libre.
+     */
+    public Guard findGuard(String isbn) {
+        JsonNode guard = getGuard(isbn);
+        if (guard == null) {
+            return null;
+        }
+        JsonNode source = guard.path("_source");
+        return new Guard(source.path("bookId").asLong(), source.path("claimedAt").asLong(0L));
+    }
+
+    /**
+     * Libera un ISBN solo si sigue perteneciendo al libro indicado. La verificación del dueño y
+     * la baja se hacen en un único `_update` scriptado, atómico sobre la guarda.
+     *
+     * @param isbn ISBN a liberar.
+     * @param bookId libro dueño esperado.
+     */
+    public void release(String isbn, long bookId) {
+        if (isbn == null || isbn.isBlank()) {
+            return;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode script = body.putObject("script");
+        script.put("lang", "painless");
+        script.put("source", RELEASE_SCRIPT);
+        script.putObject("params").put("bookId", bookId);
+        try {
+            Request request = new Request("POST", "/" + guardIndex() + "/_update/" + encodeId(isbn));
+            request.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(request);
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                throw fail("Error liberando ISBN", ex);
+            }
+        } catch (IOException ex) {
+            throw fail("Error liberando ISBN", ex);
+        }
+    }
+
+    /**
+     * Libera un lote de ISBN sin verificar dueño; se usa para compensar altas bulk cuyas guardas
+     * acaban de crearse en la misma operación y cuyos libros se sabe que no se indexaron.
+     *
+     * @param isbns ISBN a liberar.
+     */
+    public void releaseAll(List<String> isbns) {
+        if (isbns.isEmpty()) {
+            return;
+        }
+        StringBuilder bulk = new StringBuilder();
+        for (String isbn : isbns) {
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject("delete").put("_index", guardIndex()).put("_id", isbn);
+            bulk.append(action).append('\n');
+        }
+        try {
+            executeBulk(bulk.toString());
+        } catch (IOException ex) {
+            throw fail("Error liberando lote de ISBN", ex);
+        }
+    }
+
+    /**
+     * Lee la guarda de un ISBN con su versión.
+     *
+     * @param isbn ISBN a consultar.
+     * @return documento guarda o `null` si no existe.
+     */
+    private JsonNode getGuard(String isbn) {
+        try {
+            Response response = concurrencyLimiter.perform(
+                    new Request("GET", "/" + guardIndex() + "/_doc/" + encodeId(isbn)));
+            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+            return root.path("found").asBoolean(false) ? root : null;
+        } catch (ResponseException ex) {
+            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                return null;
+            }
+            throw fail("Error consultando ISBN", ex);
+        } catch (IOException ex) {
+            throw fail("Error consultando ISBN", ex);
+        }
+    }
+
+    /**
+     * Ejecuta un `_bulk` sobre el índice de guardas.
+     *
+     * @param ndjson cuerpo NDJSON.
+     * @return respuesta parseada.
+     * @throws IOException cuando falla la llamada.
+     */
+    private JsonNode executeBulk(String ndjson) throws IOException {
+        Request request = new Request("POST", "/_bulk");
+        request.setEntity(new StringEntity(ndjson, NDJSON));
+        Response response = concurrencyLimiter.perform(request);
+        return objectMapper.readTree(response.getEntity().getContent());
+    }
+
+    /**
+     * Codifica un ISBN para usarlo como segmento de ruta.
+     *
+     * @param isbn ISBN original.
+     * @return ISBN codificado.
+     */
+    private String encodeId(String isbn) {
+        return URLEncoder.encode(isbn, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Nombre del índice de guardas de ISBN.
+     *
+     * @return índice de guardas.
+     */
+    private String guardIndex() {
+        return properties.getIndex() + "-isbn";
+    }
+
+    /**
+     * Guarda de un ISBN.
+     *
+     * @param bookId libro dueño.
+     * @param claimedAtMs instante de reserva; `0` en guardas anteriores a este campo.
+     */
+    public record Guard(long bookId, long claimedAtMs) {
+    }
+
+    /**
+     * Estandariza excepciones del registro con contexto funcional.
+     *
+     * @param message mensaje de dominio.
+     * @param ex excepción original.
+     * @return excepción runtime enriquecida.
+     */
+    private RuntimeException fail(String message, Exception ex) {
+        return new IllegalStateException(message + ": " + ex.getMessage(), ex);
+    }
+}
@@ -0,0 +1,170 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache local de libros por id sobre Caffeine, acotada en tamaño y en tiempo.
+ * Cada entrada guarda `_primary_term`/`_seq_no` del documento y solo se reemplaza por una
+ * versión más nueva, de modo que una lectura lenta no pisa una escritura local posterior.
+ * Las bajas se registran como lápidas para no servir el libro eliminado.
+ * Expone `cache.gets`, `cache.evictions` y `cache.size` con `cache=books`, tomados de las
+ * estadísticas de Caffeine.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookNearCache {
+    private static final String CACHE_NAME = "books";
+
+    private final OpenSearchProperties properties;
+    private final MeterRegistry meterRegistry;
+    private Cache<Long, CachedBook> entries;
+
+    /**
+     * Crea la cache y registra sus métricas.
+     */
+    @PostConstruct
+    void initialize() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(Math.max(0L, properties.getNearCacheMaxEntries()))
+                .expireAfterWrite(properties.getNearCacheTtl())
+                .recordStats()
+                .build();
+        FunctionCounter.builder("cache.gets", entries, cache -> cache.stats().hitCount())
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", entries, cache -> cache.stats().missCount())
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", entries, cache -> cache.stats().evictionCount())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Cache::estimatedSize)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Obtiene la entrada vigente de un libro.
+     *
+     * @param id identificador de libro.
+     * @return entrada cacheada (con libro `null` si es una lápida) o `null` si no hay entrada vigente.
+     */
+    public CachedBook get(Long id) {
+        if (!isEnabled()) {
+            return null;
+        }
+        CachedBook cached = entries.getIfPresent(id);
+        if (cached == null) {
+            return null;
+        }
+        return cached.book() == null ? cached : cached.withBook(copy(cached.book()));
+    }
+
+    /**
+     * Guarda una versión de un libro si es más nueva que la cacheada.
+     *
+     * @param id identificador de libro.
+     * @param book libro leído o escrito; `null` registra una baja.
+     * @param primaryTerm `_primary_term` de la versión.
+     * @param seqNo `_seq_no` de la versión.
+     */
+    public void putIfNewer(Long id, BookResponseDTO book, long primaryTerm, long seqNo) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (seqNo < 0) {
+            invalidate(id);
+            return;
+        }
+        CachedBook candidate = new CachedBook(book == null ? null : copy(book), primaryTerm, seqNo);
+        entries.asMap().merge(id, candidate, (current, next) -> next.isNewerThan(current) ? next : current);
+    }
+
+    /**
+     * Descarta la entrada de un libro.
+     *
+     * @param id identificador de libro.
+     */
+    public void invalidate(Long id) {
+        entries.invalidate(id);
+    }
+
+    /**
+     * Descarta todas las entradas; se usa tras cargas o migraciones que reescriben el índice.
+     */
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Indica si la cache está habilitada por configuración.
+     *
+     * @return `true` si admite entradas.
+     */
+    private boolean isEnabled() {
+        return properties.getNearCacheMaxEntries() > 0 && !properties.getNearCacheTtl().isZero();
+    }
+
+    /**
+     * Copia defensiva para que los llamadores no modifiquen la entrada compartida.
+     *
+     * @param book libro original.
+     * @return copia del libro.
+     */
+    private BookResponseDTO copy(BookResponseDTO book) {
+        return new BookResponseDTO(
+                book.getId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getPublicationDate(),
+                book.getCategory(),
+                book.getIsbn(),
+                book.getRating(),
+                book.getVisible(),
+                book.getStock(),
+                book.getPrice());
+    }
+
+    /**
+     * Entrada de la cache.
+     *
+     * @param book libro o `null` si la versión corresponde a una baja.
+     * @param primaryTerm `_primary_term` de la versión.
+     * @param seqNo `_seq_no` de la versión.
+     */
+    public record CachedBook(BookResponseDTO book, long primaryTerm, long seqNo) {
+        /**
+         * Compara versiones por `_primary_term` y luego por `_seq_no`.
+         *
+         * @param other otra entrada.
+         * @return `true` si esta versión es posterior.
+         */
+        boolean isNewerThan(CachedBook other) {
+            return primaryTerm != other.primaryTerm ? primaryTerm > other.primaryTerm : seqNo > other.seqNo;
+        }
+
+        /**
+         * Versión opaca de la entrada.
+         *
+         * @return versión `<primary_term>-<seq_no>`.
+         */
+        public String version() {
+            return primaryTerm + "-" + seqNo;
+        }
+
+        private CachedBook withBook(BookResponseDTO copy) {
+            return new CachedBook(copy, primaryTerm, seqNo);
+        }
+    }
+}
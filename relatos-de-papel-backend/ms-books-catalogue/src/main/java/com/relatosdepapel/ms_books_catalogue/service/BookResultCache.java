@@ -0,0 +1,282 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache local de resultados de listados, búsquedas y sugerencias sobre Caffeine, acotada en
+ * tamaño y con un TTL por operación que se cuenta desde el inicio de la carga.
+ * La clave combina la consulta canónica con la generación del catálogo, un contador que cada
+ * escritura local incrementa: invalidar es O(1) y las entradas de generaciones anteriores dejan
+ * de coincidir y salen por tamaño o por TTL. Un resultado solo se guarda si la generación no cambió mientras
+ * se cargaba; con `write-consistency=ASYNC` tampoco se guardan cargas iniciadas antes de que el
+ * último cambio sea visible en búsquedas. Los cambios de otras instancias se ven al vencer el TTL.
+ * Expone `cache.gets` (`cache=results`, `endpoint`), `catalogue.result.cache.hit.ratio`,
+ * `cache.evictions` y `cache.size`; los desalojos y el tamaño salen de las estadísticas de
+ * Caffeine, y los aciertos se cuentan por operación porque Caffeine no los separa.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookResultCache {
+    private static final String CACHE_NAME = "results";
+
+    private final OpenSearchProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Operation, AtomicLong> hits = counters();
+    private final Map<Operation, AtomicLong> misses = counters();
+    private volatile long lastWriteMs;
+    private Cache<Key, Entry> entries;
+
+    /**
+     * Operaciones cacheadas; cada una se mide por separado.
+     */
+    public enum Operation {
+        LIST("list"),
+        SEARCH("search"),
+        SUGGEST("suggest");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    /**
+     * Crea la cache y registra sus métricas por operación.
+     */
+    @PostConstruct
+    void initialize() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(Math.max(0L, properties.getResultCacheMaxEntries()))
+                .recordStats()
+                .expireAfter(new EntryExpiry())
+                .build();
+        for (Operation operation : Operation.values()) {
+            FunctionCounter.builder("cache.gets", hits.get(operation), AtomicLong::get)
+                    .tags("cache", CACHE_NAME, "endpoint", operation.endpoint, "result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.gets", misses.get(operation), AtomicLong::get)
+                    .tags("cache", CACHE_NAME, "endpoint", operation.endpoint, "result", "miss")
+                    .register(meterRegistry);
+            Gauge.builder("catalogue.result.cache.hit.ratio", this, cache -> cache.hitRatio(operation))
+                    .description("Fracción de consultas resueltas desde la cache de resultados")
+                    .tag("endpoint", operation.endpoint)
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("cache.evictions", entries, cache -> cache.stats().evictionCount())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Cache::estimatedSize)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devuelve el resultado cacheado de la consulta o lo carga y lo guarda al completarse.
+     *
+     * @param operation operación cacheada.
+     * @param query consulta canónica con igualdad por contenido.
+     * @param loader inicia la carga asíncrona cuando no hay una entrada vigente.
+     * @param <T> tipo del resultado; se comparte entre llamadores y no debe modificarse.
+     * @return futuro con el resultado.
+     */
+    public <T> CompletableFuture<T> getAsync(Operation operation, Object query,
+            Supplier<CompletableFuture<T>> loader) {
+        if (!isEnabled(operation)) {
+            return loader.get();
+        }
+        Key key = new Key(operation, query, generation.get());
+        Entry cached = lookup(key);
+        if (cached != null) {
+            @SuppressWarnings("unchecked")
+            T value = (T) cached.value();
+            return CompletableFuture.completedFuture(value);
+        }
+        long startedAtMs = System.currentTimeMillis();
+        CompletableFuture<T> loaded = loader.get();
+        loaded.thenAccept(value -> store(key, value, startedAtMs));
+        return loaded;
+    }
+
+    /**
+     * Variante síncrona de {@link #getAsync(Operation, Object, Supplier)}.
+     *
+     * @param operation operación cacheada.
+     * @param query consulta canónica con igualdad por contenido.
+     * @param loader carga el resultado cuando no hay una entrada vigente.
+     * @param <T> tipo del resultado; se comparte entre llamadores y no debe modificarse.
+     * @return resultado.
+     */
+    public <T> T get(Operation operation, Object query, Supplier<T> loader) {
+        if (!isEnabled(operation)) {
+            return loader.get();
+        }
+        Key key = new Key(operation, query, generation.get());
+        Entry cached = lookup(key);
+        if (cached != null) {
+            @SuppressWarnings("unchecked")
+            T value = (T) cached.value();
+            return value;
+        }
+        long startedAtMs = System.currentTimeMillis();
+        T value = loader.get();
+        store(key, value, startedAtMs);
+        return value;
+    }
+
+    /**
+     * Avanza la generación del catálogo tras una escritura local; ninguna entrada anterior
+     * vuelve a servirse.
+     */
+    public void advanceGeneration() {
+        lastWriteMs = System.currentTimeMillis();
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Busca una entrada vigente y contabiliza el acierto o fallo.
+     *
+     * @param key clave con la generación actual.
+     * @return entrada vigente o `null`.
+     */
+    private Entry lookup(Key key) {
+        Entry cached = entries.getIfPresent(key);
+        (cached != null ? hits : misses).get(key.operation()).incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Guarda un resultado si sigue correspondiendo a la generación vigente y la carga empezó
+     * cuando la última escritura local ya era visible en búsquedas.
+     *
+     * @param key clave con la generación en que empezó la carga.
+     * @param value resultado cargado.
+     * @param startedAtMs instante en que empezó la carga.
+     */
+    private void store(Key key, Object value, long startedAtMs) {
+        if (value == null || key.generation() != generation.get()
+                || startedAtMs < lastWriteMs + writeVisibilityDelayMs()) {
+            return;
+        }
+        entries.put(key, new Entry(value, startedAtMs + ttl(key.operation()).toMillis()));
+    }
+
+    /**
+     * Tiempo que tarda una escritura local en ser visible para las búsquedas: `0` cuando la
+     * escritura espera el refresh.
+     *
+     * @return demora en milisegundos.
+     */
+    private long writeVisibilityDelayMs() {
+        return properties.getWriteConsistency() == OpenSearchProperties.WriteConsistency.ASYNC
+                ? properties.getAsyncWriteVisibilityDelay().toMillis()
+                : 0L;
+    }
+
+    /**
+     * TTL configurado para una operación.
+     *
+     * @param operation operación cacheada.
+     * @return tiempo de vida de sus entradas.
+     */
+    private Duration ttl(Operation operation) {
+        return switch (operation) {
+            case LIST -> properties.getListResultCacheTtl();
+            case SEARCH -> properties.getSearchResultCacheTtl();
+            case SUGGEST -> properties.getSuggestResultCacheTtl();
+        };
+    }
+
+    /**
+     * Indica si la operación se cachea.
+     *
+     * @param operation operación cacheada.
+     * @return `true` si hay capacidad y TTL positivos.
+     */
+    private boolean isEnabled(Operation operation) {
+        Duration ttl = ttl(operation);
+        return properties.getResultCacheMaxEntries() > 0 && ttl != null && ttl.isPositive();
+    }
+
+    /**
+     * Fracción de aciertos de una operación.
+     *
+     * @param operation operación cacheada.
+     * @return aciertos sobre consultas, `0` si no hubo consultas.
+     */
+    private double hitRatio(Operation operation) {
+        long hit = hits.get(operation).get();
+        long total = hit + misses.get(operation).get();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    /**
+     * Crea un contador por operación.
+     *
+     * @return contadores en cero.
+     */
+    private static Map<Operation, AtomicLong> counters() {
+        Map<Operation, AtomicLong> counters = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            counters.put(operation, new AtomicLong());
+        }
+        return counters;
+    }
+
+    private record Key(Operation operation, Object query, long generation) {
+    }
+
+    private record Entry(Object value, long expiresAtMs) {
+    }
+
+    /**
+     * Vence cada entrada en el instante calculado al guardarla, con el TTL de su operación; las
+     * lecturas no extienden la vida de la entrada.
+     */
+    private static final class EntryExpiry implements Expiry<Key, Entry> {
+        @Override
+        public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+            return remainingNanos(entry);
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+            return remainingNanos(entry);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        /**
+         * Tiempo restante hasta el vencimiento de una entrada.
+         *
+         * @param entry entrada guardada.
+         * @return nanosegundos de vida, `0` si ya venció.
+         */
+        private static long remainingNanos(Entry entry) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, entry.expiresAtMs() - System.currentTimeMillis()));
+        }
+    }
+}
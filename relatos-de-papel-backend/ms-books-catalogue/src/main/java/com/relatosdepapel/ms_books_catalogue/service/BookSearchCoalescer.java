@@ -0,0 +1,95 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Agrupa búsquedas idénticas en vuelo (single-flight).
+ * Mientras una consulta con la misma clave canónica está en curso, los demás llamadores se
+ * encadenan a su mismo futuro y reciben la misma respuesta parseada en lugar de enviar otra
+ * request a OpenSearch; ningún hilo queda bloqueado esperando. La clave debe distinguir también
+ * la forma en que se parsea la respuesta.
+ * Expone `catalogue.search.requests` (`outcome=executed|coalesced`) y
+ * `catalogue.search.coalesce.ratio`.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookSearchCoalescer {
+    private final MeterRegistry meterRegistry;
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Registra las métricas del coalescedor.
+     */
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("catalogue.search.requests", executed, AtomicLong::get)
+                .tag("outcome", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("catalogue.search.requests", coalesced, AtomicLong::get)
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("catalogue.search.coalesce.ratio", this, BookSearchCoalescer::coalesceRatio)
+                .description("Fracción de búsquedas resueltas con una request ya en vuelo")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Inicia la búsqueda o se une a una idéntica que ya está en vuelo.
+     *
+     * @param key clave canónica (endpoint y cuerpo de la consulta) con igualdad por contenido.
+     * @param call inicia la búsqueda asíncrona si no hay una en vuelo.
+     * @param <T> tipo de la respuesta parseada.
+     * @return futuro de la respuesta parseada, compartida entre los llamadores agrupados.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(Object key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return (CompletableFuture<T>) running.copy();
+        }
+
+        executed.incrementAndGet();
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException ex) {
+            started = CompletableFuture.failedFuture(ex);
+        }
+        started.whenComplete((result, ex) -> {
+            inFlight.remove(key, own);
+            if (ex != null) {
+                own.completeExceptionally(ex);
+            } else {
+                own.complete(result);
+            }
+        });
+        return (CompletableFuture<T>) own.copy();
+    }
+
+    /**
+     * Fracción acumulada de búsquedas agrupadas sobre el total.
+     *
+     * @return ratio entre `0` y `1`.
+     */
+    private double coalesceRatio() {
+        long shared = coalesced.get();
+        long total = shared + executed.get();
+        return total == 0 ? 0.0 : (double) shared / total;
+    }
+}
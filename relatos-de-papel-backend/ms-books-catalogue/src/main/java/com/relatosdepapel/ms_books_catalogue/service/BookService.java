@@ -1,15 +1,22 @@
 package com.relatosdepapel.ms_books_catalogue.service;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookFacetsResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookImportResultDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSearchCriteria;
 import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.VersionedBookDTO;
 
 /**
  * Contrato de negocio del catálogo de libros.
@@ -17,11 +24,22 @@ import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
  */
 public interface BookService {
     /**
-     * Obtiene el catálogo visible para el frontend.
+     * Obtiene el catálogo visible para el frontend sin bloquear el hilo llamador.
      *
-     * @return libros visibles.
+     * @param fields proyección de campos.
+     * @return futuro con los libros visibles.
      */
-    List<BookResponseDTO> getAll();
+    CompletableFuture<List<BookResponseDTO>> getAllAsync(BookFields fields);
+
+    /**
+     * Obtiene una página del catálogo visible paginada por cursor.
+     *
+     * @param size tamaño de página solicitado.
+     * @param cursor cursor de la página anterior o `null` para la primera.
+     * @param fields proyección de campos.
+     * @return página de libros visibles.
+     */
+    BookPageResponseDTO getAllPage(Integer size, String cursor, BookFields fields);
 
     /**
      * Obtiene un libro por id.
@@ -31,6 +49,24 @@ public interface BookService {
      */
     BookResponseDTO getById(Long id);
 
+    /**
+     * Obtiene un libro por id junto con su versión sin bloquear el hilo llamador.
+     *
+     * @param id identificador de libro.
+     * @param fields proyección de campos.
+     * @return futuro con el libro versionado o `null` si no existe.
+     */
+    CompletableFuture<VersionedBookDTO> getVersionedByIdAsync(Long id, BookFields fields);
+
+    /**
+     * Obtiene varios libros por id con una única lectura sin bloquear el hilo llamador.
+     *
+     * @param ids identificadores de libro, en el orden en que se responden.
+     * @param fields proyección de campos.
+     * @return futuro con un libro por id, o `null` en los que no existen.
+     */
+    CompletableFuture<List<BookResponseDTO>> getByIdsAsync(List<Long> ids, BookFields fields);
+
     /**
      * Crea un libro nuevo validando unicidad de ISBN.
      *
@@ -53,20 +89,23 @@ public interface BookService {
      *
      * @param id identificador de libro.
      * @param dto payload parcial.
-     * @return libro actualizado o `null` si no existe.
+     * @param expectedVersion versión esperada (`If-Match`) o `null` para no condicionar.
+     * @return libro actualizado con su nueva versión o `null` si no existe.
      */
-    BookResponseDTO patch(Long id, BookPatchDTO dto);
+    VersionedBookDTO patch(Long id, BookPatchDTO dto, String expectedVersion);
 
     /**
      * Elimina un libro por id.
      *
      * @param id identificador de libro.
      * @return `true` si se elimina, `false` si no existe.
+     * @throws java.util.ConcurrentModificationException cuando escrituras concurrentes lo
+     *         modificaron en todos los reintentos.
      */
     boolean delete(Long id);
 
     /**
-     * Ejecuta búsqueda compuesta por texto y filtros de negocio.
+     * Ejecuta búsqueda compuesta por texto y filtros de negocio sin bloquear el hilo llamador.
      *
      * @param title texto por título.
      * @param author texto por autor.
@@ -80,11 +119,45 @@ public interface BookService {
      * @param publicationDateFrom fecha publicación inicial.
      * @param publicationDateTo fecha publicación final.
      * @param minStock stock mínimo.
-     * @return libros que cumplen criterios.
+     * @param sort orden de resultados.
+     * @param fields proyección de campos.
+     * @return futuro con los libros que cumplen criterios.
+     */
+    CompletableFuture<List<BookResponseDTO>> searchAsync(String title, String author, String category, String isbn,
+            Integer ratingMin, Integer ratingMax, Boolean visible, BigDecimal minPrice, BigDecimal maxPrice,
+            LocalDate publicationDateFrom, LocalDate publicationDateTo, Integer minStock, BookSort sort,
+            BookFields fields);
+
+    /**
+     * Ejecuta búsqueda compuesta paginada por cursor.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param size tamaño de página solicitado.
+     * @param cursor cursor de la página anterior o `null` para la primera.
+     * @param sort orden de resultados; debe mantenerse entre páginas.
+     * @param fields proyección de campos.
+     * @return página de resultados.
+     */
+    BookPageResponseDTO searchPage(BookSearchCriteria criteria, Integer size, String cursor, BookSort sort,
+            BookFields fields);
+
+    /**
+     * Recorre en streaming todos los libros que cumplen los criterios.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param sink consumidor invocado por cada libro, de forma serializada.
+     * @return cantidad de libros exportados.
      */
-    List<BookResponseDTO> search(String title, String author, String category, String isbn, Integer ratingMin,
-            Integer ratingMax, Boolean visible, BigDecimal minPrice, BigDecimal maxPrice, LocalDate publicationDateFrom,
-            LocalDate publicationDateTo, Integer minStock);
+    long export(BookSearchCriteria criteria, Consumer<BookResponseDTO> sink);
+
+    /**
+     * Importa libros de forma masiva desde un archivo NDJSON o CSV.
+     *
+     * @param input contenido del archivo.
+     * @param format formato del contenido.
+     * @return resumen de la importación con errores por registro.
+     */
+    BookImportResultDTO importBooks(InputStream input, BookBulkImporter.Format format);
 
     /**
      * Retorna sugerencias de autocompletado para el buscador.
@@ -114,6 +187,14 @@ public interface BookService {
      */
     AvailabilityResponseDTO checkAvailability(Long id);
 
+    /**
+     * Consulta la disponibilidad de varios libros con una única lectura, p. ej. un carrito.
+     *
+     * @param ids identificadores de libro, en el orden en que se responden.
+     * @return futuro con la disponibilidad de cada id, o `null` en los que no existen.
+     */
+    CompletableFuture<List<AvailabilityResponseDTO>> checkAvailabilityAsync(List<Long> ids);
+
     /**
      * Ajusta el stock en base a una cantidad relativa (positiva o negativa).
      *
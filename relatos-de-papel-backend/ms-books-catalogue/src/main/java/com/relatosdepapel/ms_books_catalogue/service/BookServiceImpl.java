@@ -1,17 +1,25 @@
 package com.relatosdepapel.ms_books_catalogue.service;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.springframework.stereotype.Service;
 
 import com.relatosdepapel.ms_books_catalogue.dto.AvailabilityResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookFacetsResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookImportResultDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageResponseDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSearchCriteria;
 import com.relatosdepapel.ms_books_catalogue.dto.StockUpdateDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.VersionedBookDTO;
 
 import lombok.RequiredArgsConstructor;
 
@@ -21,15 +29,27 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100;
 
     private final OpenSearchBookStore bookStore;
+    private final BookBulkImporter bulkImporter;
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<BookResponseDTO> getAll() {
-        return bookStore.findAllVisible();
+    public CompletableFuture<List<BookResponseDTO>> getAllAsync(BookFields fields) {
+        return bookStore.findAllVisibleAsync(fields);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BookPageResponseDTO getAllPage(Integer size, String cursor, BookFields fields) {
+        return bookStore.findAllVisiblePage(resolvePageSize(size), cursor, fields);
     }
 
     /**
@@ -40,6 +60,25 @@ public class BookServiceImpl implements BookService {
         return bookStore.findById(id);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<VersionedBookDTO> getVersionedByIdAsync(Long id, BookFields fields) {
+        return bookStore.findVersionedByIdAsync(id, fields);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException cuando no hay ids o se piden más de {@value #MAX_BATCH_SIZE}.
+     */
+    @Override
+    public CompletableFuture<List<BookResponseDTO>> getByIdsAsync(List<Long> ids, BookFields fields) {
+        validateBatch(ids);
+        return bookStore.findAllByIdAsync(ids, fields);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -47,9 +86,6 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     public BookResponseDTO create(BookRequestDTO dto) {
-        if (bookStore.existsByIsbn(dto.getIsbn())) {
-            throw new IllegalArgumentException("El ISBN ya existe: " + dto.getIsbn());
-        }
         return bookStore.create(dto);
     }
 
@@ -65,38 +101,8 @@ public class BookServiceImpl implements BookService {
      * {@inheritDoc}
      */
     @Override
-    public BookResponseDTO patch(Long id, BookPatchDTO dto) {
-        BookResponseDTO current = bookStore.findById(id);
-        if (current == null) {
-            return null;
-        }
-
-        if (dto.getTitle() != null) {
-            current.setTitle(dto.getTitle());
-        }
-        if (dto.getAuthor() != null) {
-            current.setAuthor(dto.getAuthor());
-        }
-        if (dto.getPublicationDate() != null) {
-            current.setPublicationDate(dto.getPublicationDate());
-        }
-        if (dto.getCategory() != null) {
-            current.setCategory(dto.getCategory());
-        }
-        if (dto.getRating() != null) {
-            current.setRating(dto.getRating());
-        }
-        if (dto.getVisible() != null) {
-            current.setVisible(dto.getVisible());
-        }
-        if (dto.getStock() != null) {
-            current.setStock(dto.getStock());
-        }
-        if (dto.getPrice() != null) {
-            current.setPrice(dto.getPrice());
-        }
-
-        return bookStore.save(current);
+    public VersionedBookDTO patch(Long id, BookPatchDTO dto, String expectedVersion) {
+        return bookStore.patch(id, dto, expectedVersion);
     }
 
     /**
@@ -111,11 +117,37 @@ public class BookServiceImpl implements BookService {
      * {@inheritDoc}
      */
     @Override
-    public List<BookResponseDTO> search(String title, String author, String category, String isbn, Integer ratingMin,
-            Integer ratingMax, Boolean visible, BigDecimal minPrice, BigDecimal maxPrice, LocalDate publicationDateFrom,
-            LocalDate publicationDateTo, Integer minStock) {
-        return bookStore.search(title, author, category, isbn, ratingMin, ratingMax, visible, minPrice, maxPrice,
-                publicationDateFrom, publicationDateTo, minStock);
+    public CompletableFuture<List<BookResponseDTO>> searchAsync(String title, String author, String category,
+            String isbn, Integer ratingMin, Integer ratingMax, Boolean visible, BigDecimal minPrice, BigDecimal maxPrice,
+            LocalDate publicationDateFrom, LocalDate publicationDateTo, Integer minStock, BookSort sort,
+            BookFields fields) {
+        return bookStore.searchAsync(new BookSearchCriteria(title, author, category, isbn, ratingMin, ratingMax, visible,
+                minPrice, maxPrice, publicationDateFrom, publicationDateTo, minStock), sort, fields);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BookPageResponseDTO searchPage(BookSearchCriteria criteria, Integer size, String cursor, BookSort sort,
+            BookFields fields) {
+        return bookStore.searchPage(criteria, resolvePageSize(size), cursor, sort, fields);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long export(BookSearchCriteria criteria, Consumer<BookResponseDTO> sink) {
+        return bookStore.export(criteria, sink);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BookImportResultDTO importBooks(InputStream input, BookBulkImporter.Format format) {
+        return bulkImporter.importBooks(input, format);
     }
 
     /**
@@ -141,7 +173,28 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     public AvailabilityResponseDTO checkAvailability(Long id) {
-        BookResponseDTO book = bookStore.findById(id);
+        return toAvailability(bookStore.findById(id, BookFields.AVAILABILITY));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException cuando no hay ids o se piden más de {@value #MAX_BATCH_SIZE}.
+     */
+    @Override
+    public CompletableFuture<List<AvailabilityResponseDTO>> checkAvailabilityAsync(List<Long> ids) {
+        validateBatch(ids);
+        return bookStore.findAllByIdAsync(ids, BookFields.AVAILABILITY)
+                .thenApply(books -> books.stream().map(this::toAvailability).toList());
+    }
+
+    /**
+     * Calcula la disponibilidad de un libro.
+     *
+     * @param book libro con la proyección de disponibilidad o `null`.
+     * @return disponibilidad o `null` si el libro no existe.
+     */
+    private AvailabilityResponseDTO toAvailability(BookResponseDTO book) {
         if (book == null) {
             return null;
         }
@@ -157,6 +210,24 @@ public class BookServiceImpl implements BookService {
                 book.getPrice());
     }
 
+    /**
+     * Valida el tamaño de una consulta por lote.
+     *
+     * @param ids ids pedidos.
+     * @throws IllegalArgumentException cuando no hay ids o se piden más de {@value #MAX_BATCH_SIZE}.
+     */
+    private void validateBatch(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un id");
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("No se pueden consultar más de " + MAX_BATCH_SIZE + " ids por lote");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Los ids no pueden ser nulos");
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -164,18 +235,16 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     public BookResponseDTO updateStock(Long id, StockUpdateDTO dto) {
-        BookResponseDTO book = bookStore.findById(id);
-        if (book == null) {
-            return null;
-        }
-
-        int currentStock = book.getStock() == null ? 0 : book.getStock();
-        int newStock = currentStock + dto.getQuantity();
-        if (newStock < 0) {
-            throw new IllegalArgumentException("El stock resultante no puede ser negativo");
-        }
+        return bookStore.adjustStock(id, dto.getQuantity());
+    }
 
-        book.setStock(newStock);
-        return bookStore.save(book);
+    /**
+     * Limita el tamaño de página entre 1 y {@value #MAX_PAGE_SIZE} aplicando un valor por defecto.
+     *
+     * @param size tamaño solicitado por el cliente.
+     * @return tamaño de página efectivo.
+     */
+    private int resolvePageSize(Integer size) {
+        return (size == null || size <= 0) ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
     }
 }
@@ -0,0 +1,675 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSearchCriteria;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Snapshot local del catálogo completo en un archivo binario mapeado en memoria.
+ * El archivo termina con un índice de `(id, offset)` ordenado por id que se consulta con búsqueda
+ * binaria sobre el propio mapeo, por lo que la carga no depende de OpenSearch ni recorre los
+ * registros y su costo no crece con el catálogo; los libros se decodifican al leerlos. Offsets y
+ * mapeo usan posiciones `long`, de modo que el archivo puede superar los 2 GB.
+ * Las escrituras locales se acumulan en una capa en memoria sobre el archivo hasta que una
+ * reconstrucción completa (`opensearch.snapshot-refresh-interval`) iniciada después de que fueran
+ * visibles en búsquedas las incluye, o hasta el apagado de la instancia.
+ * Con `opensearch.snapshot-fallback-enabled` el store lo usa para responder lecturas por id,
+ * disponibilidad y búsquedas sin texto mientras el cluster no está disponible.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookSnapshot {
+    private static final int MAGIC = 0x52445053;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    /**
+     * Cierre del archivo: posición del índice, cantidad de entradas y `MAGIC`.
+     */
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES * 2;
+    private static final int INDEX_ENTRY_BYTES = Long.BYTES * 2;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final int NULL_LENGTH = -1;
+    private static final int HAS_VISIBLE = 1;
+    private static final int VISIBLE = 1 << 1;
+    private static final int HAS_STOCK = 1 << 2;
+    private static final int HAS_RATING = 1 << 3;
+    private static final int HAS_PRICE = 1 << 4;
+    private static final int HAS_PUBLICATION_DATE = 1 << 5;
+
+    private final OpenSearchProperties properties;
+    private final Map<Long, LocalWrite> localWrites = new ConcurrentHashMap<>();
+    private volatile Image image;
+
+    /**
+     * Mapea el snapshot existente, si lo hay. Un archivo ilegible se ignora y se reemplaza en la
+     * siguiente reconstrucción.
+     */
+    @PostConstruct
+    void load() {
+        if (!isEnabled() || !Files.isRegularFile(path())) {
+            return;
+        }
+        try {
+            image = map(path());
+        } catch (IOException | RuntimeException ex) {
+            image = null;
+        }
+    }
+
+    /**
+     * Persiste las escrituras locales pendientes para que el próximo arranque las incluya.
+     */
+    @PreDestroy
+    void persist() {
+        if (!isEnabled() || localWrites.isEmpty()) {
+            return;
+        }
+        try {
+            rebuild(this::forEach);
+        } catch (IllegalStateException ex) {
+            // El snapshot anterior sigue siendo válido; la próxima reconstrucción lo actualiza.
+        }
+    }
+
+    /**
+     * Indica si el snapshot está configurado.
+     *
+     * @return `true` cuando `opensearch.snapshot-path` tiene valor.
+     */
+    public boolean isEnabled() {
+        return properties.getSnapshotPath() != null && !properties.getSnapshotPath().isBlank();
+    }
+
+    /**
+     * Indica si hay un snapshot cargado.
+     *
+     * @return `true` si se mapeó un archivo existente o ya se reconstruyó uno.
+     */
+    public boolean isLoaded() {
+        return image != null;
+    }
+
+    /**
+     * Indica si el snapshot puede responder lecturas cuando el cluster no está disponible.
+     *
+     * @return `true` si el modo degradado está habilitado y hay un snapshot cargado.
+     */
+    public boolean isFallbackAvailable() {
+        return properties.isSnapshotFallbackEnabled() && isLoaded();
+    }
+
+    /**
+     * Reconstruye el snapshot completo en un archivo temporal, lo reemplaza de forma atómica y lo
+     * publica. Las escrituras locales registradas durante la reconstrucción se conservan porque
+     * el recorrido pudo no verlas; con `write-consistency=ASYNC` también las que todavía no eran
+     * visibles en búsquedas al empezar (`opensearch.async-write-visibility-delay`).
+     *
+     * @param loader recorre todos los libros y los entrega al consumidor recibido.
+     * @throws IllegalStateException cuando el archivo no puede escribirse.
+     */
+    public synchronized void rebuild(Consumer<Consumer<BookResponseDTO>> loader) {
+        long startedAt = System.nanoTime();
+        long visibleBefore = startedAt - writeVisibilityDelayNanos();
+        Path target = path();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            PositionOutputStream position = new PositionOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)));
+            try (DataOutputStream out = new DataOutputStream(position)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                RecordIndex index = new RecordIndex();
+                loader.accept(book -> {
+                    index.add(book.getId(), position.position());
+                    writeRecord(out, book);
+                });
+                index.writeTo(out, position.position());
+            } catch (WriteFailure ex) {
+                throw ex.getCause();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            image = map(target);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Error escribiendo snapshot del catálogo: " + ex.getMessage(), ex);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Un temporal huérfano se sobrescribe en la siguiente reconstrucción.
+            }
+        }
+        localWrites.values().removeIf(write -> write.writtenAtNanos() < visibleBefore);
+    }
+
+    /**
+     * Tiempo que tarda una escritura local en ser visible para el recorrido de reconstrucción.
+     *
+     * @return demora en nanosegundos; `0` cuando las escrituras esperan el refresh.
+     */
+    private long writeVisibilityDelayNanos() {
+        return properties.getWriteConsistency() == OpenSearchProperties.WriteConsistency.ASYNC
+                ? properties.getAsyncWriteVisibilityDelay().toNanos()
+                : 0L;
+    }
+
+    /**
+     * Refleja una escritura local.
+     *
+     * @param id identificador de libro.
+     * @param book versión escrita o `null` si fue una baja.
+     */
+    public void apply(Long id, BookResponseDTO book) {
+        if (isEnabled()) {
+            localWrites.put(id, new LocalWrite(book, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Busca un libro en el snapshot.
+     *
+     * @param id identificador de libro.
+     * @return libro o `null` si no está en el snapshot.
+     */
+    public BookResponseDTO find(Long id) {
+        LocalWrite local = localWrites.get(id);
+        if (local != null) {
+            return local.book();
+        }
+        Image current = image;
+        if (current == null) {
+            return null;
+        }
+        long offset = current.offsetOf(id);
+        return offset < 0 ? null : current.read(offset);
+    }
+
+    /**
+     * Resuelve una búsqueda estructurada (sin título ni autor) sobre el snapshot.
+     * La categoría se compara sin distinguir mayúsculas.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param order orden de los resultados.
+     * @param limit máximo de resultados.
+     * @return libros que cumplen los filtros.
+     */
+    public List<BookResponseDTO> search(BookSearchCriteria criteria, Comparator<BookResponseDTO> order, int limit) {
+        Predicate<BookResponseDTO> filter = matcher(criteria);
+        List<BookResponseDTO> matches = new ArrayList<>();
+        forEach(book -> {
+            if (filter.test(book)) {
+                matches.add(book);
+            }
+        });
+        matches.sort(order);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Recorre todos los libros del snapshot con las escrituras locales aplicadas.
+     *
+     * @param sink consumidor de cada libro.
+     */
+    public void forEach(Consumer<BookResponseDTO> sink) {
+        Image current = image;
+        if (current != null) {
+            for (int i = 0; i < current.count(); i++) {
+                if (!localWrites.containsKey(current.idAt(i))) {
+                    sink.accept(current.read(current.offsetAt(i)));
+                }
+            }
+        }
+        localWrites.values().stream()
+                .map(LocalWrite::book)
+                .filter(Objects::nonNull)
+                .forEach(sink);
+    }
+
+    /**
+     * Ruta configurada del snapshot.
+     *
+     * @return ruta del archivo.
+     */
+    private Path path() {
+        return Path.of(properties.getSnapshotPath());
+    }
+
+    /**
+     * Construye el filtro equivalente a los filtros estructurados de la búsqueda en OpenSearch.
+     *
+     * @param criteria filtros de búsqueda.
+     * @return predicado sobre libros.
+     */
+    private Predicate<BookResponseDTO> matcher(BookSearchCriteria criteria) {
+        return book -> (isBlank(criteria.getCategory())
+                        || criteria.getCategory().equalsIgnoreCase(book.getCategory()))
+                && (isBlank(criteria.getIsbn()) || criteria.getIsbn().equals(book.getIsbn()))
+                && (criteria.getVisible() == null || criteria.getVisible().equals(book.getVisible()))
+                && within(book.getRating(), criteria.getRatingMin(), criteria.getRatingMax())
+                && within(book.getPrice(), criteria.getMinPrice(), criteria.getMaxPrice())
+                && within(book.getPublicationDate(), criteria.getPublicationDateFrom(),
+                        criteria.getPublicationDateTo())
+                && within(book.getStock(), criteria.getMinStock(), null);
+    }
+
+    /**
+     * Evalúa un rango inclusivo; un valor ausente no cumple un rango con límites.
+     *
+     * @param value valor del libro.
+     * @param min límite inferior o `null`.
+     * @param max límite superior o `null`.
+     * @param <T> tipo comparable.
+     * @return `true` si el valor está en el rango.
+     */
+    private static <T extends Comparable<? super T>> boolean within(T value, T min, T max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        return value != null
+                && (min == null || value.compareTo(min) >= 0)
+                && (max == null || value.compareTo(max) <= 0);
+    }
+
+    /**
+     * Indica si un texto está vacío.
+     *
+     * @param value texto.
+     * @return `true` si es `null` o solo espacios.
+     */
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Escribe un registro: id, flags de presencia, campos numéricos y textos con longitud.
+     *
+     * @param out salida del snapshot.
+     * @param book libro a escribir.
+     */
+    private static void writeRecord(DataOutputStream out, BookResponseDTO book) {
+        try {
+            int flags = 0;
+            if (book.getVisible() != null) {
+                flags |= HAS_VISIBLE | (book.getVisible() ? VISIBLE : 0);
+            }
+            flags |= book.getStock() != null ? HAS_STOCK : 0;
+            flags |= book.getRating() != null ? HAS_RATING : 0;
+            flags |= book.getPrice() != null ? HAS_PRICE : 0;
+            flags |= book.getPublicationDate() != null ? HAS_PUBLICATION_DATE : 0;
+            out.writeLong(book.getId());
+            out.writeByte(flags);
+            out.writeInt(book.getStock() != null ? book.getStock() : 0);
+            out.writeInt(book.getRating() != null ? book.getRating() : 0);
+            out.writeLong(book.getPublicationDate() != null ? book.getPublicationDate().toEpochDay() : 0L);
+            if (book.getPrice() != null) {
+                byte[] unscaled = book.getPrice().unscaledValue().toByteArray();
+                out.writeInt(book.getPrice().scale());
+                out.writeInt(unscaled.length);
+                out.write(unscaled);
+            }
+            writeText(out, book.getTitle());
+            writeText(out, book.getAuthor());
+            writeText(out, book.getCategory());
+            writeText(out, book.getIsbn());
+        } catch (IOException ex) {
+            throw new WriteFailure(ex);
+        }
+    }
+
+    /**
+     * Escribe un texto UTF-8 precedido por su longitud, o `-1` si es `null`.
+     *
+     * @param out salida del snapshot.
+     * @param value texto.
+     * @throws IOException cuando falla la escritura.
+     */
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Mapea un snapshot y valida su cierre; no recorre los registros.
+     *
+     * @param file archivo del snapshot.
+     * @return imagen mapeada.
+     * @throws IOException cuando el archivo no puede leerse o no tiene el formato esperado.
+     */
+    private static Image map(Path file) throws IOException {
+        MemorySegment segment;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // El mapeo se libera cuando la imagen deja de estar referenciada, como un MappedByteBuffer.
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+        }
+        long limit = segment.byteSize();
+        if (limit < HEADER_BYTES + TRAILER_BYTES
+                || segment.get(INT, 0) != MAGIC
+                || segment.get(INT, Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException("Formato de snapshot desconocido: " + file);
+        }
+        long indexStart = segment.get(LONG, limit - TRAILER_BYTES);
+        int count = segment.get(INT, limit - TRAILER_BYTES + Long.BYTES);
+        if (segment.get(INT, limit - Integer.BYTES) != MAGIC
+                || count < 0
+                || indexStart < HEADER_BYTES
+                || indexStart + (long) count * INDEX_ENTRY_BYTES != limit - TRAILER_BYTES) {
+            throw new IOException("Snapshot truncado: " + file);
+        }
+        return new Image(segment, indexStart, count);
+    }
+
+    /**
+     * Snapshot mapeado con su índice de registros ordenado por id.
+     *
+     * @param segment contenido del archivo.
+     * @param indexStart posición de la primera entrada del índice.
+     * @param count cantidad de libros.
+     */
+    private record Image(MemorySegment segment, long indexStart, int count) {
+        /**
+         * Busca el registro de un libro con búsqueda binaria sobre el índice.
+         *
+         * @param id identificador de libro.
+         * @return posición del registro o `-1` si no está.
+         */
+        private long offsetOf(long id) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long current = idAt(middle);
+                if (current < id) {
+                    low = middle + 1;
+                } else if (current > id) {
+                    high = middle - 1;
+                } else {
+                    return offsetAt(middle);
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Id de una entrada del índice.
+         *
+         * @param entry posición en el índice.
+         * @return id del libro.
+         */
+        private long idAt(int entry) {
+            return segment.get(LONG, indexStart + (long) entry * INDEX_ENTRY_BYTES);
+        }
+
+        /**
+         * Posición del registro de una entrada del índice.
+         *
+         * @param entry posición en el índice.
+         * @return offset del registro.
+         */
+        private long offsetAt(int entry) {
+            return segment.get(LONG, indexStart + (long) entry * INDEX_ENTRY_BYTES + Long.BYTES);
+        }
+
+        /**
+         * Decodifica el registro de un libro.
+         *
+         * @param offset posición del registro.
+         * @return libro decodificado.
+         */
+        private BookResponseDTO read(long offset) {
+            // Cada lectura usa su propio cursor; el segmento mapeado se comparte entre hilos sin modificarse.
+            Cursor cursor = new Cursor(segment, offset);
+            long id = cursor.readLong();
+            int flags = cursor.readByte();
+            int stock = cursor.readInt();
+            int rating = cursor.readInt();
+            long epochDay = cursor.readLong();
+            BigDecimal price = null;
+            if ((flags & HAS_PRICE) != 0) {
+                int scale = cursor.readInt();
+                byte[] unscaled = cursor.readBytes(cursor.readInt());
+                price = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            return new BookResponseDTO(
+                    id,
+                    cursor.readText(),
+                    cursor.readText(),
+                    (flags & HAS_PUBLICATION_DATE) != 0 ? LocalDate.ofEpochDay(epochDay) : null,
+                    cursor.readText(),
+                    cursor.readText(),
+                    (flags & HAS_RATING) != 0 ? rating : null,
+                    (flags & HAS_VISIBLE) != 0 ? (flags & VISIBLE) != 0 : null,
+                    (flags & HAS_STOCK) != 0 ? stock : null,
+                    price);
+        }
+    }
+
+    /**
+     * Lectura secuencial de un registro sobre el segmento mapeado, con posiciones `long`.
+     */
+    private static final class Cursor {
+        private final MemorySegment segment;
+        private long position;
+
+        /**
+         * Crea un cursor en una posición del segmento.
+         *
+         * @param segment contenido del archivo.
+         * @param position posición inicial.
+         */
+        private Cursor(MemorySegment segment, long position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+        /**
+         * Lee un byte.
+         *
+         * @return byte leído.
+         */
+        private byte readByte() {
+            return segment.get(ValueLayout.JAVA_BYTE, position++);
+        }
+
+        /**
+         * Lee un entero big-endian.
+         *
+         * @return entero leído.
+         */
+        private int readInt() {
+            int value = segment.get(INT, position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        /**
+         * Lee un long big-endian.
+         *
+         * @return long leído.
+         */
+        private long readLong() {
+            long value = segment.get(LONG, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        /**
+         * Copia bytes del segmento.
+         *
+         * @param length cantidad de bytes.
+         * @return bytes leídos.
+         */
+        private byte[] readBytes(int length) {
+            byte[] bytes = new byte[length];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        /**
+         * Lee un texto UTF-8 precedido por su longitud.
+         *
+         * @return texto o `null`.
+         */
+        private String readText() {
+            int length = readInt();
+            return length == NULL_LENGTH ? null : new String(readBytes(length), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Salida que cuenta los bytes escritos con un `long`; `DataOutputStream.size()` deja de crecer
+     * en `Integer.MAX_VALUE`.
+     */
+    private static final class PositionOutputStream extends FilterOutputStream {
+        private long position;
+
+        /**
+         * Envuelve una salida.
+         *
+         * @param out salida real.
+         */
+        private PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * Bytes escritos hasta ahora.
+         *
+         * @return posición actual en el archivo.
+         */
+        private long position() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+
+    /**
+     * Offsets de los registros escritos en una reconstrucción, volcados al final del archivo
+     * ordenados por id.
+     */
+    private static final class RecordIndex {
+        private long[] ids = new long[1024];
+        private long[] offsets = new long[1024];
+        private int size;
+
+        /**
+         * Registra la posición de un registro.
+         *
+         * @param id identificador de libro.
+         * @param offset posición del registro en el archivo.
+         */
+        private void add(long id, long offset) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            size++;
+        }
+
+        /**
+         * Escribe las entradas ordenadas por id y el cierre del archivo.
+         *
+         * @param out salida del snapshot, posicionada tras el último registro.
+         * @param indexStart posición de la salida, donde empieza el índice.
+         * @throws IOException cuando falla la escritura.
+         */
+        private void writeTo(DataOutputStream out, long indexStart) throws IOException {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> ids[i]));
+            for (int i : order) {
+                out.writeLong(ids[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.writeLong(indexStart);
+            out.writeInt(size);
+            out.writeInt(MAGIC);
+        }
+    }
+
+    /**
+     * Escritura local aún no incluida en el archivo.
+     *
+     * @param book versión escrita o `null` si fue una baja.
+     * @param writtenAtNanos instante de la escritura.
+     */
+    private record LocalWrite(BookResponseDTO book, long writtenAtNanos) {
+    }
+
+    /**
+     * Error de escritura propagado desde el consumidor del recorrido.
+     */
+    private static final class WriteFailure extends RuntimeException {
+        /**
+         * Envuelve el error original.
+         *
+         * @param cause error de escritura.
+         */
+        private WriteFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+/**
+ * Orden de resultados de búsqueda (parámetro `sort=`).
+ * Acepta `relevance` (por defecto) o un campo ordenable, ascendente o con prefijo `-` para
+ * descendente (p. ej. `sort=-rating`). Todo orden por campo desempata por `id` para que la
+ * paginación con `search_after` sea estable; los libros sin valor quedan al final.
+ */
+public final class BookSort {
+    /**
+     * Campos ordenables con su valor en {@link BookResponseDTO}.
+     */
+    private static final Map<String, Function<BookResponseDTO, Comparable<?>>> FIELDS = Map.of(
+            "price", BookResponseDTO::getPrice,
+            "rating", BookResponseDTO::getRating,
+            "publicationDate", BookResponseDTO::getPublicationDate,
+            "stock", BookResponseDTO::getStock);
+
+    /**
+     * Orden por relevancia cuando hay texto y por `id` en otro caso.
+     */
+    public static final BookSort RELEVANCE = new BookSort(null, false);
+
+    private final String field;
+    private final boolean descending;
+
+    private BookSort(String field, boolean descending) {
+        this.field = field;
+        this.descending = descending;
+    }
+
+    /**
+     * Interpreta el parámetro `sort`.
+     *
+     * @param sort valor recibido o `null`.
+     * @return orden; {@link #RELEVANCE} si no se informa.
+     * @throws IllegalArgumentException cuando el campo no es ordenable.
+     */
+    public static BookSort parse(String sort) {
+        if (sort == null || sort.isBlank() || "relevance".equals(sort.trim())) {
+            return RELEVANCE;
+        }
+        String value = sort.trim();
+        boolean descending = value.startsWith("-");
+        String name = descending ? value.substring(1) : value;
+        if (!FIELDS.containsKey(name)) {
+            throw new IllegalArgumentException("Orden inválido: " + sort
+                    + " (valores: relevance, price, rating, publicationDate, stock; prefijo - para descendente)");
+        }
+        return new BookSort(name, descending);
+    }
+
+    /**
+     * Indica si es el orden por relevancia.
+     *
+     * @return `true` para {@link #RELEVANCE}.
+     */
+    public boolean isRelevance() {
+        return field == null;
+    }
+
+    /**
+     * Escribe la cláusula `sort` de la consulta.
+     *
+     * @param generator generador posicionado dentro del objeto raíz.
+     * @param scored `true` si la consulta tiene texto que puntúa relevancia.
+     * @throws IOException cuando falla la escritura.
+     */
+    void writeTo(JsonGenerator generator, boolean scored) throws IOException {
+        generator.writeFieldName("sort");
+        if (isRelevance()) {
+            generator.writeRawValue(scored ? SearchBodyWriter.SORT_BY_SCORE_THEN_ID : SearchBodyWriter.SORT_BY_ID);
+            return;
+        }
+        generator.writeStartArray();
+        generator.writeStartObject();
+        generator.writeObjectFieldStart(field);
+        generator.writeStringField("order", descending ? "desc" : "asc");
+        generator.writeStringField("missing", "_last");
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeStartObject();
+        generator.writeStringField("id", "asc");
+        generator.writeEndObject();
+        generator.writeEndArray();
+    }
+
+    /**
+     * Cantidad de valores `sort` que devuelve cada hit, usada para validar cursores.
+     *
+     * @param scored `true` si la consulta tiene texto que puntúa relevancia.
+     * @return cantidad de cláusulas de orden.
+     */
+    int clauses(boolean scored) {
+        return isRelevance() && !scored ? 1 : 2;
+    }
+
+    /**
+     * Forma de parámetro del orden, usada también como parte de claves de cache.
+     *
+     * @return `relevance` o el campo con prefijo `-` si es descendente.
+     */
+    @Override
+    public String toString() {
+        return isRelevance() ? "relevance" : (descending ? "-" : "") + field;
+    }
+
+    /**
+     * Comparador equivalente para resultados resueltos fuera de OpenSearch; la relevancia no
+     * puede calcularse localmente y se reemplaza por `id`.
+     *
+     * @return comparador con valores ausentes al final y desempate por `id`.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Comparator<BookResponseDTO> comparator() {
+        Comparator<BookResponseDTO> byId = Comparator.comparing(BookResponseDTO::getId);
+        if (isRelevance()) {
+            return byId;
+        }
+        Function<BookResponseDTO, Comparable> value = (Function) FIELDS.get(field);
+        Comparator<Comparable> order = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        return Comparator.comparing(value, Comparator.nullsLast(order)).thenComparing(byId);
+    }
+}
@@ -0,0 +1,397 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Índice de sugerencias en memoria sobre los libros visibles.
+ * Cada reconstrucción genera un diccionario compacto e inmutable: los tokens de título y autor
+ * sin acentos en un arreglo ordenado, cada uno con un arreglo ordenado de ids, y los prefijos se
+ * resuelven con una búsqueda binaria sobre ese rango. Las escrituras locales posteriores van a un
+ * diccionario incremental pequeño que invalida las entradas base de los libros modificados; las
+ * que llegan durante una reconstrucción se reaplican sobre el índice nuevo antes de publicarlo.
+ * Los resultados se ordenan por popularidad (unidades vendidas y valoración): las postings que
+ * coinciden se recorren sin copiarlas y solo se conservan los mejores `size` títulos en un heap
+ * acotado, sin ordenar todos los candidatos. Las ventas se
+ * cuentan solo en esta instancia y se pierden al reiniciar, por lo que distintas instancias
+ * pueden ordenar de forma distinta libros con la misma valoración.
+ * Las escrituras se serializan; las consultas leen sin bloqueo.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookSuggestIndex {
+    private static final Comparator<Suggestion> BY_POPULARITY = Comparator
+            .comparingLong(Suggestion::sales).reversed()
+            .thenComparing(Comparator.comparingInt(Suggestion::rating).reversed())
+            .thenComparing(Suggestion::title);
+
+    private final OpenSearchProperties properties;
+    private volatile Dictionary dictionary;
+    private Map<Long, PendingWrite> pendingWrites;
+
+    /**
+     * Indica si el índice está habilitado y ya fue construido.
+     *
+     * @return `true` si suggest puede resolverse en memoria.
+     */
+    public boolean isReady() {
+        return properties.isLocalSuggestEnabled() && dictionary != null;
+    }
+
+    /**
+     * Reconstruye el índice completo y lo publica al terminar, sin bloquear las consultas.
+     * Las escrituras aplicadas mientras se recorre el catálogo se reaplican sobre el índice
+     * nuevo, y las ventas acumuladas se conservan.
+     *
+     * @param loader recorre los libros visibles y los entrega al consumidor recibido.
+     */
+    public void rebuild(Consumer<Consumer<BookResponseDTO>> loader) {
+        synchronized (this) {
+            pendingWrites = new HashMap<>();
+        }
+        Dictionary fresh;
+        try {
+            Dictionary.Builder builder = new Dictionary.Builder();
+            loader.accept(builder::add);
+            fresh = builder.build();
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                pendingWrites = null;
+            }
+            throw ex;
+        }
+        synchronized (this) {
+            pendingWrites.forEach((id, write) -> fresh.apply(id, write.book()));
+            pendingWrites = null;
+            Dictionary current = dictionary;
+            if (current != null) {
+                current.entries.forEach((id, entry) -> fresh.addSales(id, entry.sales().get()));
+            }
+            dictionary = fresh;
+        }
+    }
+
+    /**
+     * Refleja una escritura local: indexa el libro si es visible o lo quita en otro caso.
+     *
+     * @param id identificador de libro.
+     * @param book versión escrita o `null` si fue una baja.
+     */
+    public synchronized void apply(Long id, BookResponseDTO book) {
+        if (pendingWrites != null) {
+            pendingWrites.put(id, new PendingWrite(book));
+        }
+        Dictionary current = dictionary;
+        if (current != null) {
+            current.apply(id, book);
+        }
+    }
+
+    /**
+     * Suma unidades vendidas a la popularidad de un libro.
+     *
+     * @param id identificador de libro.
+     * @param units unidades vendidas.
+     */
+    public void recordSale(Long id, long units) {
+        Dictionary current = dictionary;
+        if (current != null) {
+            current.addSales(id, units);
+        }
+    }
+
+    /**
+     * Sugiere títulos cuyos tokens de título o autor coinciden con el texto: todos los términos
+     * completos salvo el último, que se compara como prefijo.
+     *
+     * @param text texto parcial del usuario.
+     * @param size máximo de sugerencias.
+     * @return títulos únicos ordenados por popularidad.
+     */
+    public List<String> suggest(String text, int size) {
+        Dictionary current = dictionary;
+        List<String> terms = tokenize(text);
+
+        if (current == null || terms.isEmpty() || size <= 0) {
+            return List.of();
+        }
+
+        List<String> required = terms.subList(0, terms.size() - 1);
+        TopSuggestions top = new TopSuggestions(size);
+        current.forEachWithPrefix(terms.get(terms.size() - 1), id -> {
+            for (String term : required) {
+                if (!current.hasToken(term, id)) {
+                    return;
+                }
+            }
+            Entry entry = current.entries.get(id);
+            if (entry != null) {
+                top.offer(entry);
+            }
+        });
+        return top.titles();
+    }
+
+    /**
+     * Separa texto normalizado en tokens alfanuméricos.
+     *
+     * @param text texto original.
+     * @return tokens sin acentos y en minúsculas.
+     */
+    private static List<String> tokenize(String text) {
+        String normalized = TextNormalizer.normalize(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Tokens de título y autor de un libro, sin repetir.
+     *
+     * @param title título.
+     * @param author autor.
+     * @return tokens indexables.
+     */
+    private static Set<String> tokensOf(String title, String author) {
+        Set<String> tokens = new HashSet<>(tokenize(title));
+        tokens.addAll(tokenize(author));
+        return tokens;
+    }
+
+    /**
+     * Diccionario de tokens y entradas de libros: una base inmutable ordenada más un
+     * diccionario incremental con los libros escritos después de construirla.
+     */
+    private static final class Dictionary {
+        private final String[] terms;
+        private final long[][] postings;
+        private final Map<Long, Entry> entries;
+        private final NavigableMap<String, Set<Long>> recentTokens = new ConcurrentSkipListMap<>();
+        private final Set<Long> overridden = ConcurrentHashMap.newKeySet();
+
+        private Dictionary(String[] terms, long[][] postings, Map<Long, Entry> entries) {
+            this.terms = terms;
+            this.postings = postings;
+            this.entries = entries;
+        }
+
+        synchronized void apply(Long id, BookResponseDTO book) {
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                tokensOf(previous.title(), previous.author()).forEach(token -> unlink(token, id));
+            }
+            // Las postings base del libro dejan de valer; su versión vigente está en recentTokens.
+            overridden.add(id);
+            if (book == null || !Boolean.TRUE.equals(book.getVisible()) || book.getTitle() == null) {
+                return;
+            }
+            for (String token : tokensOf(book.getTitle(), book.getAuthor())) {
+                recentTokens.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            AtomicLong sales = previous == null ? new AtomicLong() : previous.sales();
+            entries.put(id, Entry.of(book, sales));
+        }
+
+        void addSales(Long id, long units) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                entry.sales().addAndGet(units);
+            }
+        }
+
+        /**
+         * Entrega los ids de los libros con algún token que empieza con el prefijo, recorriendo
+         * las postings sin copiarlas. Un libro con varios tokens coincidentes se entrega una vez
+         * por token.
+         */
+        void forEachWithPrefix(String prefix, LongConsumer sink) {
+            for (int i = lowerBound(prefix); i < terms.length && terms[i].startsWith(prefix); i++) {
+                for (long id : postings[i]) {
+                    if (!overridden.contains(id)) {
+                        sink.accept(id);
+                    }
+                }
+            }
+            for (Set<Long> ids : recentTokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (Long id : ids) {
+                    sink.accept(id);
+                }
+            }
+        }
+
+        /**
+         * Indica si el libro tiene el token completo, con una búsqueda binaria en sus postings.
+         */
+        boolean hasToken(String token, long id) {
+            int index = Arrays.binarySearch(terms, token);
+            if (index >= 0 && Arrays.binarySearch(postings[index], id) >= 0 && !overridden.contains(id)) {
+                return true;
+            }
+            Set<Long> recent = recentTokens.get(token);
+            return recent != null && recent.contains(id);
+        }
+
+        private int lowerBound(String prefix) {
+            int index = Arrays.binarySearch(terms, prefix);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private void unlink(String token, Long id) {
+            Set<Long> ids = recentTokens.get(token);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    recentTokens.remove(token);
+                }
+            }
+        }
+
+        /**
+         * Acumula libros y genera los arreglos ordenados de la base.
+         */
+        private static final class Builder {
+            private final Map<String, List<Long>> tokens = new HashMap<>();
+            private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+            void add(BookResponseDTO book) {
+                if (book.getTitle() == null || entries.containsKey(book.getId())) {
+                    return;
+                }
+                for (String token : tokensOf(book.getTitle(), book.getAuthor())) {
+                    tokens.computeIfAbsent(token, key -> new ArrayList<>()).add(book.getId());
+                }
+                entries.put(book.getId(), Entry.of(book, new AtomicLong()));
+            }
+
+            Dictionary build() {
+                String[] terms = tokens.keySet().toArray(String[]::new);
+                Arrays.sort(terms);
+                long[][] postings = new long[terms.length][];
+                for (int i = 0; i < terms.length; i++) {
+                    postings[i] = tokens.get(terms[i]).stream().mapToLong(Long::longValue).sorted().toArray();
+                }
+                return new Dictionary(terms, postings, entries);
+            }
+        }
+    }
+
+    /**
+     * Libro indexado; sus tokens se recalculan desde título y autor cuando hace falta.
+     *
+     * @param title título a sugerir.
+     * @param author autor.
+     * @param rating valoración.
+     * @param sales unidades vendidas registradas en esta instancia.
+     */
+    private record Entry(String title, String author, int rating, AtomicLong sales) {
+        static Entry of(BookResponseDTO book, AtomicLong sales) {
+            return new Entry(book.getTitle(), book.getAuthor(), book.getRating() == null ? 0 : book.getRating(), sales);
+        }
+    }
+
+    /**
+     * Escritura local recibida durante una reconstrucción.
+     *
+     * @param book versión escrita o `null` si fue una baja.
+     */
+    private record PendingWrite(BookResponseDTO book) {
+    }
+
+    /**
+     * Mejores sugerencias vistas hasta el momento, acotadas a `limit` títulos distintos. El peor
+     * candidato queda en la cabeza del heap, y un libro que no lo supera se descarta sin crear
+     * objetos.
+     */
+    private static final class TopSuggestions {
+        private final int limit;
+        private final PriorityQueue<Suggestion> heap;
+        private final Map<String, Suggestion> byTitle = new HashMap<>();
+
+        TopSuggestions(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(limit + 1, BY_POPULARITY.reversed());
+        }
+
+        void offer(Entry entry) {
+            long sales = entry.sales().get();
+            if (heap.size() >= limit && compare(sales, entry.rating(), entry.title(), heap.peek()) >= 0) {
+                return;
+            }
+            Suggestion existing = byTitle.get(entry.title());
+            if (existing != null) {
+                if (compare(sales, entry.rating(), entry.title(), existing) >= 0) {
+                    return;
+                }
+                heap.remove(existing);
+            }
+            Suggestion candidate = new Suggestion(entry.title(), entry.rating(), sales);
+            heap.add(candidate);
+            byTitle.put(candidate.title(), candidate);
+            if (heap.size() > limit) {
+                byTitle.remove(heap.poll().title());
+            }
+        }
+
+        List<String> titles() {
+            List<Suggestion> best = new ArrayList<>(heap);
+            best.sort(BY_POPULARITY);
+            List<String> titles = new ArrayList<>(best.size());
+            for (Suggestion suggestion : best) {
+                titles.add(suggestion.title());
+            }
+            return titles;
+        }
+
+        /**
+         * Compara un candidato con una sugerencia con el mismo criterio que {@link #BY_POPULARITY}.
+         */
+        private static int compare(long sales, int rating, String title, Suggestion other) {
+            if (sales != other.sales()) {
+                return sales > other.sales() ? -1 : 1;
+            }
+            if (rating != other.rating()) {
+                return rating > other.rating() ? -1 : 1;
+            }
+            return title.compareTo(other.title());
+        }
+    }
+
+    /**
+     * Candidato a sugerencia con su popularidad.
+     *
+     * @param title título.
+     * @param rating valoración.
+     * @param sales unidades vendidas.
+     */
+    private record Suggestion(String title, int rating, long sales) {
+    }
+}
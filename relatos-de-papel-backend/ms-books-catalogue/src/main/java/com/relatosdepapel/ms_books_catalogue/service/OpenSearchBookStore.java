@@ -3,34 +3,59 @@ package com.relatosdepapel.ms_books_catalogue.service;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.text.Normalizer;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.ConcurrentModificationException;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.opensearch.client.Request;
 import org.opensearch.client.Response;
 import org.opensearch.client.ResponseException;
-import org.opensearch.client.RestClient;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
 import com.relatosdepapel.ms_books_catalogue.dto.BookFacetsResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPageResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookPatchDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookRequestDTO;
 import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+import com.relatosdepapel.ms_books_catalogue.dto.BookSearchCriteria;
+import com.relatosdepapel.ms_books_catalogue.dto.VersionedBookDTO;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
@@ -38,29 +63,179 @@ import lombok.RequiredArgsConstructor;
 /**
  * Repositorio operativo de libros sobre OpenSearch.
  * Encapsula creación de índice, seed inicial y consultas de catálogo/suggest/facets.
+ * Todas las requests pasan por {@link OpenSearchConcurrencyLimiter}; las búsquedas y lecturas por
+ * id exponen variantes `*Async` que no ocupan un hilo mientras OpenSearch responde.
+ * Con el modo degradado habilitado, las lecturas por id y las búsquedas sin texto se responden
+ * desde {@link BookSnapshot} cuando el cluster no está disponible.
  */
 @Component
 @RequiredArgsConstructor
 public class OpenSearchBookStore {
-    private static final long FACETS_CACHE_TTL_MS = 30_000L;
-
-    private final RestClient restClient;
+    private static final int LEGACY_LIST_SIZE = 200;
+    private static final int RECENT_WRITES_MAX_ENTRIES = 10_000;
+    private static final long RECENT_WRITES_TTL_MS = 60_000L;
+    private static final int UPDATE_RETRY_ON_CONFLICT = 5;
+    private static final int FACET_COUNTERS_PAGE_SIZE = 1_000;
+    private static final int FACET_COUNTERS_RECONCILE_ATTEMPTS = 3;
+    private static final String ADJUST_STOCK_SCRIPT = """
+            int current = ctx._source.stock == null ? 0 : ctx._source.stock;
+            int next = current + params.quantity;
+            if (next < 0) { ctx.op = 'noop'; } else { ctx._source.stock = next; }
+            """;
+
+    private final OpenSearchConcurrencyLimiter concurrencyLimiter;
     private final OpenSearchProperties properties;
     private final ObjectMapper objectMapper;
-    private final Map<String, CacheEntry<BookFacetsResponseDTO>> facetsCache = new ConcurrentHashMap<>();
+    private final BookIdAllocator idAllocator;
+    private final BookIsbnRegistry isbnRegistry;
+    private final BookNearCache nearCache;
+    private final BookFacetCounters facetCounters;
+    private final BookSearchCoalescer searchCoalescer;
+    private final BookSuggestIndex suggestIndex;
+    private final BookSnapshot snapshot;
+    private final BookIndexMigrator indexMigrator;
+    private final BookResultCache resultCache;
+    private final Map<Long, WriteStamp> recentWrites = new ConcurrentHashMap<>();
+    private int refreshSuspensions;
+    private String suspendedRefreshInterval;
+    private LoadingCache<FacetsQuery, BookFacetsResponseDTO> facetsCache;
 
     /**
      * Inicializa el almacenamiento validando índice y cargando seed cuando está vacío.
+     * Si OpenSearch no está disponible y hay un snapshot local con modo degradado habilitado,
+     * la instancia arranca igual y construye el índice de sugerencias desde el snapshot.
      */
     @PostConstruct
     void initialize() {
-        ensureIndex();
-        migrateIncompatibleFacetsMappingIfEnabled();
-        if (isIndexEmpty()) {
-            syncSeedData();
+        facetsCache = Caffeine.newBuilder()
+                .maximumSize(properties.getFacetsCacheMaxEntries())
+                .refreshAfterWrite(properties.getFacetsCacheTtl())
+                .expireAfterWrite(properties.getFacetsCacheMaxStale())
+                .executor(Thread::startVirtualThread)
+                .build(this::loadFacets);
+        try {
+            indexMigrator.ensureIndex();
+            if (isIndexEmpty()) {
+                syncSeedData();
+            }
+            if (isbnRegistry.ensureIndex()) {
+                backfillIsbnGuards();
+            }
+            reconcileFacetCounters();
+            rebuildSuggestIndex();
+        } catch (RuntimeException ex) {
+            if (!snapshot.isFallbackAvailable() || !isClusterUnavailable(ex)) {
+                throw ex;
+            }
+            if (properties.isLocalSuggestEnabled()) {
+                suggestIndex.rebuild(sink -> snapshot.forEach(book -> {
+                    if (Boolean.TRUE.equals(book.getVisible())) {
+                        sink.accept(book);
+                    }
+                }));
+            }
+            return;
+        }
+        if (snapshot.isEnabled() && !snapshot.isLoaded()) {
+            Thread.startVirtualThread(this::refreshSnapshot);
+        }
+        indexMigrator.startMigrationIfNeeded(this::onIndexSwapped);
+    }
+
+    /**
+     * Descarta el estado local ligado al índice anterior tras una migración: las versiones
+     * (`_primary_term`/`_seq_no`) del índice nuevo no son comparables con las anteriores.
+     */
+    private void onIndexSwapped() {
+        nearCache.clear();
+        recentWrites.clear();
+        resultCache.advanceGeneration();
+        invalidateFacetsCache();
+    }
+
+    /**
+     * Recalcula los contadores de facets con una agregación completa para corregir la deriva
+     * acumulada. Si hubo escrituras locales mientras corría la agregación, el resultado se
+     * descarta y se reintenta; tras {@value #FACET_COUNTERS_RECONCILE_ATTEMPTS} intentos se
+     * conservan los contadores incrementales hasta la próxima ejecución. Si el mapping no
+     * permite agregar por `keyword`, los contadores quedan deshabilitados y los facets se
+     * resuelven con agregaciones.
+     */
+    @Scheduled(
+            initialDelayString = "${opensearch.facet-counters-reconcile-interval:5m}",
+            fixedDelayString = "${opensearch.facet-counters-reconcile-interval:5m}")
+    public void reconcileFacetCounters() {
+        try {
+            for (int attempt = 1; attempt <= FACET_COUNTERS_RECONCILE_ATTEMPTS; attempt++) {
+                long generation = facetCounters.generation();
+                Map<Boolean, Long> totals = new HashMap<>();
+                countByVisibility(null).forEach((visible, counts) -> totals.put(visible, counts.get("")));
+                if (facetCounters.replace(generation, totals,
+                        countByVisibility("category.keyword"), countByVisibility("author.keyword"))) {
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            facetCounters.reset();
+        }
+    }
+
+    /**
+     * Reconstruye el índice local de sugerencias con los libros visibles para incorporar las
+     * escrituras de otras instancias. Si la exportación falla se conserva el índice anterior.
+     */
+    @Scheduled(
+            initialDelayString = "${opensearch.suggest-index-rebuild-interval:10m}",
+            fixedDelayString = "${opensearch.suggest-index-rebuild-interval:10m}")
+    public void rebuildSuggestIndex() {
+        if (!properties.isLocalSuggestEnabled()) {
+            return;
+        }
+        try {
+            suggestIndex.rebuild(sink -> export(visibleOnlyCriteria(), sink));
+        } catch (IllegalStateException ex) {
+            // Se mantiene el índice vigente; suggest consulta OpenSearch mientras no exista uno.
         }
     }
 
+    /**
+     * Reconstruye el snapshot local con todos los libros del índice. Si la exportación falla se
+     * conserva el snapshot anterior.
+     */
+    @Scheduled(
+            initialDelayString = "${opensearch.snapshot-refresh-interval:15m}",
+            fixedDelayString = "${opensearch.snapshot-refresh-interval:15m}")
+    public void refreshSnapshot() {
+        if (!snapshot.isEnabled()) {
+            return;
+        }
+        try {
+            snapshot.rebuild(sink -> export(new BookSearchCriteria(), sink));
+        } catch (IllegalStateException | RejectedExecutionException ex) {
+            // Se mantiene el snapshot vigente hasta la próxima reconstrucción.
+        }
+    }
+
+    /**
+     * Registra la guarda de ISBN de todos los libros existentes.
+     * Solo se ejecuta al crear el índice de guardas por primera vez sobre un catálogo previo.
+     */
+    private void backfillIsbnGuards() {
+        int batchSize = Math.max(1, properties.getImportChunkSize());
+        List<Map.Entry<String, Long>> batch = new ArrayList<>(batchSize);
+        export(new BookSearchCriteria(), book -> {
+            if (book.getIsbn() == null || book.getIsbn().isBlank()) {
+                return;
+            }
+            batch.add(Map.entry(book.getIsbn(), book.getId()));
+            if (batch.size() >= batchSize) {
+                isbnRegistry.claimAll(batch);
+                batch.clear();
+            }
+        });
+        isbnRegistry.claimAll(batch);
+    }
+
     /**
      * Evalúa si el índice no contiene documentos.
      *
@@ -68,7 +243,7 @@ public class OpenSearchBookStore {
      */
     private boolean isIndexEmpty() {
         try {
-            Response response = restClient.performRequest(
+            Response response = concurrencyLimiter.perform(
                     new Request("GET", "/" + properties.getIndex() + "/_count"));
             JsonNode root = objectMapper.readTree(response.getEntity().getContent());
             return root.path("count").asLong(0L) == 0L;
@@ -78,12 +253,30 @@ public class OpenSearchBookStore {
     }
 
     /**
-     * Retorna el catálogo visible para consumo frontend.
+     * Retorna el catálogo visible para consumo frontend, desde la cache de resultados si hay
+     * una entrada de la generación vigente. En modo degradado se resuelve desde el snapshot
+     * local, sin guardar ese resultado en la cache.
+     *
+     * @param fields proyección de campos.
+     * @return futuro con la lista de libros visibles.
+     */
+    public CompletableFuture<List<BookResponseDTO>> findAllVisibleAsync(BookFields fields) {
+        BookSearchCriteria criteria = visibleOnlyCriteria();
+        return withSearchFallback(resultCache.getAsync(BookResultCache.Operation.LIST,
+                new SearchResultKey(criteria, BookSort.RELEVANCE.toString(), fields.names()),
+                () -> loadSearchAsync(criteria, BookSort.RELEVANCE, fields)), criteria, BookSort.RELEVANCE, fields);
+    }
+
+    /**
+     * Retorna una página del catálogo visible paginada por cursor.
      *
-     * @return lista de libros visibles.
+     * @param size tamaño de página.
+     * @param cursor cursor de la página anterior o `null`.
+     * @param fields proyección de campos.
+     * @return página de libros visibles.
      */
-    public List<BookResponseDTO> findAllVisible() {
-        return search(null, null, null, null, null, null, true, null, null, null, null, null);
+    public BookPageResponseDTO findAllVisiblePage(int size, String cursor, BookFields fields) {
+        return searchPage(visibleOnlyCriteria(), size, cursor, BookSort.RELEVANCE, fields);
     }
 
     /**
@@ -93,64 +286,253 @@ public class OpenSearchBookStore {
      * @return libro encontrado o `null` si no existe.
      */
     public BookResponseDTO findById(Long id) {
+        return findById(id, BookFields.ALL);
+    }
+
+    /**
+     * Busca un libro por id leyendo solo los campos de la proyección.
+     *
+     * @param id identificador de libro.
+     * @param fields proyección de campos.
+     * @return libro proyectado o `null` si no existe.
+     */
+    public BookResponseDTO findById(Long id, BookFields fields) {
+        VersionedBookDTO found = lookup(id, fields);
+        return found == null ? null : found.getBook();
+    }
+
+    /**
+     * Busca un libro por id junto con la versión del documento.
+     *
+     * @param id identificador de libro.
+     * @param fields proyección de campos.
+     * @return futuro con el libro versionado o `null` si no existe.
+     */
+    public CompletableFuture<VersionedBookDTO> findVersionedByIdAsync(Long id, BookFields fields) {
+        return lookupAsync(id, fields);
+    }
+
+    /**
+     * Busca varios libros por id con un único `_mget`. Los ids presentes en la cache local no se
+     * piden a OpenSearch y en modo degradado se resuelven desde el snapshot local.
+     *
+     * @param ids ids pedidos; puede contener repetidos.
+     * @param fields proyección de campos.
+     * @return futuro con un libro por id en el mismo orden, con `null` en los que no existen.
+     */
+    public CompletableFuture<List<BookResponseDTO>> findAllByIdAsync(List<Long> ids, BookFields fields) {
+        Map<Long, BookResponseDTO> cached = new HashMap<>();
+        List<Long> pending = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            BookNearCache.CachedBook entry = nearCache.get(id);
+            if (entry == null) {
+                pending.add(id);
+            } else {
+                cached.put(id, entry.book() == null ? null : fields.project(entry.book()));
+            }
+        }
+        CompletableFuture<Map<Long, BookResponseDTO>> read = pending.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : withSnapshotFallback(readAllLatestAsync(pending, fields), () -> {
+                    Map<Long, BookResponseDTO> books = new HashMap<>();
+                    for (Long id : pending) {
+                        BookResponseDTO book = snapshot.find(id);
+                        books.put(id, book == null ? null : fields.project(book));
+                    }
+                    return books;
+                });
+        return read.thenApply(books -> ids.stream()
+                .map(id -> cached.containsKey(id) ? cached.get(id) : books.get(id))
+                .toList());
+    }
+
+    /**
+     * Crea un libro asignando un id del bloque reservado por {@link BookIdAllocator}.
+     * El ISBN se reserva antes de indexar mediante {@link BookIsbnRegistry}, por lo que dos altas
+     * concurrentes con el mismo ISBN no pueden completarse ambas.
+     *
+     * @param dto payload de creación.
+     * @return libro creado.
+     * @throws IllegalArgumentException cuando el ISBN ya pertenece a otro libro.
+     */
+    public BookResponseDTO create(BookRequestDTO dto) {
+        BookResponseDTO book = toBook(idAllocator.nextId(), dto);
+        if (book.getIsbn() != null && !claimIsbn(book.getIsbn(), book.getId())) {
+            throw new IllegalArgumentException("El ISBN ya existe: " + book.getIsbn());
+        }
         try {
-            Response response = restClient
-                    .performRequest(new Request("GET", "/" + properties.getIndex() + "/_doc/" + id));
+            indexBook(book);
+        } catch (RuntimeException ex) {
+            isbnRegistry.release(book.getIsbn(), book.getId());
+            throw ex;
+        }
+        recordFacetChange(null, book);
+        return book;
+    }
+
+    /**
+     * Crea un lote de libros con una única operación `_bulk` sin refresh.
+     * Los ISBN se reservan antes con otro `_bulk` de guardas: los ya registrados o repetidos
+     * dentro del lote se rechazan por ítem y las guardas de libros que no se pudieron indexar
+     * se liberan.
+     *
+     * @param books libros a crear.
+     * @return mensaje de error por posición del lote (`null` cuando el ítem se creó).
+     */
+    public List<String> bulkCreate(List<BookRequestDTO> books) {
+        List<String> errors = new ArrayList<>(Collections.nCopies(books.size(), null));
+        long firstId = idAllocator.reserve(books.size());
+
+        List<Integer> claimPositions = new ArrayList<>(books.size());
+        List<Map.Entry<String, Long>> claims = new ArrayList<>(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            String isbn = books.get(i).getIsbn();
+            if (isbn != null) {
+                claimPositions.add(i);
+                claims.add(Map.entry(isbn, firstId + i));
+            }
+        }
+        List<String> claimErrors = isbnRegistry.claimAll(claims);
+        for (int j = 0; j < claimErrors.size(); j++) {
+            if (claimErrors.get(j) != null) {
+                errors.set(claimPositions.get(j), claimErrors.get(j));
+            }
+        }
+
+        StringBuilder bulk = new StringBuilder();
+        List<Integer> positions = new ArrayList<>(books.size());
+        List<BookResponseDTO> indexed = new ArrayList<>(books.size());
+        boolean sent = false;
+        try {
+            for (int i = 0; i < books.size(); i++) {
+                if (errors.get(i) != null) {
+                    continue;
+                }
+                BookResponseDTO book = toBook(firstId + i, books.get(i));
+                bulk.append("{\"create\":{\"_index\":\"")
+                        .append(properties.getIndex())
+                        .append("\",\"_id\":\"")
+                        .append(book.getId())
+                        .append("\"}}\n");
+                bulk.append(objectMapper.writeValueAsString(book)).append("\n");
+                positions.add(i);
+                indexed.add(book);
+            }
+            if (positions.isEmpty()) {
+                return errors;
+            }
+
+            Request bulkReq = new Request("POST", "/_bulk");
+            bulkReq.setEntity(new StringEntity(bulk.toString(), ContentType.create("application/x-ndjson")));
+            sent = true;
+            Response response = concurrencyLimiter.perform(bulkReq);
             JsonNode root = objectMapper.readTree(response.getEntity().getContent());
-            if (!root.path("found").asBoolean(false)) {
-                return null;
+            if (root.path("errors").asBoolean(false)) {
+                List<String> orphanIsbns = new ArrayList<>();
+                JsonNode items = root.path("items");
+                for (int j = 0; j < items.size() && j < positions.size(); j++) {
+                    JsonNode item = items.get(j).path("create");
+                    if (item.path("status").asInt() >= 300) {
+                        JsonNode error = item.path("error");
+                        int position = positions.get(j);
+                        errors.set(position, error.path("type").asText("error") + ": "
+                                + error.path("reason").asText(""));
+                        if (books.get(position).getIsbn() != null) {
+                            orphanIsbns.add(books.get(position).getIsbn());
+                        }
+                    }
+                }
+                isbnRegistry.releaseAll(orphanIsbns);
             }
-            return parseBookSource(root.path("_source"));
-        } catch (ResponseException ex) {
-            if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
-                return null;
+            for (int j = 0; j < positions.size(); j++) {
+                if (errors.get(positions.get(j)) == null) {
+                    facetCounters.apply(null, indexed.get(j));
+                    suggestIndex.apply(indexed.get(j).getId(), indexed.get(j));
+                    snapshot.apply(indexed.get(j).getId(), indexed.get(j));
+                }
             }
-            throw fail("Error consultando libro por id", ex);
+            resultCache.advanceGeneration();
+            invalidateFacetsCache();
+            return errors;
         } catch (IOException ex) {
-            throw fail("Error leyendo respuesta de OpenSearch", ex);
+            // Si el _bulk pudo aplicarse (falló la lectura de la respuesta), las guardas se
+            // conservan: las de libros no indexados se liberan como huérfanas al vencer el plazo.
+            if (!sent || ex instanceof ResponseException) {
+                List<String> claimed = new ArrayList<>();
+                for (int i = 0; i < books.size(); i++) {
+                    if (errors.get(i) == null && books.get(i).getIsbn() != null) {
+                        claimed.add(books.get(i).getIsbn());
+                    }
+                }
+                isbnRegistry.releaseAll(claimed);
+            }
+            throw fail("Error ejecutando importación bulk en OpenSearch", ex);
         }
     }
 
     /**
-     * Verifica existencia de un ISBN en el índice.
+     * Reserva un ISBN para un libro nuevo.
+     * Si la guarda existente tiene más de `isbn-claim-grace-period` y apunta a un libro que no
+     * está indexado (p. ej. una baja interrumpida), se considera huérfana, se libera y se
+     * reintenta una vez. Una guarda más reciente puede pertenecer a un alta concurrente cuyo
+     * libro todavía no se indexó, por lo que se respeta.
      *
-     * @param isbn isbn a validar.
-     * @return `true` si existe al menos un libro con ese ISBN.
+     * @param isbn ISBN a reservar.
+     * @param bookId id del libro nuevo.
+     * @return `true` si el ISBN quedó reservado para el libro.
      */
-    public boolean existsByIsbn(String isbn) {
-        if (isbn == null || isbn.isBlank()) {
+    private boolean claimIsbn(String isbn, long bookId) {
+        if (isbnRegistry.claim(isbn, bookId)) {
+            return true;
+        }
+        BookIsbnRegistry.Guard guard = isbnRegistry.findGuard(isbn);
+        if (guard == null) {
+            return isbnRegistry.claim(isbn, bookId);
+        }
+        long graceMs = properties.getIsbnClaimGracePeriod().toMillis();
+        if (guard.claimedAtMs() > System.currentTimeMillis() - graceMs
+                || getDocument(guard.bookId(), true, BookFields.ALL) != null) {
             return false;
         }
-        ObjectNode body = objectMapper.createObjectNode();
-        body.put("size", 1);
-        ObjectNode term = body.putObject("query").putObject("term");
-        term.putObject("isbn").put("value", isbn);
-        return executeSearchAndParse(body).stream().findAny().isPresent();
+        isbnRegistry.release(isbn, guard.bookId());
+        return isbnRegistry.claim(isbn, bookId);
     }
 
     /**
-     * Crea un libro asignando el siguiente id incremental disponible.
-     *
-     * @param dto payload de creación.
-     * @return libro creado.
+     * Suspende el refresh periódico del índice mientras dura una importación masiva.
+     * Admite importaciones concurrentes: el refresh se restaura al terminar la última.
      */
-    public BookResponseDTO create(BookRequestDTO dto) {
-        long nextId = getNextId();
-        BookResponseDTO book = new BookResponseDTO(
-                nextId,
-                dto.getTitle(),
-                dto.getAuthor(),
-                dto.getPublicationDate(),
-                dto.getCategory(),
-                dto.getIsbn(),
-                dto.getRating(),
-                dto.getVisible(),
-                dto.getStock(),
-                dto.getPrice());
+    public synchronized void suspendRefresh() {
+        if (refreshSuspensions++ > 0) {
+            return;
+        }
+        try {
+            Request request = new Request("GET", "/" + properties.getIndex() + "/_settings/index.refresh_interval");
+            Response response = concurrencyLimiter.perform(request);
+            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+            // La respuesta se indexa por el índice físico detrás del alias.
+            JsonNode settings = root.isEmpty() ? root : root.elements().next();
+            suspendedRefreshInterval = settings.path("settings").path("index").path("refresh_interval").asText(null);
+            putRefreshInterval("-1");
+        } catch (IOException ex) {
+            refreshSuspensions--;
+            throw fail("Error suspendiendo refresh del índice", ex);
+        }
+    }
 
-        indexBook(book);
-        invalidateFacetsCache();
-        return book;
+    /**
+     * Restaura el refresh del índice y fuerza un refresh final cuando termina la última importación.
+     */
+    public synchronized void resumeRefresh() {
+        if (refreshSuspensions == 0 || --refreshSuspensions > 0) {
+            return;
+        }
+        try {
+            putRefreshInterval(suspendedRefreshInterval);
+            concurrencyLimiter.perform(new Request("POST", "/" + properties.getIndex() + "/_refresh"));
+        } catch (IOException ex) {
+            throw fail("Error restaurando refresh del índice", ex);
+        }
     }
 
     /**
@@ -180,133 +562,355 @@ public class OpenSearchBookStore {
                 dto.getPrice());
 
         indexBook(updated);
-        invalidateFacetsCache();
+        recordFacetChange(current, updated);
         return updated;
     }
 
     /**
-     * Guarda un libro existente en OpenSearch.
+     * Actualiza parcialmente un libro con un `_update` que envía solo los campos informados.
+     * Sin versión esperada, OpenSearch reintenta ante conflictos y los cambios concurrentes sobre
+     * otros campos se conservan; con versión esperada, la escritura se condiciona a
+     * `if_seq_no`/`if_primary_term` y falla si el documento cambió.
      *
-     * @param book entidad a indexar.
-     * @return mismo libro tras persistencia.
+     * @param id identificador de libro.
+     * @param dto campos a modificar.
+     * @param expectedVersion versión recibida en `If-Match` o `null`.
+     * @return libro actualizado con su nueva versión o `null` si no existe.
+     * @throws IllegalArgumentException cuando la versión esperada no tiene formato válido.
+     * @throws ConcurrentModificationException cuando el libro cambió desde la versión esperada.
      */
-    public BookResponseDTO save(BookResponseDTO book) {
-        indexBook(book);
-        invalidateFacetsCache();
-        return book;
+    public VersionedBookDTO patch(Long id, BookPatchDTO dto, String expectedVersion) {
+        long[] expected = expectedVersion == null ? null : parseVersion(expectedVersion);
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode doc = body.putObject("doc");
+        putIfPresent(doc, "title", dto.getTitle());
+        putIfPresent(doc, "author", dto.getAuthor());
+        putIfPresent(doc, "publicationDate", dto.getPublicationDate());
+        putIfPresent(doc, "category", dto.getCategory());
+        putIfPresent(doc, "rating", dto.getRating());
+        putIfPresent(doc, "visible", dto.getVisible());
+        putIfPresent(doc, "stock", dto.getStock());
+        putIfPresent(doc, "price", dto.getPrice());
+        boolean facetedChange = dto.getTitle() != null || dto.getAuthor() != null
+                || dto.getCategory() != null || dto.getVisible() != null;
+        VersionedBookDTO before = facetedChange ? lookup(id, BookFields.ALL) : null;
+
+        try {
+            Request request = new Request("POST", "/" + properties.getIndex() + "/_update/" + id);
+            if (expected == null) {
+                request.addParameter("retry_on_conflict", String.valueOf(UPDATE_RETRY_ON_CONFLICT));
+            } else {
+                request.addParameter("if_primary_term", String.valueOf(expected[0]));
+                request.addParameter("if_seq_no", String.valueOf(expected[1]));
+            }
+            request.addParameter("_source", "true");
+            applyRefreshPolicy(request);
+            request.setJsonEntity(body.toString());
+            BookHitsReader.UpdatedBook updated = performUpdate(request);
+            trackWrite(id, updated.primaryTerm(), updated.seqNo(), updated.book());
+            if (before != null && !updated.isNoop()) {
+                recordFacetChange(before.getBook(), updated.book());
+            }
+            return new VersionedBookDTO(updated.book(), updated.version());
+        } catch (ResponseException ex) {
+            int status = ex.getResponse().getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_FOUND) {
+                return null;
+            }
+            if (status == HttpStatus.SC_CONFLICT) {
+                throw new ConcurrentModificationException("El libro fue modificado por otra operación");
+            }
+            throw fail("Error actualizando parcialmente libro", ex);
+        } catch (IOException ex) {
+            throw fail("Error leyendo respuesta de OpenSearch", ex);
+        }
     }
 
     /**
-     * Elimina un libro por id.
+     * Ajusta el stock de un libro con un único `_update` scriptado.
+     * La suma y la validación de stock no negativo se ejecutan en OpenSearch sobre la última
+     * versión del documento (`retry_on_conflict`), por lo que ajustes concurrentes no se pisan.
      *
      * @param id identificador de libro.
-     * @return `true` si el documento se eliminó, `false` si no existía.
+     * @param quantity cantidad a sumar (negativa para descontar).
+     * @return libro con el stock resultante o `null` si no existe.
+     * @throws IllegalArgumentException cuando el ajuste deja stock negativo.
      */
-    public boolean delete(Long id) {
+    public BookResponseDTO adjustStock(Long id, int quantity) {
+        ObjectNode body = objectMapper.createObjectNode();
+        ObjectNode script = body.putObject("script");
+        script.put("lang", "painless");
+        script.put("source", ADJUST_STOCK_SCRIPT);
+        script.putObject("params").put("quantity", quantity);
         try {
-            Request request = new Request("DELETE", "/" + properties.getIndex() + "/_doc/" + id);
-            request.addParameter("refresh", "true");
-            Response response = restClient.performRequest(request);
-            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
-            String result = root.path("result").asText();
-            if ("deleted".equals(result)) {
-                invalidateFacetsCache();
+            Request request = new Request("POST", "/" + properties.getIndex() + "/_update/" + id);
+            request.addParameter("retry_on_conflict", String.valueOf(UPDATE_RETRY_ON_CONFLICT));
+            request.addParameter("_source", "true");
+            applyRefreshPolicy(request);
+            request.setJsonEntity(body.toString());
+            BookHitsReader.UpdatedBook updated = performUpdate(request);
+            if (updated.isNoop()) {
+                throw new IllegalArgumentException("Stock insuficiente");
             }
-            return "deleted".equals(result);
+            trackWrite(id, updated.primaryTerm(), updated.seqNo(), updated.book());
+            if (quantity < 0) {
+                suggestIndex.recordSale(id, -quantity);
+            }
+            return updated.book();
         } catch (ResponseException ex) {
             if (ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
-                return false;
+                return null;
             }
-            throw fail("Error eliminando libro", ex);
+            throw fail("Error ajustando stock", ex);
         } catch (IOException ex) {
             throw fail("Error leyendo respuesta de OpenSearch", ex);
         }
     }
 
     /**
-     * Ejecuta búsqueda full-text + filtros estructurados.
+     * Elimina un libro por id.
+     * La copia previa, necesaria para liberar su ISBN y descontar facets, se toma de la cache
+     * local o de un GET realtime a la primaria, y el DELETE se condiciona a su versión: si otra
+     * escritura la cambió entretanto, se relee y se reintenta, de modo que lo descontado es
+     * siempre lo que se eliminó.
      *
-     * @param title título parcial para búsqueda.
-     * @param author autor parcial.
-     * @param category categoría exacta.
-     * @param isbn isbn exacto.
-     * @param ratingMin rating mínimo.
-     * @param ratingMax rating máximo.
-     * @param visible filtro de visibilidad.
-     * @param minPrice precio mínimo.
-     * @param maxPrice precio máximo.
-     * @param publicationDateFrom fecha inicial.
-     * @param publicationDateTo fecha final.
-     * @param minStock stock mínimo.
-     * @return libros que cumplen la consulta.
-     */
-    public List<BookResponseDTO> search(
-            String title,
-            String author,
-            String category,
-            String isbn,
-            Integer ratingMin,
-            Integer ratingMax,
-            Boolean visible,
-            BigDecimal minPrice,
-            BigDecimal maxPrice,
-            LocalDate publicationDateFrom,
-            LocalDate publicationDateTo,
-            Integer minStock) {
-
-        ObjectNode body = objectMapper.createObjectNode();
-        body.put("size", 200);
+     * @param id identificador de libro.
+     * @return `true` si el documento se eliminó, `false` si no existía.
+     */
+    public boolean delete(Long id) {
+        BookHitsReader.StoredBook current = cachedForWrite(id);
+        for (int attempt = 0; attempt <= UPDATE_RETRY_ON_CONFLICT; attempt++) {
+            if (current == null) {
+                current = getDocument(id, true, BookFields.ALL);
+                if (current == null) {
+                    return false;
+                }
+            }
+            try {
+                Request request = new Request("DELETE", "/" + properties.getIndex() + "/_doc/" + id);
+                request.addParameter("if_seq_no", String.valueOf(current.seqNo()));
+                request.addParameter("if_primary_term", String.valueOf(current.primaryTerm()));
+                applyRefreshPolicy(request);
+                Response response = concurrencyLimiter.perform(request);
+                JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+                trackWrite(id, root, null);
+                BookResponseDTO removed = current.book();
+                isbnRegistry.release(removed.getIsbn(), id);
+                recordFacetChange(removed, null);
+                return true;
+            } catch (ResponseException ex) {
+                int status = ex.getResponse().getStatusLine().getStatusCode();
+                if (status == HttpStatus.SC_NOT_FOUND) {
+                    nearCache.invalidate(id);
+                    return false;
+                }
+                if (status != HttpStatus.SC_CONFLICT) {
+                    throw fail("Error eliminando libro", ex);
+                }
+                current = null;
+            } catch (IOException ex) {
+                throw fail("Error leyendo respuesta de OpenSearch", ex);
+            }
+        }
+        throw new ConcurrentModificationException("El libro fue modificado por otra operación");
+    }
 
-        ObjectNode query = body.putObject("query");
-        ObjectNode bool = query.putObject("bool");
-        ArrayNode must = bool.putArray("must");
-        ArrayNode filter = bool.putArray("filter");
+    /**
+     * Copia completa y versionada de un libro en la cache local, usada como punto de partida de
+     * una escritura condicionada a su versión.
+     *
+     * @param id identificador de libro.
+     * @return libro con su versión o `null` si no está en la cache.
+     */
+    private BookHitsReader.StoredBook cachedForWrite(Long id) {
+        BookNearCache.CachedBook cached = nearCache.get(id);
+        return cached == null || cached.book() == null ? null
+                : new BookHitsReader.StoredBook(cached.book(), cached.primaryTerm(), cached.seqNo());
+    }
 
-        addTitleQuery(must, title);
-        addAuthorQuery(must, author);
+    /**
+     * Ejecuta búsqueda full-text + filtros estructurados.
+     * Retorna como máximo {@value #LEGACY_LIST_SIZE} resultados; para recorrer el catálogo completo
+     * debe usarse {@link #searchPage(BookSearchCriteria, int, String, BookSort, BookFields)}.
+     *
+     * Los resultados se sirven desde la cache de resultados mientras no haya escrituras locales
+     * posteriores. Las búsquedas sin título ni autor se resuelven desde el snapshot local en
+     * modo degradado; esas respuestas no se guardan en la cache.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param sort orden de resultados; sin orden explícito se usa el del índice o la relevancia.
+     * @param fields proyección de campos.
+     * @return futuro con los libros que cumplen la consulta.
+     */
+    public CompletableFuture<List<BookResponseDTO>> searchAsync(BookSearchCriteria criteria, BookSort sort,
+            BookFields fields) {
+        return withSearchFallback(resultCache.getAsync(BookResultCache.Operation.SEARCH,
+                new SearchResultKey(criteria, sort.toString(), fields.names()),
+                () -> loadSearchAsync(criteria, sort, fields)), criteria, sort, fields);
+    }
 
-        if (category != null && !category.isBlank()) {
-            addCompatibleCategoryFilter(filter, category);
-        }
-        if (isbn != null && !isbn.isBlank()) {
-            addTermFilter(filter, "isbn", isbn);
-        }
-        if (visible != null) {
-            addTermFilter(filter, "visible", visible);
-        }
-        if (ratingMin != null || ratingMax != null) {
-            addRangeFilter(filter, "rating", ratingMin, ratingMax);
-        }
-        if (minPrice != null || maxPrice != null) {
-            addRangeFilter(filter, "price", minPrice, maxPrice);
+    /**
+     * Aplica el modo degradado a una búsqueda ya resuelta por la cache de resultados, de modo
+     * que las respuestas del snapshot nunca se cachean. Las búsquedas con texto no tienen
+     * equivalente en el snapshot.
+     *
+     * @param books búsqueda contra OpenSearch o la cache.
+     * @param criteria filtros de búsqueda.
+     * @param sort orden de resultados.
+     * @param fields proyección de campos.
+     * @return futuro con los libros de OpenSearch o, en modo degradado, del snapshot.
+     */
+    private CompletableFuture<List<BookResponseDTO>> withSearchFallback(CompletableFuture<List<BookResponseDTO>> books,
+            BookSearchCriteria criteria, BookSort sort, BookFields fields) {
+        if (hasTextQuery(criteria)) {
+            return books;
         }
-        if (publicationDateFrom != null || publicationDateTo != null) {
-            addRangeFilter(filter, "publicationDate", publicationDateFrom, publicationDateTo);
+        return withSnapshotFallback(books, () -> snapshot.search(criteria, sort.comparator(), LEGACY_LIST_SIZE).stream()
+                .map(fields::project)
+                .toList());
+    }
+
+    /**
+     * Ejecuta la búsqueda de {@link #searchAsync(BookSearchCriteria, BookSort, BookFields)} sin
+     * pasar por la cache de resultados ni por el modo degradado.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param sort orden de resultados.
+     * @param fields proyección de campos.
+     * @return futuro con los libros que cumplen la consulta.
+     */
+    private CompletableFuture<List<BookResponseDTO>> loadSearchAsync(BookSearchCriteria criteria, BookSort sort,
+            BookFields fields) {
+        CompletableFuture<BookHitsReader.SearchHits> hits;
+        try {
+            hits = searchHitsAsync("/" + properties.getIndex() + "/_search", generator -> {
+                generator.writeNumberField("size", LEGACY_LIST_SIZE);
+                // Sin total exacto, un orden que coincide con el del índice termina tras los primeros hits.
+                generator.writeBooleanField("track_total_hits", false);
+                writeSourceIncludes(generator, fields);
+                writeSearchQuery(generator, criteria);
+                if (!sort.isRelevance()) {
+                    sort.writeTo(generator, hasTextQuery(criteria));
+                }
+            }, fields);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(fail("Error ejecutando búsqueda en OpenSearch", ex));
         }
-        if (minStock != null) {
-            ObjectNode stockRange = objectMapper.createObjectNode();
-            stockRange.put("gte", minStock);
-            ObjectNode rangeNode = objectMapper.createObjectNode();
-            rangeNode.set("stock", stockRange);
-            filter.add(objectMapper.createObjectNode().set("range", rangeNode));
+        return hits.handle((result, ex) -> {
+            if (ex == null) {
+                return result.books();
+            }
+            Throwable cause = unwrap(ex);
+            throw cause instanceof IOException io
+                    ? fail("Error ejecutando búsqueda en OpenSearch", io)
+                    : new CompletionException(cause);
+        });
+    }
+
+    /**
+     * Ejecuta búsqueda paginada por cursor usando point-in-time y `search_after`.
+     * El orden es estable (el campo pedido o `_score` cuando hay texto, y luego `id`), por lo que el costo de una
+     * página profunda es el mismo que el de la primera. Si el cluster no soporta point-in-time,
+     * se pagina con `search_after` directamente sobre el índice. El cursor guarda un hash de los
+     * filtros, el orden y la proyección, y solo es válido para la misma consulta.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param size tamaño de página.
+     * @param cursor cursor opaco de la página anterior o `null` para la primera página.
+     * @param sort orden de resultados; debe ser el mismo en todas las páginas.
+     * @param fields proyección de campos.
+     * @return página de resultados con cursor siguiente.
+     * @throws IllegalArgumentException cuando el cursor es inválido, expiró o corresponde a otra consulta.
+     */
+    public BookPageResponseDTO searchPage(BookSearchCriteria criteria, int size, String cursor, BookSort sort,
+            BookFields fields) {
+        SearchCursor position = (cursor == null || cursor.isBlank()) ? null : decodeCursor(cursor);
+        boolean scored = hasTextQuery(criteria);
+        int queryHash = cursorQueryHash(criteria, sort, fields);
+        if (position != null && (position.queryHash() != queryHash
+                || position.searchAfter().size() != sort.clauses(scored))) {
+            throw new IllegalArgumentException("El cursor no corresponde a los filtros, orden o campos solicitados");
         }
+        String pitId = position != null ? position.pitId() : openPointInTime();
+
+        String endpoint = pitId != null ? "/_search" : "/" + properties.getIndex() + "/_search";
+        SearchBodyWriter.Body body = generator -> {
+            generator.writeNumberField("size", size + 1);
+            generator.writeBooleanField("track_total_hits", false);
+            writeSourceIncludes(generator, fields);
+            writeSearchQuery(generator, criteria);
+            sort.writeTo(generator, scored);
+            if (position != null) {
+                generator.writeFieldName("search_after");
+                generator.writeTree(position.searchAfter());
+            }
+            if (pitId != null) {
+                writePit(generator, pitId);
+            }
+        };
 
-        if (must.isEmpty() && filter.isEmpty()) {
-            query.removeAll();
-            query.putObject("match_all");
+        try {
+            BookHitsReader.SearchHits hits = searchHits(endpoint, body, fields);
+            String currentPitId = hits.pitId() != null ? hits.pitId() : pitId;
+            int count = hits.books().size();
+            List<BookResponseDTO> items = new ArrayList<>(hits.books().subList(0, Math.min(count, size)));
+            JsonNode lastSort = items.isEmpty() ? null : hits.sorts().get(items.size() - 1);
+            if (count <= size || lastSort == null) {
+                closePointInTime(currentPitId);
+                return new BookPageResponseDTO(items, size, null);
+            }
+            return new BookPageResponseDTO(items, size, encodeCursor(currentPitId, lastSort, queryHash));
+        } catch (ResponseException ex) {
+            if (pitId != null && ex.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new IllegalArgumentException("El cursor expiró, se debe reiniciar la paginación", ex);
+            }
+            throw fail("Error ejecutando búsqueda paginada en OpenSearch", ex);
+        } catch (IOException ex) {
+            throw fail("Error ejecutando búsqueda paginada en OpenSearch", ex);
         }
+    }
+
+    /**
+     * Recorre todos los libros que cumplen los criterios y los entrega uno a uno al consumidor.
+     * Usa un point-in-time dividido en slices que se recorren en paralelo con `search_after`,
+     * por lo que la memoria usada depende del tamaño de página y no del tamaño del catálogo.
+     * Las invocaciones al consumidor están serializadas aunque los slices corran en paralelo.
+     *
+     * @param criteria filtros de búsqueda.
+     * @param sink consumidor de cada libro exportado.
+     * @return cantidad de libros exportados.
+     */
+    public long export(BookSearchCriteria criteria, Consumer<BookResponseDTO> sink) {
+        String pitId = openPointInTime();
+        int slices = pitId == null ? 1 : Math.max(1, properties.getExportSlices());
+        Consumer<BookResponseDTO> serializedSink = serialized(sink);
+        AtomicLong exported = new AtomicLong();
         try {
-            return executeSearchAndParse(body);
-        } catch (IllegalStateException ex) {
-            if (isTooManyRequestsMessage(ex.getMessage())) {
-                return List.of();
+            if (slices == 1) {
+                scanSlice(criteria, pitId, 0, 1, serializedSink, exported);
+                return exported.get();
             }
-            throw ex;
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>(slices);
+                for (int slice = 0; slice < slices; slice++) {
+                    int sliceId = slice;
+                    futures.add(executor.submit(
+                            () -> scanSlice(criteria, pitId, sliceId, slices, serializedSink, exported)));
+                }
+                for (Future<?> future : futures) {
+                    awaitSlice(future, futures);
+                }
+            }
+            return exported.get();
+        } finally {
+            closePointInTime(pitId);
         }
     }
 
     /**
      * Retorna sugerencias de título priorizando coincidencias relevantes visibles.
+     * Con el índice de sugerencias local listo no se consulta OpenSearch; en otro caso el
+     * resultado pasa por la cache de resultados.
      *
      * @param text texto parcial del usuario.
      * @param size máximo de sugerencias.
@@ -316,49 +920,49 @@ public class OpenSearchBookStore {
         if (text == null || text.isBlank()) {
             return List.of();
         }
-
-        ObjectNode body = objectMapper.createObjectNode();
-        body.put("size", size);
-
-        ObjectNode bool = body.putObject("query").putObject("bool");
-        ArrayNode must = bool.putArray("must");
-        ArrayNode filter = bool.putArray("filter");
-
-        ObjectNode query = objectMapper.createObjectNode();
-        query.put("query", text.trim());
-        query.put("type", "bool_prefix");
-        query.put("operator", "and");
-
-        ArrayNode fields = query.putArray("fields");
-        fields.add("title");
-        fields.add("title.suggest");
-        fields.add("title.suggest._2gram");
-        fields.add("title.suggest._3gram");
-        fields.add("author");
-        fields.add("author.suggest");
-        fields.add("author.suggest._2gram");
-        fields.add("author.suggest._3gram");
-
-        must.add(objectMapper.createObjectNode().set("multi_match", query));
-        addTermFilter(filter, "visible", true);
-
-        List<BookResponseDTO> books;
-        try {
-            books = executeSearchAndParse(body);
-        } catch (IllegalStateException ex) {
-            if (isTooManyRequestsMessage(ex.getMessage())) {
-                return List.of();
-            }
-            throw ex;
+        if (suggestIndex.isReady()) {
+            return suggestIndex.suggest(text, size);
         }
-        Set<String> unique = new LinkedHashSet<>();
-        String normalizedInput = normalize(text);
-        for (BookResponseDTO book : books) {
+        String query = text.trim();
+        return resultCache.get(BookResultCache.Operation.SUGGEST, List.of(query, size),
+                () -> loadSuggestions(query, size));
+    }
+
+    /**
+     * Consulta sugerencias de título en OpenSearch.
+     *
+     * @param query texto parcial sin espacios extremos.
+     * @param size máximo de sugerencias.
+     * @return títulos sugeridos únicos.
+     */
+    private List<String> loadSuggestions(String query, int size) {
+        SearchBodyWriter.Body body = generator -> {
+            generator.writeNumberField("size", size);
+            generator.writeFieldName("_source");
+            generator.writeRawValue(SearchBodyWriter.TITLE_SOURCE);
+            generator.writeFieldName(SearchBodyWriter.QUERY);
+            generator.writeStartObject();
+            generator.writeFieldName(SearchBodyWriter.BOOL);
+            generator.writeStartObject();
+            generator.writeFieldName(SearchBodyWriter.MUST);
+            generator.writeStartArray();
+            writeBoolPrefixQuery(generator, query, SearchBodyWriter.SUGGEST_PREFIX_FIELDS);
+            generator.writeEndArray();
+            generator.writeFieldName(SearchBodyWriter.FILTER);
+            generator.writeRawValue(SearchBodyWriter.VISIBLE_ONLY_FILTER);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        };
+
+        List<BookResponseDTO> books = executeSearchAndParse(body, BookFields.ALL);
+        Set<String> unique = new LinkedHashSet<>();
+        String normalizedInput = TextNormalizer.normalize(query);
+        for (BookResponseDTO book : books) {
             String title = book.getTitle();
             if (title == null) {
                 continue;
             }
-            String normalizedTitle = normalize(title);
+            String normalizedTitle = TextNormalizer.normalize(title);
             if (!normalizedTitle.contains(normalizedInput) && !normalizedInput.contains(normalizedTitle)) {
                 continue;
             }
@@ -378,343 +982,989 @@ public class OpenSearchBookStore {
      * @return respuesta con total y buckets agregados.
      */
     public BookFacetsResponseDTO facets(String text, Boolean visible, String category, String author) {
-        String cacheKey = buildFacetsCacheKey(text, visible, category, author);
-        BookFacetsResponseDTO cached = readFreshFacetsCache(cacheKey);
-        if (cached != null) {
-            return cached;
+        if ((text == null || text.isBlank()) && (category == null || category.isBlank())
+                && (author == null || author.isBlank())) {
+            BookFacetsResponseDTO counted = facetCounters.snapshot(visible);
+            if (counted != null) {
+                return counted;
+            }
         }
+        FacetsQuery query = new FacetsQuery(buildFacetsCacheKey(text, visible, category, author),
+                text, visible, category, author);
+        return facetsCache.get(query);
+    }
 
-        ObjectNode body = buildFacetAggregationRequest(text, visible, category, author, true);
+    /**
+     * Ejecuta la agregación de facets para una consulta; la invoca la caché al cargar o
+     * refrescar una entrada.
+     *
+     * @param query consulta de facets.
+     * @return conteos agregados.
+     */
+    private BookFacetsResponseDTO loadFacets(FacetsQuery query) {
         try {
-            JsonNode root = executeSearch(body);
+            JsonNode root = executeSearch(generator -> writeFacetsRequest(generator, query.text(),
+                    query.visible(), query.category(), query.author(), SearchBodyWriter.KEYWORD_FACET_AGGS));
             Map<String, Long> categories = parseTermsAgg(root, "by_category");
             Map<String, Long> authors = parseTermsAgg(root, "by_author");
             long total = root.path("hits").path("total").path("value").asLong(0L);
-            BookFacetsResponseDTO response = new BookFacetsResponseDTO(total, categories, authors);
-            writeFacetsCache(cacheKey, response);
-            return response;
+            return new BookFacetsResponseDTO(total, categories, authors);
         } catch (IOException ex) {
-            if (isTooManyRequests(ex)) {
-                BookFacetsResponseDTO stale = readStaleFacetsCache(cacheKey);
-                if (stale != null) {
-                    return stale;
-                }
-                return new BookFacetsResponseDTO(0L, Map.of(), Map.of());
-            }
             if (isFacetAggregationMappingIssue(ex)) {
-                BookFacetsResponseDTO fallback = facetsFallbackUsingSourceScript(text, visible, category, author, ex);
-                writeFacetsCache(cacheKey, fallback);
-                return fallback;
+                return facetsFallbackUsingSourceScript(
+                        query.text(), query.visible(), query.category(), query.author(), ex);
             }
             throw fail("Error obteniendo facets", ex);
         }
     }
 
     /**
-     * Garantiza que el índice exista con mapping compatible con búsquedas y suggest.
+     * Inserta catálogo semilla inicial mediante operación bulk NDJSON.
+     */
+    private void syncSeedData() {
+        try {
+            List<BookResponseDTO> seedBooks = List.of(
+                    new BookResponseDTO(1L, "Don Quijote de la Mancha", "Miguel de Cervantes",
+                            LocalDate.parse("1605-01-16"), "Clásicos", "9788484030300", 5, true, 15,
+                            new BigDecimal("19.99")),
+                    new BookResponseDTO(2L, "Cien Años de Soledad", "Gabriel García Márquez",
+                            LocalDate.parse("1967-05-30"), "Clásicos", "9788497592208", 5, true, 8,
+                            new BigDecimal("24.99")),
+                    new BookResponseDTO(3L, "1984", "George Orwell", LocalDate.parse("1949-06-08"), "Ficción",
+                            "9788499890944", 5, true, 12, new BigDecimal("18.50")),
+                    new BookResponseDTO(4L, "Orgullo y Prejuicio", "Jane Austen", LocalDate.parse("1813-01-28"),
+                            "Romance", "9788469833346", 4, true, 20, new BigDecimal("16.99")),
+                    new BookResponseDTO(5L, "El Señor de los Anillos", "J.R.R. Tolkien", LocalDate.parse("1954-07-29"),
+                            "Fantasía", "9780261102385", 5, true, 3, new BigDecimal("35.00")),
+                    new BookResponseDTO(6L, "Dune", "Frank Herbert", LocalDate.parse("1965-08-01"), "Ciencia Ficción",
+                            "9780441172719", 5, true, 10, new BigDecimal("28.99")),
+                    new BookResponseDTO(7L, "Moby Dick", "Herman Melville", LocalDate.parse("1851-10-18"), "Clásicos",
+                            "9780142437247", 4, false, 5, new BigDecimal("22.00")),
+                    new BookResponseDTO(8L, "El Principito", "Antoine de Saint-Exupéry", LocalDate.parse("1943-04-06"),
+                            "Ficción", "9788498381498", 5, true, 25, new BigDecimal("9.99")),
+                    new BookResponseDTO(9L, "Fahrenheit 451", "Ray Bradbury", LocalDate.parse("1953-10-19"),
+                            "Ciencia Ficción", "9781451673319", 5, true, 14, new BigDecimal("17.99")),
+                    new BookResponseDTO(10L, "The Great Gatsby", "F. Scott Fitzgerald", LocalDate.parse("1925-04-10"),
+                            "Clásicos", "9780743273565", 5, true, 18, new BigDecimal("15.99")),
+                    new BookResponseDTO(11L, "To Kill a Mockingbird", "Harper Lee", LocalDate.parse("1960-07-11"),
+                            "Clásicos", "9780061120084", 5, true, 12, new BigDecimal("18.99")),
+                    new BookResponseDTO(12L, "Brave New World", "Aldous Huxley", LocalDate.parse("1932-01-01"),
+                            "Ciencia Ficción", "9780060850524", 5, true, 13, new BigDecimal("16.99")),
+                    new BookResponseDTO(13L, "Crime and Punishment", "Fyodor Dostoevsky", LocalDate.parse("1866-01-01"),
+                            "Clásicos", "9780143058144", 5, true, 9, new BigDecimal("19.99")),
+                    new BookResponseDTO(14L, "Anna Karenina", "Leo Tolstoy", LocalDate.parse("1878-01-01"), "Clásicos",
+                            "9780143035008", 5, true, 10, new BigDecimal("20.99")),
+                    new BookResponseDTO(15L, "The Catcher in the Rye", "J.D. Salinger", LocalDate.parse("1951-07-16"),
+                            "Ficción", "9780316769488", 4, true, 15, new BigDecimal("17.49")),
+                    new BookResponseDTO(16L, "The Hobbit", "J.R.R. Tolkien", LocalDate.parse("1937-09-21"), "Fantasía",
+                            "9780547928227", 5, true, 11, new BigDecimal("21.99")),
+                    new BookResponseDTO(17L, "The Alchemist", "Paulo Coelho", LocalDate.parse("1988-01-01"), "Ficción",
+                            "9780061122415", 5, true, 16, new BigDecimal("16.49")),
+                    new BookResponseDTO(18L, "The Name of the Rose", "Umberto Eco", LocalDate.parse("1980-01-01"),
+                            "Misterio", "9780156001311", 5, true, 8, new BigDecimal("18.49")),
+                    new BookResponseDTO(19L, "The Shadow of the Wind", "Carlos Ruiz Zafón",
+                            LocalDate.parse("2001-01-01"), "Misterio", "9780143034902", 5, true, 12,
+                            new BigDecimal("19.49")),
+                    new BookResponseDTO(20L, "The Girl with the Dragon Tattoo", "Stieg Larsson",
+                            LocalDate.parse("2005-01-01"), "Thriller", "9780307454546", 5, true, 10,
+                            new BigDecimal("18.99")),
+                    new BookResponseDTO(21L, "Sapiens A brief Story of Human Kind", "Yuval Noah Harari",
+                            LocalDate.parse("2011-01-01"), "No Ficción", "9780062316097", 5, true, 14,
+                            new BigDecimal("22.99")),
+                    new BookResponseDTO(22L, "The metamorphosis", "Franz Kafka", LocalDate.parse("1915-01-01"),
+                            "Clásicos", "9780553213690", 5, true, 19, new BigDecimal("12.99")),
+                    new BookResponseDTO(23L, "War And Peace", "Leo Tolstoy", LocalDate.parse("1869-01-01"), "Clásicos",
+                            "9780199232765", 5, true, 7, new BigDecimal("24.99")),
+                    new BookResponseDTO(24L, "Dracula", "Bram Stoker", LocalDate.parse("1897-01-01"), "Terror",
+                            "9780486411095", 5, true, 17, new BigDecimal("14.99")),
+                    new BookResponseDTO(25L, "Frankenstein", "Mary Shelley", LocalDate.parse("1818-01-01"), "Terror",
+                            "9780486282114", 5, true, 15, new BigDecimal("13.99")),
+                    new BookResponseDTO(26L, "The Picture of Dorian Gray", "Oscar Wilde", LocalDate.parse("1890-01-01"),
+                            "Clásicos", "9780141439570", 5, true, 13, new BigDecimal("15.49")),
+                    new BookResponseDTO(27L, "The Brothers Karamazov", "Fyodor Dostoevsky",
+                            LocalDate.parse("1880-01-01"), "Clásicos", "9780374528379", 5, true, 8,
+                            new BigDecimal("23.99")),
+                    new BookResponseDTO(28L, "Notre-Dame of Paris", "Victor Hugo", LocalDate.parse("1831-01-01"),
+                            "Clásicos", "9780140443530", 4, true, 9, new BigDecimal("17.99")));
+
+            StringBuilder bulk = new StringBuilder();
+            for (BookResponseDTO book : seedBooks) {
+                bulk.append("{\"index\":{\"_index\":\"")
+                        .append(properties.getIndex())
+                        .append("\",\"_id\":\"")
+                        .append(book.getId())
+                        .append("\"}}\n");
+                bulk.append(objectMapper.writeValueAsString(book)).append("\n");
+            }
+
+            Request bulkReq = new Request("POST", "/_bulk");
+            bulkReq.setEntity(new StringEntity(bulk.toString(), ContentType.create("application/x-ndjson")));
+            bulkReq.addParameter("refresh", "true");
+            concurrencyLimiter.perform(bulkReq);
+            nearCache.clear();
+            resultCache.advanceGeneration();
+            isbnRegistry.ensureIndex();
+            isbnRegistry.claimAll(seedBooks.stream()
+                    .map(book -> Map.entry(book.getIsbn(), book.getId()))
+                    .toList());
+            invalidateFacetsCache();
+        } catch (IOException ex) {
+            throw fail("No se pudo inicializar catálogo en OpenSearch", ex);
+        }
+    }
+
+    /**
+     * Indexa o sobreescribe un libro por id aplicando la política de refresh configurada.
+     *
+     * @param book libro a indexar.
+     */
+    private void indexBook(BookResponseDTO book) {
+        try {
+            Request request = new Request("PUT", "/" + properties.getIndex() + "/_doc/" + book.getId());
+            request.setJsonEntity(objectMapper.writeValueAsString(book));
+            applyRefreshPolicy(request);
+            Response response = concurrencyLimiter.perform(request);
+            trackWrite(book.getId(), objectMapper.readTree(response.getEntity().getContent()), book);
+        } catch (IOException ex) {
+            throw fail("Error indexando libro en OpenSearch", ex);
+        }
+    }
+
+    /**
+     * Resuelve un libro por id desde la cache local o, si no está, desde OpenSearch.
+     *
+     * @param id identificador de libro.
+     * @param fields proyección de campos.
+     * @return libro versionado o `null` si no existe.
+     */
+    private VersionedBookDTO lookup(Long id, BookFields fields) {
+        return join(lookupAsync(id, fields));
+    }
+
+    /**
+     * Resuelve un libro por id desde la cache local o, si no está, desde OpenSearch.
+     *
+     * Las lecturas proyectadas piden solo esos campos a OpenSearch y no se guardan en la cache,
+     * que solo admite documentos completos. En modo degradado el libro se toma del snapshot
+     * local y se devuelve sin versión.
+     *
+     * @param id identificador de libro.
+     * @param fields proyección de campos.
+     * @return futuro con el libro versionado o `null` si no existe.
+     */
+    private CompletableFuture<VersionedBookDTO> lookupAsync(Long id, BookFields fields) {
+        BookNearCache.CachedBook cached = nearCache.get(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.book() == null ? null
+                    : new VersionedBookDTO(fields.project(cached.book()), cached.version()));
+        }
+        CompletableFuture<VersionedBookDTO> read = readLatestAsync(id, fields).thenApply(stored -> {
+            if (stored == null) {
+                return null;
+            }
+            if (fields.isAll()) {
+                nearCache.putIfNewer(id, stored.book(), stored.primaryTerm(), stored.seqNo());
+            }
+            return new VersionedBookDTO(stored.book(), stored.version());
+        });
+        return withSnapshotFallback(read, () -> {
+            BookResponseDTO book = snapshot.find(id);
+            return book == null ? null : new VersionedBookDTO(fields.project(book), null);
+        });
+    }
+
+    /**
+     * Sustituye el error de una lectura por el resultado del snapshot local cuando el cluster no
+     * está disponible y el modo degradado está habilitado.
+     *
+     * @param future lectura contra OpenSearch.
+     * @param fallback resultado equivalente desde el snapshot.
+     * @param <T> tipo del resultado.
+     * @return futuro con el resultado de OpenSearch o, en modo degradado, del snapshot.
+     */
+    private <T> CompletableFuture<T> withSnapshotFallback(CompletableFuture<T> future, Supplier<T> fallback) {
+        return future.exceptionally(ex -> {
+            if (snapshot.isFallbackAvailable() && isClusterUnavailable(ex)) {
+                return fallback.get();
+            }
+            throw ex instanceof CompletionException completion ? completion : new CompletionException(ex);
+        });
+    }
+
+    /**
+     * Evalúa si un error indica que el cluster no puede atender lecturas: fallo de conexión o
+     * timeout, respuesta `5xx` o rechazo por saturación.
+     *
+     * @param ex error de la request, posiblemente envuelto.
+     * @return `true` cuando el error no depende de la request sino del cluster.
+     */
+    private static boolean isClusterUnavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RejectedExecutionException) {
+                return true;
+            }
+            if (cause instanceof ResponseException responseEx) {
+                return responseEx.getResponse().getStatusLine().getStatusCode() >= 500;
+            }
+            if (cause instanceof JsonProcessingException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lee la última versión conocida de un libro, forzando la copia primaria cuando esta
+     * instancia escribió una versión más nueva que la devuelta.
+     *
+     * @param id identificador de libro.
+     * @param fields proyección de campos.
+     * @return futuro con el documento leído o `null` si no existe.
+     */
+    private CompletableFuture<BookHitsReader.StoredBook> readLatestAsync(Long id, BookFields fields) {
+        return getDocumentAsync(id, false, fields).thenCompose(stored -> {
+            WriteStamp written = recentWrites.get(id);
+            if (written != null) {
+                if (written.isNewerThan(stored)) {
+                    return getDocumentAsync(id, true, fields);
+                }
+                recentWrites.remove(id, written);
+            }
+            return CompletableFuture.completedFuture(stored);
+        });
+    }
+
+    /**
+     * Lee varios libros con un `_mget` realtime. Los que esta instancia escribió con una versión
+     * más nueva que la devuelta se releen desde la copia primaria, igual que en
+     * {@link #readLatestAsync(Long, BookFields)}.
+     *
+     * @param ids ids sin repetidos.
+     * @param fields proyección de campos.
+     * @return futuro con el libro de cada id, o `null` si no existe.
+     */
+    private CompletableFuture<Map<Long, BookResponseDTO>> readAllLatestAsync(List<Long> ids, BookFields fields) {
+        return multiGetAsync(ids, fields).thenCompose(docs -> {
+            Map<Long, CompletableFuture<BookHitsReader.StoredBook>> reads = new LinkedHashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Long id = ids.get(i);
+                BookHitsReader.StoredBook stored = i < docs.size() ? docs.get(i) : null;
+                WriteStamp written = recentWrites.get(id);
+                if (written != null && written.isNewerThan(stored)) {
+                    reads.put(id, getDocumentAsync(id, true, fields));
+                    continue;
+                }
+                if (written != null) {
+                    recentWrites.remove(id, written);
+                }
+                reads.put(id, CompletableFuture.completedFuture(stored));
+            }
+            return CompletableFuture.allOf(reads.values().toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+                Map<Long, BookResponseDTO> books = new HashMap<>();
+                reads.forEach((id, read) -> {
+                    BookHitsReader.StoredBook stored = read.join();
+                    if (stored != null && fields.isAll()) {
+                        nearCache.putIfNewer(id, stored.book(), stored.primaryTerm(), stored.seqNo());
+                    }
+                    books.put(id, stored == null ? null : stored.book());
+                });
+                return books;
+            });
+        });
+    }
+
+    /**
+     * Obtiene varios documentos por id con un único `_mget` realtime.
+     *
+     * @param ids ids sin repetidos.
+     * @param fields proyección de campos, enviada como `_source_includes`.
+     * @return futuro con los documentos en el orden pedido, con `null` en los que no existen.
+     */
+    private CompletableFuture<List<BookHitsReader.StoredBook>> multiGetAsync(List<Long> ids, BookFields fields) {
+        Request request = new Request("POST", "/" + properties.getIndex() + "/_mget");
+        request.addParameter("realtime", "true");
+        if (!fields.isAll()) {
+            request.addParameter("_source_includes", fields.sourceIncludesParam());
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode values = body.putArray("ids");
+        ids.forEach(id -> values.add(String.valueOf(id)));
+        request.setJsonEntity(body.toString());
+        return concurrencyLimiter.performAsync(request).handle((response, ex) -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                throw cause instanceof IOException io
+                        ? fail("Error consultando libros por id", io)
+                        : new CompletionException(cause);
+            }
+            try (JsonParser parser = objectMapper.createParser(response.getEntity().getContent())) {
+                return BookHitsReader.readMgetResponse(parser, fields);
+            } catch (IOException readEx) {
+                throw fail("Error leyendo respuesta de OpenSearch", readEx);
+            }
+        });
+    }
+
+    /**
+     * Interpreta una versión recibida en `If-Match`, aceptando comillas y prefijo débil `W/`.
+     *
+     * @param version versión recibida.
+     * @return par `{primary_term, seq_no}`.
+     * @throws IllegalArgumentException cuando la versión no tiene formato válido.
+     */
+    private long[] parseVersion(String version) {
+        String value = version.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        int separator = value.indexOf('-');
+        try {
+            return new long[] {
+                    Long.parseLong(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)) };
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Versión inválida: " + version, ex);
+        }
+    }
+
+    /**
+     * Obtiene un documento por id con GET realtime, que refleja escrituras aún no refrescadas.
+     *
+     * @param id identificador de libro.
+     * @param fromPrimary `true` para forzar la lectura desde la copia primaria.
+     * @param fields proyección de campos, enviada como `_source_includes`.
+     * @return documento leído en streaming o `null` si no existe.
+     */
+    private BookHitsReader.StoredBook getDocument(Long id, boolean fromPrimary, BookFields fields) {
+        return join(getDocumentAsync(id, fromPrimary, fields));
+    }
+
+    /**
+     * Obtiene un documento por id con GET realtime sin bloquear el hilo llamador.
+     *
+     * @param id identificador de libro.
+     * @param fromPrimary `true` para forzar la lectura desde la copia primaria.
+     * @param fields proyección de campos, enviada como `_source_includes`.
+     * @return futuro con el documento leído en streaming o `null` si no existe.
+     */
+    private CompletableFuture<BookHitsReader.StoredBook> getDocumentAsync(Long id, boolean fromPrimary,
+            BookFields fields) {
+        Request request = new Request("GET", "/" + properties.getIndex() + "/_doc/" + id);
+        request.addParameter("realtime", "true");
+        if (fromPrimary) {
+            request.addParameter("preference", "_primary");
+        }
+        if (!fields.isAll()) {
+            request.addParameter("_source_includes", fields.sourceIncludesParam());
+        }
+        return concurrencyLimiter.performAsync(request).handle((response, ex) -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                if (cause instanceof ResponseException responseEx) {
+                    if (responseEx.getResponse().getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                        return null;
+                    }
+                    throw fail("Error consultando libro por id", responseEx);
+                }
+                throw cause instanceof IOException io
+                        ? fail("Error leyendo respuesta de OpenSearch", io)
+                        : new CompletionException(cause);
+            }
+            try (JsonParser parser = objectMapper.createParser(response.getEntity().getContent())) {
+                return BookHitsReader.readGetResponse(parser, fields);
+            } catch (IOException readEx) {
+                throw fail("Error leyendo respuesta de OpenSearch", readEx);
+            }
+        });
+    }
+
+    /**
+     * Añade el parámetro `refresh` según `opensearch.write-consistency`.
+     *
+     * @param request request de escritura.
+     */
+    private void applyRefreshPolicy(Request request) {
+        switch (properties.getWriteConsistency()) {
+            case IMMEDIATE -> request.addParameter("refresh", "true");
+            case WAIT_FOR -> request.addParameter("refresh", "wait_for");
+            case ASYNC -> {
+            }
+        }
+    }
+
+    /**
+     * Registra `_seq_no`/`_primary_term` de una escritura local para garantizar que las
+     * lecturas por id posteriores de esta instancia no devuelvan una versión anterior,
+     * actualiza la cache local y el índice de sugerencias con la versión escrita y avanza la
+     * generación de la cache de resultados.
+     *
+     * @param id identificador de libro.
+     * @param writeResponse respuesta de la escritura.
+     * @param written libro resultante o `null` si la escritura fue una baja.
+     */
+    private void trackWrite(Long id, JsonNode writeResponse, BookResponseDTO written) {
+        trackWrite(id, writeResponse.path("_primary_term").asLong(0L), writeResponse.path("_seq_no").asLong(-1L),
+                written);
+    }
+
+    /**
+     * Variante de {@link #trackWrite(Long, JsonNode, BookResponseDTO)} con la versión ya leída.
+     *
+     * @param id identificador de libro.
+     * @param primaryTerm `_primary_term` de la escritura.
+     * @param seqNo `_seq_no` de la escritura, negativo si se desconoce.
+     * @param written libro resultante o `null` si la escritura fue una baja.
+     */
+    private void trackWrite(Long id, long primaryTerm, long seqNo, BookResponseDTO written) {
+        nearCache.putIfNewer(id, written, primaryTerm, seqNo);
+        suggestIndex.apply(id, written);
+        snapshot.apply(id, written);
+        resultCache.advanceGeneration();
+        if (seqNo < 0) {
+            return;
+        }
+        boolean deleted = written == null;
+        long now = System.currentTimeMillis();
+        if (recentWrites.size() >= RECENT_WRITES_MAX_ENTRIES) {
+            recentWrites.values().removeIf(stamp -> stamp.writtenAtMs() < now - RECENT_WRITES_TTL_MS);
+        }
+        WriteStamp stamp = new WriteStamp(primaryTerm, seqNo, deleted, now);
+        recentWrites.merge(id, stamp, (current, next) -> next.isAfter(current) ? next : current);
+    }
+
+    /**
+     * Construye el documento de un libro nuevo a partir del payload de creación.
+     *
+     * @param id id asignado.
+     * @param dto payload de creación.
+     * @return libro listo para indexar.
+     */
+    private BookResponseDTO toBook(long id, BookRequestDTO dto) {
+        return new BookResponseDTO(
+                id,
+                dto.getTitle(),
+                dto.getAuthor(),
+                dto.getPublicationDate(),
+                dto.getCategory(),
+                dto.getIsbn(),
+                dto.getRating(),
+                dto.getVisible(),
+                dto.getStock(),
+                dto.getPrice());
+    }
+
+    /**
+     * Actualiza `index.refresh_interval`; `null` restablece el valor por defecto del cluster.
+     *
+     * @param interval intervalo de refresh o `null`.
+     * @throws IOException cuando falla la llamada a OpenSearch.
+     */
+    private void putRefreshInterval(String interval) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("index").put("refresh_interval", interval);
+        Request request = new Request("PUT", "/" + properties.getIndex() + "/_settings");
+        request.setJsonEntity(body.toString());
+        concurrencyLimiter.perform(request);
+    }
+
+    /**
+     * Ejecuta una consulta `_search` y retorna el JSON raíz.
+     *
+     * @param body cuerpo de consulta OpenSearch.
+     * @return respuesta parseada.
+     * @throws IOException cuando falla llamada de red o parseo.
+     */
+    private JsonNode executeSearch(SearchBodyWriter.Body body) throws IOException {
+        return executeSearch("/" + properties.getIndex() + "/_search", body);
+    }
+
+    /**
+     * Ejecuta una consulta de búsqueda contra un endpoint concreto (índice o point-in-time).
+     * El cuerpo se serializa directamente a bytes y esos mismos bytes forman la clave con la que
+     * se agrupan búsquedas idénticas en vuelo.
+     *
+     * @param endpoint ruta `_search` a invocar.
+     * @param body cuerpo de consulta OpenSearch.
+     * @return respuesta parseada.
+     * @throws IOException cuando falla llamada de red o parseo.
+     */
+    private JsonNode executeSearch(String endpoint, SearchBodyWriter.Body body) throws IOException {
+        return executeSearch(endpoint, body, JsonNode.class, objectMapper::readTree);
+    }
+
+    /**
+     * Ejecuta una consulta de documentos y decodifica los hits en streaming, sin construir el
+     * árbol de la respuesta.
+     *
+     * @param endpoint ruta `_search` a invocar.
+     * @param body cuerpo de consulta OpenSearch.
+     * @param fields proyección incluida en el cuerpo.
+     * @return hits decodificados.
+     * @throws IOException cuando falla llamada de red o parseo.
+     */
+    private BookHitsReader.SearchHits searchHits(String endpoint, SearchBodyWriter.Body body, BookFields fields)
+            throws IOException {
+        return await(searchHitsAsync(endpoint, body, fields));
+    }
+
+    /**
+     * Inicia una consulta de documentos cuyos hits se decodifican en streaming al llegar la
+     * respuesta.
+     *
+     * @param endpoint ruta `_search` a invocar.
+     * @param body cuerpo de consulta OpenSearch.
+     * @param fields proyección incluida en el cuerpo.
+     * @return futuro con los hits decodificados.
+     * @throws IOException cuando falla la serialización del cuerpo.
+     */
+    private CompletableFuture<BookHitsReader.SearchHits> searchHitsAsync(String endpoint, SearchBodyWriter.Body body,
+            BookFields fields) throws IOException {
+        return executeSearchAsync(endpoint, body, BookHitsReader.SearchHits.class,
+                parser -> BookHitsReader.readSearchResponse(parser, fields));
+    }
+
+    /**
+     * Escribe `_source` con los campos de la proyección; sin proyección no escribe nada.
+     *
+     * @param generator generador posicionado dentro del objeto raíz.
+     * @param fields proyección de campos.
+     * @throws IOException cuando falla la escritura.
+     */
+    private void writeSourceIncludes(JsonGenerator generator, BookFields fields) throws IOException {
+        if (!fields.isAll()) {
+            generator.writeFieldName("_source");
+            generator.writeRawValue(fields.sourceIncludes());
+        }
+    }
+
+    /**
+     * Serializa el cuerpo, agrupa búsquedas idénticas en vuelo y parsea la respuesta.
+     *
+     * @param endpoint ruta `_search` a invocar.
+     * @param body cuerpo de consulta OpenSearch.
+     * @param type tipo de la respuesta parseada; forma parte de la clave de agrupación.
+     * @param reader lector de la respuesta.
+     * @param <T> tipo de la respuesta parseada.
+     * @return respuesta parseada.
+     * @throws IOException cuando falla llamada de red o parseo.
+     */
+    private <T> T executeSearch(String endpoint, SearchBodyWriter.Body body, Class<T> type, ResponseReader<T> reader)
+            throws IOException {
+        return await(executeSearchAsync(endpoint, body, type, reader));
+    }
+
+    /**
+     * Serializa el cuerpo e inicia la búsqueda, o se une a una idéntica en vuelo.
+     *
+     * @param endpoint ruta `_search` a invocar.
+     * @param body cuerpo de consulta OpenSearch.
+     * @param type tipo de la respuesta parseada; forma parte de la clave de agrupación.
+     * @param reader lector de la respuesta.
+     * @param <T> tipo de la respuesta parseada.
+     * @return futuro con la respuesta parseada.
+     * @throws IOException cuando falla la serialización del cuerpo.
+     */
+    private <T> CompletableFuture<T> executeSearchAsync(String endpoint, SearchBodyWriter.Body body, Class<T> type,
+            ResponseReader<T> reader) throws IOException {
+        byte[] json = SearchBodyWriter.write(objectMapper.getFactory(), body);
+        return searchCoalescer.execute(new SearchKey(endpoint, json, type),
+                () -> sendSearch(endpoint, json, reader));
+    }
+
+    /**
+     * Envía una consulta a través del limitador de concurrencia. Ante un `429` el limitador
+     * reduce el límite y reintenta la lectura con espera creciente (120 ms por intento, hasta 3
+     * intentos); si el cluster sigue saturado, el futuro falla con
+     * {@link RejectedExecutionException} y el controlador responde `503`.
+     *
+     * @param endpoint endpoint `_search` destino.
+     * @param json cuerpo de consulta serializado en UTF-8.
+     * @param reader lector de la respuesta.
+     * @param <T> tipo de la respuesta parseada.
+     * @return futuro con la respuesta parseada.
+     */
+    private <T> CompletableFuture<T> sendSearch(String endpoint, byte[] json, ResponseReader<T> reader) {
+        Request request = new Request("GET", endpoint);
+        request.setEntity(new ByteArrayEntity(json, ContentType.APPLICATION_JSON));
+        return concurrencyLimiter.performAsync(request).thenApply(response -> readResponse(response, reader));
+    }
+
+    /**
+     * Parsea una respuesta ya recibida.
+     *
+     * @param response respuesta de OpenSearch.
+     * @param reader lector de la respuesta.
+     * @param <T> tipo de la respuesta parseada.
+     * @return respuesta parseada.
+     * @throws CompletionException con la `IOException` original cuando la respuesta no puede leerse.
+     */
+    private <T> T readResponse(Response response, ResponseReader<T> reader) {
+        try (JsonParser parser = objectMapper.createParser(response.getEntity().getContent())) {
+            return reader.read(parser);
+        } catch (IOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    /**
+     * Espera un futuro desde código síncrono propagando su error original.
+     *
+     * @param future futuro a esperar.
+     * @param <T> tipo del resultado.
+     * @return resultado del futuro.
+     * @throws IOException cuando el futuro falló por E/S.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Espera un futuro que solo falla con excepciones runtime, propagando la original.
+     *
+     * @param future futuro a esperar.
+     * @param <T> tipo del resultado.
+     * @return resultado del futuro.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (unwrap(ex) instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Obtiene la causa original de un error envuelto por las etapas de un futuro.
+     *
+     * @param ex error recibido en una etapa.
+     * @return causa original.
+     */
+    private static Throwable unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Escribe la consulta `bool` equivalente a los criterios de búsqueda.
+     *
+     * @param generator generador posicionado dentro del objeto raíz.
+     * @param criteria filtros de búsqueda.
+     * @throws IOException cuando falla la escritura.
+     */
+    private void writeSearchQuery(JsonGenerator generator, BookSearchCriteria criteria) throws IOException {
+        generator.writeFieldName(SearchBodyWriter.QUERY);
+        if (!hasTextQuery(criteria) && !hasFilters(criteria)) {
+            generator.writeRawValue(SearchBodyWriter.MATCH_ALL);
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.BOOL);
+        generator.writeStartObject();
+
+        generator.writeFieldName(SearchBodyWriter.MUST);
+        generator.writeStartArray();
+        writeTitleQuery(generator, criteria.getTitle());
+        writeAuthorQuery(generator, criteria.getAuthor());
+        generator.writeEndArray();
+
+        generator.writeFieldName(SearchBodyWriter.FILTER);
+        generator.writeStartArray();
+        if (criteria.getCategory() != null && !criteria.getCategory().isBlank()) {
+            writeCompatibleFilter(generator, "category", "category.keyword", criteria.getCategory());
+        }
+        if (criteria.getIsbn() != null && !criteria.getIsbn().isBlank()) {
+            writeTermFilter(generator, "isbn", criteria.getIsbn());
+        }
+        if (criteria.getVisible() != null) {
+            writeTermFilter(generator, "visible", criteria.getVisible());
+        }
+        if (criteria.getRatingMin() != null || criteria.getRatingMax() != null) {
+            writeRangeFilter(generator, "rating", criteria.getRatingMin(), criteria.getRatingMax());
+        }
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            writeRangeFilter(generator, "price", criteria.getMinPrice(), criteria.getMaxPrice());
+        }
+        if (criteria.getPublicationDateFrom() != null || criteria.getPublicationDateTo() != null) {
+            writeRangeFilter(generator, "publicationDate", criteria.getPublicationDateFrom(),
+                    criteria.getPublicationDateTo());
+        }
+        if (criteria.getMinStock() != null) {
+            writeRangeFilter(generator, "stock", criteria.getMinStock(), null);
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Indica si los criterios incluyen cláusulas de texto que puntúan relevancia.
+     *
+     * @param criteria filtros de búsqueda.
+     * @return `true` si hay título o autor.
      */
-    private void ensureIndex() {
-        try {
-            Response head = restClient.performRequest(new Request("HEAD", "/" + properties.getIndex()));
-            if (head.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-                return;
-            }
-        } catch (ResponseException ex) {
-            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
-                throw fail("Error validando índice de OpenSearch", ex);
-            }
-        } catch (IOException ex) {
-            throw fail("Error de red validando índice", ex);
-        }
-
-        createIndexWithExpectedMapping(properties.getIndex());
+    private boolean hasTextQuery(BookSearchCriteria criteria) {
+        return (criteria.getTitle() != null && !criteria.getTitle().isBlank())
+                || (criteria.getAuthor() != null && !criteria.getAuthor().isBlank());
     }
 
     /**
-     * Construye el mapping canónico del índice de catálogo.
-     * Es usado tanto para creación inicial como para migraciones.
+     * Indica si los criterios incluyen algún filtro estructurado.
      *
-     * @return objeto JSON con `mappings.properties`.
+     * @param criteria filtros de búsqueda.
+     * @return `true` si hay al menos un filtro.
      */
-    private ObjectNode buildIndexMappingDefinition() {
-        ObjectNode body = objectMapper.createObjectNode();
-        ObjectNode mappings = body.putObject("mappings").putObject("properties");
-
-        mappings.putObject("id").put("type", "long");
-        mappings.putObject("isbn").put("type", "keyword");
-        mappings.putObject("category").put("type", "keyword");
-        mappings.putObject("rating").put("type", "integer");
-        mappings.putObject("visible").put("type", "boolean");
-        mappings.putObject("stock").put("type", "integer");
-        mappings.putObject("price").put("type", "double");
-        mappings.putObject("publicationDate").put("type", "date").put("format", "yyyy-MM-dd");
-
-        ObjectNode title = mappings.putObject("title");
-        title.put("type", "text");
-        ObjectNode titleFields = title.putObject("fields");
-        titleFields.putObject("keyword").put("type", "keyword");
-        titleFields.putObject("suggest").put("type", "search_as_you_type");
+    private boolean hasFilters(BookSearchCriteria criteria) {
+        return (criteria.getCategory() != null && !criteria.getCategory().isBlank())
+                || (criteria.getIsbn() != null && !criteria.getIsbn().isBlank())
+                || criteria.getVisible() != null
+                || criteria.getRatingMin() != null || criteria.getRatingMax() != null
+                || criteria.getMinPrice() != null || criteria.getMaxPrice() != null
+                || criteria.getPublicationDateFrom() != null || criteria.getPublicationDateTo() != null
+                || criteria.getMinStock() != null;
+    }
 
-        ObjectNode author = mappings.putObject("author");
-        author.put("type", "text");
-        ObjectNode authorFields = author.putObject("fields");
-        authorFields.putObject("keyword").put("type", "keyword");
-        authorFields.putObject("suggest").put("type", "search_as_you_type");
-        return body;
+    /**
+     * Escribe la referencia al point-in-time de una consulta paginada.
+     *
+     * @param generator generador posicionado dentro del objeto raíz.
+     * @param pitId id del point-in-time.
+     * @throws IOException cuando falla la escritura.
+     */
+    private void writePit(JsonGenerator generator, String pitId) throws IOException {
+        generator.writeObjectFieldStart("pit");
+        generator.writeStringField("id", pitId);
+        generator.writeStringField("keep_alive", properties.getPitKeepAlive());
+        generator.writeEndObject();
     }
 
     /**
-     * Crea un índice con el mapping esperado para catálogo.
+     * Criterios equivalentes al listado público: solo libros visibles.
      *
-     * @param indexName nombre del índice a crear.
+     * @return criterios con `visible=true`.
      */
-    private void createIndexWithExpectedMapping(String indexName) {
-        try {
-            Request create = new Request("PUT", "/" + indexName);
-            create.setJsonEntity(buildIndexMappingDefinition().toString());
-            restClient.performRequest(create);
-        } catch (IOException ex) {
-            throw fail("No se pudo crear el índice de OpenSearch", ex);
-        }
+    private BookSearchCriteria visibleOnlyCriteria() {
+        BookSearchCriteria criteria = new BookSearchCriteria();
+        criteria.setVisible(true);
+        return criteria;
     }
 
     /**
-     * Inserta catálogo semilla inicial mediante operación bulk NDJSON.
+     * Abre un point-in-time sobre el índice de catálogo.
+     *
+     * @return id del point-in-time o `null` si el cluster no lo soporta.
      */
-    private void syncSeedData() {
+    private String openPointInTime() {
         try {
-            List<BookResponseDTO> seedBooks = List.of(
-                    new BookResponseDTO(1L, "Don Quijote de la Mancha", "Miguel de Cervantes",
-                            LocalDate.parse("1605-01-16"), "Clásicos", "9788484030300", 5, true, 15,
-                            new BigDecimal("19.99")),
-                    new BookResponseDTO(2L, "Cien Años de Soledad", "Gabriel García Márquez",
-                            LocalDate.parse("1967-05-30"), "Clásicos", "9788497592208", 5, true, 8,
-                            new BigDecimal("24.99")),
-                    new BookResponseDTO(3L, "1984", "George Orwell", LocalDate.parse("1949-06-08"), "Ficción",
-                            "9788499890944", 5, true, 12, new BigDecimal("18.50")),
-                    new BookResponseDTO(4L, "Orgullo y Prejuicio", "Jane Austen", LocalDate.parse("1813-01-28"),
-                            "Romance", "9788469833346", 4, true, 20, new BigDecimal("16.99")),
-                    new BookResponseDTO(5L, "El Señor de los Anillos", "J.R.R. Tolkien", LocalDate.parse("1954-07-29"),
-                            "Fantasía", "9780261102385", 5, true, 3, new BigDecimal("35.00")),
-                    new BookResponseDTO(6L, "Dune", "Frank Herbert", LocalDate.parse("1965-08-01"), "Ciencia Ficción",
-                            "9780441172719", 5, true, 10, new BigDecimal("28.99")),
-                    new BookResponseDTO(7L, "Moby Dick", "Herman Melville", LocalDate.parse("1851-10-18"), "Clásicos",
-                            "9780142437247", 4, false, 5, new BigDecimal("22.00")),
-                    new BookResponseDTO(8L, "El Principito", "Antoine de Saint-Exupéry", LocalDate.parse("1943-04-06"),
-                            "Ficción", "9788498381498", 5, true, 25, new BigDecimal("9.99")),
-                    new BookResponseDTO(9L, "Fahrenheit 451", "Ray Bradbury", LocalDate.parse("1953-10-19"),
-                            "Ciencia Ficción", "9781451673319", 5, true, 14, new BigDecimal("17.99")),
-                    new BookResponseDTO(10L, "The Great Gatsby", "F. Scott Fitzgerald", LocalDate.parse("1925-04-10"),
-                            "Clásicos", "9780743273565", 5, true, 18, new BigDecimal("15.99")),
-                    new BookResponseDTO(11L, "To Kill a Mockingbird", "Harper Lee", LocalDate.parse("1960-07-11"),
-                            "Clásicos", "9780061120084", 5, true, 12, new BigDecimal("18.99")),
-                    new BookResponseDTO(12L, "Brave New World", "Aldous Huxley", LocalDate.parse("1932-01-01"),
-                            "Ciencia Ficción", "9780060850524", 5, true, 13, new BigDecimal("16.99")),
-                    new BookResponseDTO(13L, "Crime and Punishment", "Fyodor Dostoevsky", LocalDate.parse("1866-01-01"),
-                            "Clásicos", "9780143058144", 5, true, 9, new BigDecimal("19.99")),
-                    new BookResponseDTO(14L, "Anna Karenina", "Leo Tolstoy", LocalDate.parse("1878-01-01"), "Clásicos",
-                            "9780143035008", 5, true, 10, new BigDecimal("20.99")),
-                    new BookResponseDTO(15L, "The Catcher in the Rye", "J.D. Salinger", LocalDate.parse("1951-07-16"),
-                            "Ficción", "9780316769488", 4, true, 15, new BigDecimal("17.49")),
-                    new BookResponseDTO(16L, "The Hobbit", "J.R.R. Tolkien", LocalDate.parse("1937-09-21"), "Fantasía",
-                            "9780547928227", 5, true, 11, new BigDecimal("21.99")),
-                    new BookResponseDTO(17L, "The Alchemist", "Paulo Coelho", LocalDate.parse("1988-01-01"), "Ficción",
-                            "9780061122415", 5, true, 16, new BigDecimal("16.49")),
-                    new BookResponseDTO(18L, "The Name of the Rose", "Umberto Eco", LocalDate.parse("1980-01-01"),
-                            "Misterio", "9780156001311", 5, true, 8, new BigDecimal("18.49")),
-                    new BookResponseDTO(19L, "The Shadow of the Wind", "Carlos Ruiz Zafón",
-                            LocalDate.parse("2001-01-01"), "Misterio", "9780143034902", 5, true, 12,
-                            new BigDecimal("19.49")),
-                    new BookResponseDTO(20L, "The Girl with the Dragon Tattoo", "Stieg Larsson",
-                            LocalDate.parse("2005-01-01"), "Thriller", "9780307454546", 5, true, 10,
-                            new BigDecimal("18.99")),
-                    new BookResponseDTO(21L, "Sapiens A brief Story of Human Kind", "Yuval Noah Harari",
-                            LocalDate.parse("2011-01-01"), "No Ficción", "9780062316097", 5, true, 14,
-                            new BigDecimal("22.99")),
-                    new BookResponseDTO(22L, "The metamorphosis", "Franz Kafka", LocalDate.parse("1915-01-01"),
-                            "Clásicos", "9780553213690", 5, true, 19, new BigDecimal("12.99")),
-                    new BookResponseDTO(23L, "War And Peace", "Leo Tolstoy", LocalDate.parse("1869-01-01"), "Clásicos",
-                            "9780199232765", 5, true, 7, new BigDecimal("24.99")),
-                    new BookResponseDTO(24L, "Dracula", "Bram Stoker", LocalDate.parse("1897-01-01"), "Terror",
-                            "9780486411095", 5, true, 17, new BigDecimal("14.99")),
-                    new BookResponseDTO(25L, "Frankenstein", "Mary Shelley", LocalDate.parse("1818-01-01"), "Terror",
-                            "9780486282114", 5, true, 15, new BigDecimal("13.99")),
-                    new BookResponseDTO(26L, "The Picture of Dorian Gray", "Oscar Wilde", LocalDate.parse("1890-01-01"),
-                            "Clásicos", "9780141439570", 5, true, 13, new BigDecimal("15.49")),
-                    new BookResponseDTO(27L, "The Brothers Karamazov", "Fyodor Dostoevsky",
-                            LocalDate.parse("1880-01-01"), "Clásicos", "9780374528379", 5, true, 8,
-                            new BigDecimal("23.99")),
-                    new BookResponseDTO(28L, "Notre-Dame of Paris", "Victor Hugo", LocalDate.parse("1831-01-01"),
-                            "Clásicos", "9780140443530", 4, true, 9, new BigDecimal("17.99")));
-
-            StringBuilder bulk = new StringBuilder();
-            for (BookResponseDTO book : seedBooks) {
-                bulk.append("{\"index\":{\"_index\":\"")
-                        .append(properties.getIndex())
-                        .append("\",\"_id\":\"")
-                        .append(book.getId())
-                        .append("\"}}\n");
-                bulk.append(objectMapper.writeValueAsString(book)).append("\n");
+            Request request = new Request("POST", "/" + properties.getIndex() + "/_search/point_in_time");
+            request.addParameter("keep_alive", properties.getPitKeepAlive());
+            Response response = concurrencyLimiter.perform(request);
+            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
+            return root.path("pit_id").asText(null);
+        } catch (ResponseException ex) {
+            int code = ex.getResponse().getStatusLine().getStatusCode();
+            if (code == HttpStatus.SC_BAD_REQUEST || code == HttpStatus.SC_NOT_FOUND
+                    || code == HttpStatus.SC_METHOD_NOT_ALLOWED || code == HttpStatus.SC_FORBIDDEN) {
+                return null;
             }
-
-            Request bulkReq = new Request("POST", "/_bulk");
-            bulkReq.setEntity(new StringEntity(bulk.toString(), ContentType.create("application/x-ndjson")));
-            bulkReq.addParameter("refresh", "true");
-            restClient.performRequest(bulkReq);
-            invalidateFacetsCache();
+            throw fail("Error abriendo point-in-time en OpenSearch", ex);
         } catch (IOException ex) {
-            throw fail("No se pudo inicializar catálogo en OpenSearch", ex);
+            throw fail("Error abriendo point-in-time en OpenSearch", ex);
         }
     }
 
     /**
-     * Indexa o sobreescribe un libro por id y refresca índice para lectura inmediata.
+     * Libera un point-in-time al terminar la paginación.
+     * Es best-effort: si falla, el point-in-time expira por `keep_alive`.
      *
-     * @param book libro a indexar.
+     * @param pitId id del point-in-time o `null`.
      */
-    private void indexBook(BookResponseDTO book) {
+    private void closePointInTime(String pitId) {
+        if (pitId == null) {
+            return;
+        }
         try {
-            Request request = new Request("PUT", "/" + properties.getIndex() + "/_doc/" + book.getId());
-            request.setJsonEntity(objectMapper.writeValueAsString(book));
-            request.addParameter("refresh", "true");
-            restClient.performRequest(request);
-        } catch (IOException ex) {
-            throw fail("Error indexando libro en OpenSearch", ex);
+            Request request = new Request("DELETE", "/_search/point_in_time");
+            ObjectNode body = objectMapper.createObjectNode();
+            body.putArray("pit_id").add(pitId);
+            request.setJsonEntity(body.toString());
+            concurrencyLimiter.perform(request);
+        } catch (IOException ignored) {
+            // El point-in-time expira solo tras keep_alive.
         }
     }
 
     /**
-     * Calcula el siguiente id secuencial basado en el mayor id actual.
+     * Recorre un slice del point-in-time paginando con `search_after` ordenado por `id`.
      *
-     * @return siguiente id disponible.
+     * @param criteria filtros de búsqueda.
+     * @param pitId id del point-in-time o `null` para recorrer el índice directamente.
+     * @param sliceId slice a recorrer.
+     * @param maxSlices total de slices.
+     * @param sink consumidor serializado de libros.
+     * @param exported contador compartido de libros exportados.
      */
-    private long getNextId() {
-        ObjectNode body = objectMapper.createObjectNode();
-        body.put("size", 1);
-        ObjectNode query = body.putObject("query");
-        query.putObject("match_all");
-        ArrayNode sort = body.putArray("sort");
-        sort.add(objectMapper.createObjectNode().set("id", objectMapper.createObjectNode().put("order", "desc")));
+    private void scanSlice(
+            BookSearchCriteria criteria,
+            String pitId,
+            int sliceId,
+            int maxSlices,
+            Consumer<BookResponseDTO> sink,
+            AtomicLong exported) {
+        int batchSize = Math.max(1, properties.getExportBatchSize());
+        String endpoint = pitId != null ? "/_search" : "/" + properties.getIndex() + "/_search";
+        JsonNode searchAfter = null;
+        while (true) {
+            JsonNode after = searchAfter;
+            SearchBodyWriter.Body body = generator -> {
+                generator.writeNumberField("size", batchSize);
+                generator.writeBooleanField("track_total_hits", false);
+                writeSearchQuery(generator, criteria);
+                generator.writeFieldName("sort");
+                generator.writeRawValue(SearchBodyWriter.SORT_BY_ID);
+                if (maxSlices > 1) {
+                    generator.writeObjectFieldStart("slice");
+                    generator.writeNumberField("id", sliceId);
+                    generator.writeNumberField("max", maxSlices);
+                    generator.writeEndObject();
+                }
+                if (after != null) {
+                    generator.writeFieldName("search_after");
+                    generator.writeTree(after);
+                }
+                if (pitId != null) {
+                    writePit(generator, pitId);
+                }
+            };
 
-        List<BookResponseDTO> books = executeSearchAndParse(body);
-        if (books.isEmpty()) {
-            return 1L;
+            BookHitsReader.SearchHits hits;
+            try {
+                hits = searchHits(endpoint, body, BookFields.ALL);
+            } catch (IOException ex) {
+                throw fail("Error exportando catálogo desde OpenSearch", ex);
+            }
+            for (BookResponseDTO book : hits.books()) {
+                sink.accept(book);
+                exported.incrementAndGet();
+            }
+            int count = hits.books().size();
+            if (count < batchSize || hits.sorts().get(count - 1) == null) {
+                return;
+            }
+            searchAfter = hits.sorts().get(count - 1);
         }
-        return books.get(0).getId() + 1L;
     }
 
     /**
-     * Ejecuta una consulta `_search` y retorna el JSON raíz.
+     * Espera la finalización de un slice y cancela el resto si alguno falla.
      *
-     * @param body cuerpo de consulta OpenSearch.
-     * @return respuesta parseada.
-     * @throws IOException cuando falla llamada de red o parseo.
+     * @param future slice esperado.
+     * @param all todos los slices de la exportación.
      */
-    private JsonNode executeSearch(ObjectNode body) throws IOException {
-        int maxAttempts = 3;
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                Request request = new Request("GET", "/" + properties.getIndex() + "/_search");
-                request.setJsonEntity(body.toString());
-                Response response = restClient.performRequest(request);
-                return objectMapper.readTree(response.getEntity().getContent());
-            } catch (ResponseException ex) {
-                if (isTooManyRequests(ex) && attempt < maxAttempts) {
-                    sleepBackoff(attempt);
-                    continue;
-                }
-                throw ex;
+    private void awaitSlice(Future<?> future, List<Future<?>> all) {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            all.forEach(other -> other.cancel(true));
+            throw fail("Exportación interrumpida", ex);
+        } catch (ExecutionException ex) {
+            all.forEach(other -> other.cancel(true));
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
             }
+            throw fail("Error exportando catálogo", ex);
         }
-        throw new IllegalStateException("Error inesperado ejecutando búsqueda en OpenSearch");
     }
 
     /**
-     * Evalúa si está habilitada una migración automática de mapping para facets y, de ser
-     * necesario, ejecuta una reindexación de mantenimiento conservando documentos.
+     * Envuelve un consumidor para que sus invocaciones concurrentes queden serializadas.
+     *
+     * @param sink consumidor original.
+     * @return consumidor thread-safe.
      */
-    private void migrateIncompatibleFacetsMappingIfEnabled() {
-        if (!properties.isRecreateOnIncompatibleMapping()) {
-            return;
-        }
-        if (!hasIncompatibleFacetsMapping()) {
-            return;
-        }
-
-        String sourceIndex = properties.getIndex();
-        String tempIndex = sourceIndex + "-compat-" + System.currentTimeMillis();
-        try {
-            createIndexWithExpectedMapping(tempIndex);
-            reindex(sourceIndex, tempIndex);
-            deleteIndex(sourceIndex);
-            createIndexWithExpectedMapping(sourceIndex);
-            reindex(tempIndex, sourceIndex);
-            deleteIndex(tempIndex);
-        } catch (Exception ex) {
-            throw fail("No se pudo migrar mapping incompatible de facets", ex);
-        }
+    private Consumer<BookResponseDTO> serialized(Consumer<BookResponseDTO> sink) {
+        Object lock = new Object();
+        return book -> {
+            synchronized (lock) {
+                sink.accept(book);
+            }
+        };
     }
 
     /**
-     * Detecta incompatibilidad de mapping para aggregations de facets.
-     * Considera incompatible cuando `category` o `author` son `text` sin subcampo `keyword`.
+     * Hash de la consulta paginada que se guarda en el cursor. Solo usa hashes de valores
+     * (textos, números, fechas), por lo que coincide entre instancias.
      *
-     * @return `true` si el índice actual requiere migración.
+     * @param criteria filtros de búsqueda.
+     * @param sort orden de resultados.
+     * @param fields proyección de campos.
+     * @return hash de filtros, orden y proyección.
      */
-    private boolean hasIncompatibleFacetsMapping() {
-        try {
-            Response response = restClient.performRequest(new Request("GET", "/" + properties.getIndex() + "/_mapping"));
-            JsonNode root = objectMapper.readTree(response.getEntity().getContent());
-            JsonNode propertiesNode = root.path(properties.getIndex()).path("mappings").path("properties");
-
-            JsonNode categoryNode = propertiesNode.path("category");
-            JsonNode authorNode = propertiesNode.path("author");
-
-            boolean categoryIncompatible = "text".equals(categoryNode.path("type").asText())
-                    && categoryNode.path("fields").path("keyword").isMissingNode();
-            boolean authorIncompatible = "text".equals(authorNode.path("type").asText())
-                    && authorNode.path("fields").path("keyword").isMissingNode();
-            return categoryIncompatible || authorIncompatible;
-        } catch (IOException ex) {
-            throw fail("Error validando compatibilidad de mapping de facets", ex);
-        }
+    private static int cursorQueryHash(BookSearchCriteria criteria, BookSort sort, BookFields fields) {
+        return Objects.hash(criteria.getTitle(), criteria.getAuthor(), criteria.getCategory(), criteria.getIsbn(),
+                criteria.getRatingMin(), criteria.getRatingMax(), criteria.getVisible(),
+                criteria.getMinPrice() == null ? null : criteria.getMinPrice().stripTrailingZeros(),
+                criteria.getMaxPrice() == null ? null : criteria.getMaxPrice().stripTrailingZeros(),
+                criteria.getPublicationDateFrom(), criteria.getPublicationDateTo(), criteria.getMinStock(),
+                sort.toString(), fields.names());
     }
 
     /**
-     * Ejecuta reindexación entre dos índices.
+     * Codifica la posición de paginación como cursor opaco base64url.
      *
-     * @param sourceIndex índice origen.
-     * @param destinationIndex índice destino.
+     * @param pitId id del point-in-time o `null`.
+     * @param searchAfter valores `sort` del último hit entregado.
+     * @param queryHash hash de la consulta que generó la página.
+     * @return cursor opaco.
      */
-    private void reindex(String sourceIndex, String destinationIndex) {
-        ObjectNode body = objectMapper.createObjectNode();
-        body.putObject("source").put("index", sourceIndex);
-        body.putObject("dest").put("index", destinationIndex);
-        body.put("conflicts", "proceed");
-        try {
-            Request request = new Request("POST", "/_reindex");
-            request.addParameter("refresh", "true");
-            request.setJsonEntity(body.toString());
-            restClient.performRequest(request);
-        } catch (IOException ex) {
-            throw fail("Error reindexando de " + sourceIndex + " a " + destinationIndex, ex);
-        }
+    private String encodeCursor(String pitId, JsonNode searchAfter, int queryHash) {
+        ObjectNode cursor = objectMapper.createObjectNode();
+        cursor.put("pit", pitId);
+        cursor.set("after", searchAfter);
+        cursor.put("q", queryHash);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Elimina un índice si existe.
+     * Decodifica un cursor opaco generado por {@link #encodeCursor(String, JsonNode, int)}.
      *
-     * @param indexName índice a eliminar.
+     * @param cursor cursor recibido del cliente.
+     * @return posición de paginación.
+     * @throws IllegalArgumentException cuando el cursor no es válido.
      */
-    private void deleteIndex(String indexName) {
+    private SearchCursor decodeCursor(String cursor) {
         try {
-            restClient.performRequest(new Request("DELETE", "/" + indexName));
-        } catch (ResponseException ex) {
-            if (ex.getResponse().getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
-                throw fail("Error eliminando índice " + indexName, ex);
+            JsonNode root = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+            JsonNode after = root.path("after");
+            if (!after.isArray() || after.isEmpty() || !root.path("q").isInt()) {
+                throw new IllegalArgumentException("Cursor inválido");
             }
-        } catch (IOException ex) {
-            throw fail("Error eliminando índice " + indexName, ex);
+            return new SearchCursor(root.path("pit").asText(null), (ArrayNode) after, root.path("q").intValue());
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Cursor inválido", ex);
         }
     }
 
@@ -722,17 +1972,12 @@ public class OpenSearchBookStore {
      * Ejecuta búsqueda y convierte hits a DTO de libro.
      *
      * @param body cuerpo de consulta OpenSearch.
+     * @param fields proyección incluida en el cuerpo.
      * @return lista de libros parseados.
      */
-    private List<BookResponseDTO> executeSearchAndParse(ObjectNode body) {
+    private List<BookResponseDTO> executeSearchAndParse(SearchBodyWriter.Body body, BookFields fields) {
         try {
-            JsonNode root = executeSearch(body);
-            ArrayNode hits = (ArrayNode) root.path("hits").path("hits");
-            List<BookResponseDTO> books = new ArrayList<>();
-            for (JsonNode hit : hits) {
-                books.add(parseBookSource(hit.path("_source")));
-            }
-            return books;
+            return searchHits("/" + properties.getIndex() + "/_search", body, fields).books();
         } catch (IOException ex) {
             throw fail("Error ejecutando búsqueda en OpenSearch", ex);
         }
@@ -748,198 +1993,278 @@ public class OpenSearchBookStore {
      * @return clave canónica para caché.
      */
     private String buildFacetsCacheKey(String text, Boolean visible, String category, String author) {
-        return normalize(text) + "|" + Objects.toString(visible, "") + "|"
-                + normalize(category) + "|" + normalize(author);
+        return TextNormalizer.normalize(text) + "|" + Objects.toString(visible, "") + "|"
+                + TextNormalizer.normalize(category) + "|" + TextNormalizer.normalize(author);
     }
 
     /**
-     * Lee un valor vigente de caché de facets.
+     * Actualiza contadores y caché de facets solo si la escritura cambia campos que participan en
+     * las consultas de facets; cambios de stock o precio no invalidan nada.
      *
-     * @param key clave de consulta.
-     * @return respuesta cacheada si no expiró; `null` en otro caso.
+     * @param before versión anterior o `null` en altas.
+     * @param after versión nueva o `null` en bajas.
      */
-    private BookFacetsResponseDTO readFreshFacetsCache(String key) {
-        CacheEntry<BookFacetsResponseDTO> entry = facetsCache.get(key);
-        if (entry == null) {
-            return null;
-        }
-        if (entry.expiresAtMs() < System.currentTimeMillis()) {
-            facetsCache.remove(key);
-            return null;
+    private void recordFacetChange(BookResponseDTO before, BookResponseDTO after) {
+        if (!BookFacetCounters.affectsFacets(before, after)) {
+            return;
         }
-        return entry.value();
-    }
-
-    /**
-     * Lee un valor cacheado aunque esté expirado, útil como fallback ante 429.
-     *
-     * @param key clave de consulta.
-     * @return última respuesta cacheada o `null`.
-     */
-    private BookFacetsResponseDTO readStaleFacetsCache(String key) {
-        CacheEntry<BookFacetsResponseDTO> entry = facetsCache.get(key);
-        return entry == null ? null : entry.value();
+        facetCounters.apply(before, after);
+        invalidateFacetsCache();
     }
 
     /**
-     * Guarda respuesta de facets en caché con TTL fijo.
+     * Cuenta documentos por visibilidad y por valor de un campo `keyword` recorriendo una
+     * composite aggregation completa.
      *
-     * @param key clave de consulta.
-     * @param value respuesta agregada.
+     * @param field campo a contar o `null` para contar solo por visibilidad (clave `""`).
+     * @return conteos `visible -> valor -> documentos`.
+     * @throws IOException cuando falla la agregación.
      */
-    private void writeFacetsCache(String key, BookFacetsResponseDTO value) {
-        facetsCache.put(key, new CacheEntry<>(value, System.currentTimeMillis() + FACETS_CACHE_TTL_MS));
+    private Map<Boolean, Map<String, Long>> countByVisibility(String field) throws IOException {
+        Map<Boolean, Map<String, Long>> counts = new HashMap<>();
+        JsonNode afterKey = null;
+        do {
+            JsonNode after = afterKey;
+            SearchBodyWriter.Body body = generator -> {
+                generator.writeNumberField("size", 0);
+                generator.writeObjectFieldStart("aggs");
+                generator.writeObjectFieldStart("counts");
+                generator.writeObjectFieldStart("composite");
+                generator.writeNumberField("size", FACET_COUNTERS_PAGE_SIZE);
+                generator.writeArrayFieldStart("sources");
+                generator.writeRawValue(SearchBodyWriter.VISIBLE_COMPOSITE_SOURCE);
+                if (field != null) {
+                    generator.writeStartObject();
+                    generator.writeObjectFieldStart("value");
+                    generator.writeObjectFieldStart("terms");
+                    generator.writeStringField("field", field);
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                if (after != null) {
+                    generator.writeFieldName("after");
+                    generator.writeTree(after);
+                }
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.writeEndObject();
+            };
+            JsonNode aggregation = executeSearch(body).path("aggregations").path("counts");
+            for (JsonNode bucket : aggregation.path("buckets")) {
+                JsonNode key = bucket.path("key");
+                Boolean visible = key.path("visible").isNull() ? null : key.path("visible").asBoolean();
+                counts.computeIfAbsent(visible, ignored -> new HashMap<>())
+                        .put(field == null ? "" : key.path("value").asText(), bucket.path("doc_count").asLong());
+            }
+            afterKey = aggregation.path("buckets").isEmpty() ? null : aggregation.get("after_key");
+        } while (afterKey != null);
+        return counts;
     }
 
     /**
      * Invalida por completo la caché de facets tras mutaciones de catálogo.
      */
     private void invalidateFacetsCache() {
-        facetsCache.clear();
+        facetsCache.invalidateAll();
     }
 
     /**
-     * Mapea un `_source` JSON a `BookResponseDTO`.
+     * Ejecuta un `_update` con `_source=true` y decodifica la respuesta en streaming, de modo
+     * que el libro resultante conserva el precio decimal exacto.
      *
-     * @param source nodo fuente del documento.
-     * @return dto de libro normalizado.
+     * @param request request `_update`.
+     * @return resultado, versión y libro resultante.
+     * @throws IOException cuando falla la llamada o la lectura.
      */
-    private BookResponseDTO parseBookSource(JsonNode source) {
-        LocalDate publicationDate = null;
-        if (source.hasNonNull("publicationDate") && !source.get("publicationDate").asText().isBlank()) {
-            publicationDate = LocalDate.parse(source.get("publicationDate").asText());
+    private BookHitsReader.UpdatedBook performUpdate(Request request) throws IOException {
+        Response response = concurrencyLimiter.perform(request);
+        try (JsonParser parser = objectMapper.createParser(response.getEntity().getContent())) {
+            return BookHitsReader.readUpdateResponse(parser);
         }
-
-        BigDecimal price = source.hasNonNull("price")
-                ? BigDecimal.valueOf(source.get("price").asDouble())
-                : BigDecimal.ZERO;
-
-        return new BookResponseDTO(
-                source.path("id").asLong(),
-                source.path("title").asText(null),
-                source.path("author").asText(null),
-                publicationDate,
-                source.path("category").asText(null),
-                source.path("isbn").asText(null),
-                source.hasNonNull("rating") ? source.get("rating").asInt() : null,
-                source.hasNonNull("visible") ? source.get("visible").asBoolean() : Boolean.FALSE,
-                source.hasNonNull("stock") ? source.get("stock").asInt() : 0,
-                price);
     }
 
     /**
-     * Añade condición de título usando `bool_prefix` sobre campos `search_as_you_type`.
+     * Escribe condición de título usando `bool_prefix` sobre campos `search_as_you_type`.
      *
-     * @param must nodo de cláusulas obligatorias.
+     * @param generator generador posicionado dentro del arreglo `must`.
      * @param value término de título.
+     * @throws IOException cuando falla la escritura.
      */
-    private void addTitleQuery(ArrayNode must, String value) {
+    private void writeTitleQuery(JsonGenerator generator, String value) throws IOException {
         if (value == null || value.isBlank()) {
             return;
         }
-        ObjectNode multiMatch = objectMapper.createObjectNode();
-        multiMatch.put("query", value.trim());
-        multiMatch.put("type", "bool_prefix");
-        multiMatch.put("operator", "and");
-        ArrayNode fields = multiMatch.putArray("fields");
-        fields.add("title");
-        fields.add("title.suggest");
-        fields.add("title.suggest._2gram");
-        fields.add("title.suggest._3gram");
-        must.add(objectMapper.createObjectNode().set("multi_match", multiMatch));
+        writeBoolPrefixQuery(generator, value.trim(), SearchBodyWriter.TITLE_PREFIX_FIELDS);
+    }
+
+    /**
+     * Escribe una `multi_match` de tipo `bool_prefix` con operador `and`.
+     *
+     * @param generator generador posicionado dentro del arreglo `must`.
+     * @param query texto a buscar.
+     * @param fields arreglo de campos precodificado.
+     * @throws IOException cuando falla la escritura.
+     */
+    private void writeBoolPrefixQuery(JsonGenerator generator, String query, SerializableString fields)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("multi_match");
+        generator.writeFieldName(SearchBodyWriter.QUERY);
+        generator.writeString(query);
+        generator.writeStringField("type", "bool_prefix");
+        generator.writeStringField("operator", "and");
+        generator.writeFieldName("fields");
+        generator.writeRawValue(fields);
+        generator.writeEndObject();
+        generator.writeEndObject();
     }
 
     /**
-     * Añade condición por autor en modo `match_phrase_prefix`.
+     * Escribe condición por autor en modo `match_phrase_prefix`.
      *
-     * @param must nodo de cláusulas obligatorias.
+     * @param generator generador posicionado dentro del arreglo `must`.
      * @param value término de autor.
+     * @throws IOException cuando falla la escritura.
      */
-    private void addAuthorQuery(ArrayNode must, String value) {
+    private void writeAuthorQuery(JsonGenerator generator, String value) throws IOException {
         if (value == null || value.isBlank()) {
             return;
         }
-        ObjectNode phrasePrefix = objectMapper.createObjectNode();
-        phrasePrefix.putObject("author")
-                .put("query", value.trim());
-        must.add(objectMapper.createObjectNode().set("match_phrase_prefix", phrasePrefix));
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("match_phrase_prefix");
+        generator.writeObjectFieldStart("author");
+        generator.writeFieldName(SearchBodyWriter.QUERY);
+        generator.writeString(value.trim());
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndObject();
     }
 
     /**
-     * Añade filtro exacto por campo (`term` query).
+     * Escribe filtro exacto por campo (`term` query).
      *
-     * @param filter nodo de filtros.
+     * @param generator generador posicionado dentro del arreglo `filter`.
      * @param field nombre de campo.
      * @param value valor exacto a comparar.
+     * @throws IOException cuando falla la escritura.
      */
-    private void addTermFilter(ArrayNode filter, String field, Object value) {
+    private void writeTermFilter(JsonGenerator generator, String field, Object value) throws IOException {
         if (value == null) {
             return;
         }
-        ObjectNode termNode = objectMapper.createObjectNode();
-        ObjectNode valueNode = termNode.putObject(field);
-        if (value instanceof String text) {
-            valueNode.put("value", text);
-        } else if (value instanceof Boolean bool) {
-            valueNode.put("value", bool);
-        } else if (value instanceof Integer number) {
-            valueNode.put("value", number);
-        } else {
-            valueNode.put("value", Objects.toString(value));
-        }
-        filter.add(objectMapper.createObjectNode().set("term", termNode));
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.TERM);
+        writeFieldValue(generator, field, SearchBodyWriter.VALUE, value);
+        generator.writeEndObject();
     }
 
     /**
-     * Añade un filtro de categoría compatible con índices legacy y nuevos:
-     * intenta `term` sobre `category` y `category.keyword`, además de `match_phrase`
-     * para mappings antiguos donde `category` es `text`.
+     * Escribe un filtro compatible con índices legacy y nuevos: `term` sobre el campo y su
+     * subcampo `keyword`, además de `match_phrase` para mappings antiguos donde el campo es `text`.
      *
-     * @param filter nodo de filtros.
-     * @param category categoría solicitada.
+     * @param generator generador posicionado dentro del arreglo `filter`.
+     * @param field campo base (`category` o `author`).
+     * @param keywordField subcampo `keyword` del campo.
+     * @param value valor solicitado.
+     * @throws IOException cuando falla la escritura.
      */
-    private void addCompatibleCategoryFilter(ArrayNode filter, String category) {
-        if (category == null || category.isBlank()) {
-            return;
-        }
-        ObjectNode boolNode = objectMapper.createObjectNode();
-        ObjectNode bool = boolNode.putObject("bool");
-        ArrayNode should = bool.putArray("should");
-        bool.put("minimum_should_match", 1);
-
-        ObjectNode categoryTerm = objectMapper.createObjectNode();
-        categoryTerm.putObject("category").put("value", category);
-        should.add(objectMapper.createObjectNode().set("term", categoryTerm));
-
-        ObjectNode categoryKeywordTerm = objectMapper.createObjectNode();
-        categoryKeywordTerm.putObject("category.keyword").put("value", category);
-        should.add(objectMapper.createObjectNode().set("term", categoryKeywordTerm));
+    private void writeCompatibleFilter(JsonGenerator generator, String field, String keywordField, String value)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.BOOL);
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.SHOULD);
+        generator.writeStartArray();
+
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.TERM);
+        writeFieldValue(generator, field, SearchBodyWriter.VALUE, value);
+        generator.writeEndObject();
+
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.TERM);
+        writeFieldValue(generator, keywordField, SearchBodyWriter.VALUE, value);
+        generator.writeEndObject();
+
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.MATCH_PHRASE);
+        writeFieldValue(generator, field, SearchBodyWriter.QUERY, value);
+        generator.writeEndObject();
+
+        generator.writeEndArray();
+        generator.writeFieldName(SearchBodyWriter.MINIMUM_SHOULD_MATCH);
+        generator.writeNumber(1);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
 
-        ObjectNode matchPhrase = objectMapper.createObjectNode();
-        matchPhrase.putObject("category").put("query", category);
-        should.add(objectMapper.createObjectNode().set("match_phrase", matchPhrase));
-        filter.add(boolNode);
+    /**
+     * Escribe `{"<field>":{"<key>":<value>}}`.
+     *
+     * @param generator generador posicionado donde va el objeto.
+     * @param field nombre de campo.
+     * @param key clave interna (`value` o `query`).
+     * @param value valor a escribir.
+     * @throws IOException cuando falla la escritura.
+     */
+    private void writeFieldValue(JsonGenerator generator, String field, SerializableString key, Object value)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart(field);
+        generator.writeFieldName(key);
+        writeValue(generator, value);
+        generator.writeEndObject();
+        generator.writeEndObject();
     }
 
     /**
-     * Añade filtro de rango (`gte`/`lte`) para campo numérico o fecha.
+     * Escribe filtro de rango (`gte`/`lte`) para campo numérico o fecha.
      *
-     * @param filter nodo de filtros.
+     * @param generator generador posicionado dentro del arreglo `filter`.
      * @param field nombre del campo.
      * @param gte límite inferior opcional.
      * @param lte límite superior opcional.
+     * @throws IOException cuando falla la escritura.
      */
-    private void addRangeFilter(ArrayNode filter, String field, Object gte, Object lte) {
-        ObjectNode values = objectMapper.createObjectNode();
+    private void writeRangeFilter(JsonGenerator generator, String field, Object gte, Object lte)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("range");
+        generator.writeObjectFieldStart(field);
         if (gte != null) {
-            putNodeValue(values, "gte", gte);
+            generator.writeFieldName("gte");
+            writeValue(generator, gte);
         }
         if (lte != null) {
-            putNodeValue(values, "lte", lte);
+            generator.writeFieldName("lte");
+            writeValue(generator, lte);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Escribe un valor tipado con la misma representación que {@link #putNodeValue}.
+     *
+     * @param generator generador posicionado donde va el valor.
+     * @param value valor a serializar.
+     * @throws IOException cuando falla la escritura.
+     */
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Boolean boolValue) {
+            generator.writeBoolean(boolValue);
+        } else if (value instanceof Integer intValue) {
+            generator.writeNumber(intValue);
+        } else if (value instanceof Long longValue) {
+            generator.writeNumber(longValue);
+        } else if (value instanceof BigDecimal decimalValue) {
+            generator.writeNumber(decimalValue);
+        } else {
+            generator.writeString(Objects.toString(value));
         }
-        ObjectNode rangeField = objectMapper.createObjectNode();
-        rangeField.set(field, values);
-        filter.add(objectMapper.createObjectNode().set("range", rangeField));
     }
 
     /**
@@ -950,6 +2275,10 @@ public class OpenSearchBookStore {
      * @param value valor a serializar.
      */
     private void putNodeValue(ObjectNode node, String field, Object value) {
+        if (value instanceof Boolean boolValue) {
+            node.put(field, boolValue);
+            return;
+        }
         if (value instanceof Integer intValue) {
             node.put(field, intValue);
             return;
@@ -969,6 +2298,19 @@ public class OpenSearchBookStore {
         node.put(field, Objects.toString(value));
     }
 
+    /**
+     * Escribe un campo en el nodo solo cuando el valor está informado.
+     *
+     * @param node nodo destino.
+     * @param field nombre de campo.
+     * @param value valor opcional.
+     */
+    private void putIfPresent(ObjectNode node, String field, Object value) {
+        if (value != null) {
+            putNodeValue(node, field, value);
+        }
+    }
+
     /**
      * Convierte buckets de una terms aggregation en mapa ordenado.
      *
@@ -986,68 +2328,83 @@ public class OpenSearchBookStore {
     }
 
     /**
-     * Construye request de facets usando aggregations por campo.
-     * Para categoría intenta primero `category.keyword` y para autor `author.keyword`.
+     * Escribe el request de facets: filtros base y las aggregations indicadas.
+     * Las aggregations por campo usan `category.keyword` y `author.keyword`; el fallback usa
+     * scripts sobre `_source`.
      *
+     * @param generator generador posicionado dentro del objeto raíz.
      * @param text texto base opcional.
      * @param visible visibilidad opcional.
-     * @param useKeywordFields cuando es `true`, usa subcampos `.keyword`.
-     * @return cuerpo JSON para `_search`.
+     * @param category categoría opcional.
+     * @param author autor opcional.
+     * @param aggs aggregations precodificadas.
+     * @throws IOException cuando falla la escritura.
      */
-    private ObjectNode buildFacetAggregationRequest(
+    private void writeFacetsRequest(
+            JsonGenerator generator,
             String text,
             Boolean visible,
             String category,
             String author,
-            boolean useKeywordFields) {
-        ObjectNode body = objectMapper.createObjectNode();
-        body.put("size", 0);
-        addFacetQuery(body, text, visible, category, author);
-
-        ObjectNode aggs = body.putObject("aggs");
-        String categoryField = useKeywordFields ? "category.keyword" : "category";
-        String authorField = useKeywordFields ? "author.keyword" : "author";
-        aggs.putObject("by_category").putObject("terms").put("field", categoryField).put("size", 20);
-        aggs.putObject("by_author").putObject("terms").put("field", authorField).put("size", 20);
-        return body;
+            SerializableString aggs) throws IOException {
+        generator.writeNumberField("size", 0);
+        writeFacetQuery(generator, text, visible, category, author);
+        generator.writeFieldName("aggs");
+        generator.writeRawValue(aggs);
     }
 
     /**
-     * Añade filtro base de texto/visibilidad al body de facets.
+     * Escribe filtro base de texto/visibilidad del request de facets.
      *
-     * @param body cuerpo de consulta en construcción.
+     * @param generator generador posicionado dentro del objeto raíz.
      * @param text texto de consulta opcional.
      * @param visible filtro de visibilidad opcional.
+     * @param category categoría opcional.
+     * @param author autor opcional.
+     * @throws IOException cuando falla la escritura.
      */
-    private void addFacetQuery(ObjectNode body, String text, Boolean visible, String category, String author) {
+    private void writeFacetQuery(JsonGenerator generator, String text, Boolean visible, String category,
+            String author) throws IOException {
         if ((text == null || text.isBlank()) && visible == null
                 && (category == null || category.isBlank())
                 && (author == null || author.isBlank())) {
             return;
         }
-        ObjectNode query = body.putObject("query").putObject("bool");
-        ArrayNode must = query.putArray("must");
-        ArrayNode filter = query.putArray("filter");
+        generator.writeFieldName(SearchBodyWriter.QUERY);
+        generator.writeStartObject();
+        generator.writeFieldName(SearchBodyWriter.BOOL);
+        generator.writeStartObject();
 
+        generator.writeFieldName(SearchBodyWriter.MUST);
+        generator.writeStartArray();
         if (text != null && !text.isBlank()) {
-            ObjectNode multiMatch = objectMapper.createObjectNode();
-            multiMatch.put("query", text);
-            multiMatch.put("fuzziness", "AUTO");
-            ArrayNode fields = multiMatch.putArray("fields");
-            fields.add("title");
-            fields.add("author");
-            fields.add("category");
-            must.add(objectMapper.createObjectNode().set("multi_match", multiMatch));
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("multi_match");
+            generator.writeFieldName(SearchBodyWriter.QUERY);
+            generator.writeString(text);
+            generator.writeStringField("fuzziness", "AUTO");
+            generator.writeFieldName("fields");
+            generator.writeRawValue(SearchBodyWriter.FACET_TEXT_FIELDS);
+            generator.writeEndObject();
+            generator.writeEndObject();
         }
+        generator.writeEndArray();
+
+        generator.writeFieldName(SearchBodyWriter.FILTER);
+        generator.writeStartArray();
         if (visible != null) {
-            addTermFilter(filter, "visible", visible);
+            writeTermFilter(generator, "visible", visible);
         }
         if (category != null && !category.isBlank()) {
-            addCompatibleCategoryFilter(filter, category);
+            writeCompatibleFilter(generator, "category", "category.keyword", category);
         }
         if (author != null && !author.isBlank()) {
-            addCompatibleAuthorFilter(filter, author);
+            writeCompatibleFilter(generator, "author", "author.keyword", author);
         }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.writeEndObject();
     }
 
     /**
@@ -1065,25 +2422,9 @@ public class OpenSearchBookStore {
             String category,
             String author,
             IOException originalEx) {
-        ObjectNode body = objectMapper.createObjectNode();
-        body.put("size", 0);
-        addFacetQuery(body, text, visible, category, author);
-
-        ObjectNode aggs = body.putObject("aggs");
-        ObjectNode categoryTerms = aggs.putObject("by_category").putObject("terms");
-        categoryTerms.put("size", 20);
-        categoryTerms.putObject("script")
-                .put("lang", "painless")
-                .put("source", "def c = params._source['category']; if (c == null) return null; return c;");
-
-        ObjectNode authorTerms = aggs.putObject("by_author").putObject("terms");
-        authorTerms.put("size", 20);
-        authorTerms.putObject("script")
-                .put("lang", "painless")
-                .put("source", "def a = params._source['author']; if (a == null) return null; return a;");
-
         try {
-            JsonNode root = executeSearch(body);
+            JsonNode root = executeSearch(generator -> writeFacetsRequest(generator, text, visible, category,
+                    author, SearchBodyWriter.SOURCE_SCRIPT_FACET_AGGS));
             Map<String, Long> categories = parseTermsAgg(root, "by_category");
             Map<String, Long> authors = parseTermsAgg(root, "by_author");
             long total = root.path("hits").path("total").path("value").asLong(0L);
@@ -1093,36 +2434,6 @@ public class OpenSearchBookStore {
         }
     }
 
-    /**
-     * Añade filtro de autor compatible con índices legacy y nuevos:
-     * intenta `term` sobre `author.keyword` y `author`, además de `match_phrase`.
-     *
-     * @param filter nodo de filtros.
-     * @param author autor solicitado.
-     */
-    private void addCompatibleAuthorFilter(ArrayNode filter, String author) {
-        if (author == null || author.isBlank()) {
-            return;
-        }
-        ObjectNode boolNode = objectMapper.createObjectNode();
-        ObjectNode bool = boolNode.putObject("bool");
-        ArrayNode should = bool.putArray("should");
-        bool.put("minimum_should_match", 1);
-
-        ObjectNode authorKeywordTerm = objectMapper.createObjectNode();
-        authorKeywordTerm.putObject("author.keyword").put("value", author);
-        should.add(objectMapper.createObjectNode().set("term", authorKeywordTerm));
-
-        ObjectNode authorTerm = objectMapper.createObjectNode();
-        authorTerm.putObject("author").put("value", author);
-        should.add(objectMapper.createObjectNode().set("term", authorTerm));
-
-        ObjectNode matchPhrase = objectMapper.createObjectNode();
-        matchPhrase.putObject("author").put("query", author);
-        should.add(objectMapper.createObjectNode().set("match_phrase", matchPhrase));
-        filter.add(boolNode);
-    }
-
     /**
      * Detecta si una excepción proviene de una incompatibilidad de mapping para aggregations.
      *
@@ -1147,53 +2458,112 @@ public class OpenSearchBookStore {
     }
 
     /**
-     * Evalúa si una excepción corresponde a límite de concurrencia (HTTP 429).
+     * Marca de la última escritura local de un documento.
      *
-     * @param ex excepción evaluada.
-     * @return `true` cuando la causa es `Too Many Requests`.
+     * @param primaryTerm `_primary_term` devuelto por la escritura.
+     * @param seqNo `_seq_no` devuelto por la escritura.
+     * @param deleted `true` si la escritura fue una baja.
+     * @param writtenAtMs instante de la escritura en epoch millis.
      */
-    private boolean isTooManyRequests(IOException ex) {
-        if (ex instanceof ResponseException responseException) {
-            int code = responseException.getResponse().getStatusLine().getStatusCode();
-            return code == 429;
+    private record WriteStamp(long primaryTerm, long seqNo, boolean deleted, long writtenAtMs) {
+        /**
+         * Evalúa si esta escritura es posterior a otra según (`_primary_term`, `_seq_no`).
+         */
+        boolean isAfter(WriteStamp other) {
+            return primaryTerm > other.primaryTerm
+                    || (primaryTerm == other.primaryTerm && seqNo > other.seqNo);
+        }
+
+        /**
+         * Evalúa si la respuesta de un GET todavía no refleja esta escritura.
+         */
+        boolean isNewerThan(BookHitsReader.StoredBook read) {
+            if (read == null) {
+                return !deleted;
+            }
+            return primaryTerm > read.primaryTerm()
+                    || (primaryTerm == read.primaryTerm() && seqNo > read.seqNo());
         }
-        return isTooManyRequestsMessage(ex.getMessage());
     }
 
     /**
-     * Evalúa si un texto contiene la marca de error por límite de concurrencia.
+     * Consulta de facets usada como clave de caché. La igualdad se basa en la clave normalizada,
+     * por lo que variantes de mayúsculas o acentos comparten entrada.
      *
-     * @param message mensaje de error.
-     * @return `true` si contiene señal de `Too Many Requests`.
+     * @param key clave normalizada.
+     * @param text texto libre original.
+     * @param visible filtro de visibilidad.
+     * @param category categoría original.
+     * @param author autor original.
      */
-    private boolean isTooManyRequestsMessage(String message) {
-        String value = message == null ? "" : message.toLowerCase();
-        return value.contains("429 too many requests")
-                || value.contains("concurrent request limit exceeded");
+    private record FacetsQuery(String key, String text, Boolean visible, String category, String author) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FacetsQuery query && key.equals(query.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
     }
 
     /**
-     * Pausa corta de reintento para amortiguar picos de concurrencia contra OpenSearch.
+     * Posición de paginación decodificada desde un cursor.
      *
-     * @param attempt número de intento actual (1..N).
+     * @param pitId id del point-in-time o `null` si se pagina sobre el índice.
+     * @param searchAfter valores `sort` del último hit entregado.
+     * @param queryHash hash de filtros, orden y proyección de la consulta que lo generó.
      */
-    private void sleepBackoff(int attempt) {
-        long delayMs = 120L * attempt;
-        try {
-            Thread.sleep(delayMs);
-        } catch (InterruptedException interrupted) {
-            Thread.currentThread().interrupt();
+    private record SearchCursor(String pitId, ArrayNode searchAfter, int queryHash) {
+    }
+
+    /**
+     * Clave canónica de un listado o búsqueda en la cache de resultados.
+     *
+     * @param criteria filtros de búsqueda, comparados por contenido.
+     * @param sort orden en su forma de parámetro.
+     * @param fields campos proyectados.
+     */
+    private record SearchResultKey(BookSearchCriteria criteria, String sort, Set<String> fields) {
+    }
+
+    /**
+     * Clave de una búsqueda para agrupar requests idénticas en vuelo: endpoint y cuerpo
+     * serializado, comparados por contenido.
+     *
+     * @param endpoint ruta `_search`.
+     * @param body cuerpo JSON en UTF-8.
+     * @param type tipo de la respuesta parseada.
+     */
+    private record SearchKey(String endpoint, byte[] body, Class<?> type) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SearchKey key && endpoint.equals(key.endpoint) && type == key.type
+                    && Arrays.equals(body, key.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * endpoint.hashCode() + type.hashCode()) + Arrays.hashCode(body);
         }
     }
 
     /**
-     * Entrada de caché en memoria para facets.
+     * Lector de la respuesta de una búsqueda.
      *
-     * @param <T> tipo de valor cacheado.
-     * @param value valor almacenado.
-     * @param expiresAtMs instante de expiración en epoch millis.
+     * @param <T> tipo de la respuesta parseada.
      */
-    private record CacheEntry<T>(T value, long expiresAtMs) {
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        /**
+         * Lee la respuesta completa.
+         *
+         * @param parser parser al inicio de la respuesta.
+         * @return respuesta parseada.
+         * @throws IOException cuando la respuesta no puede leerse.
+         */
+        T read(JsonParser parser) throws IOException;
     }
 
     /**
@@ -1219,15 +2589,4 @@ public class OpenSearchBookStore {
     private RuntimeException fail(String message, Exception ex) {
         return new IllegalStateException(message + ": " + ex.getMessage(), ex);
     }
-
-    /**
-     * Normaliza texto removiendo acentos y espacios extra para comparar sugerencias.
-     *
-     * @param input texto de entrada.
-     * @return texto normalizado en minúsculas.
-     */
-    private String normalize(String input) {
-        String normalized = Normalizer.normalize(input == null ? "" : input, Normalizer.Form.NFD);
-        return normalized.replaceAll("\\p{M}", "").toLowerCase().trim();
-    }
 }
@@ -0,0 +1,437 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
+import org.opensearch.client.ResponseListener;
+import org.opensearch.client.RestClient;
+import org.springframework.stereotype.Component;
+
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Límite adaptativo de concurrencia (AIMD) para todas las requests a OpenSearch.
+ * Lecturas y escrituras tienen presupuestos separados. Cada presupuesto crece en uno por cada
+ * ventana de `limit` respuestas sanas (`1/limit` por respuesta) y se reduce un 10% ante un `429`,
+ * un timeout o, en lecturas, una latencia mayor a `opensearch.read-latency-threshold`. Con el
+ * límite alcanzado las requests esperan en una cola acotada como máximo
+ * `opensearch.concurrency-queue-timeout`; si la cola está llena o vence la espera se rechazan con
+ * {@link RejectedExecutionException} y el controlador responde `503`. Las lecturas que reciben
+ * `429` se reintentan hasta {@value #TOO_MANY_REQUESTS_MAX_ATTEMPTS} veces con espera creciente
+ * y, si persiste, se rechazan igual; las escrituras no se reintentan. Una escritura rechazada
+ * con `403 cluster_block_exception` (índice con escrituras bloqueadas durante el cierre de una
+ * migración) también se propaga como rechazo, para que el cliente reintente en lugar de recibir
+ * un `500`.
+ * Expone `catalogue.opensearch.concurrency.limit`, `.inflight`, `.queued` y `.rejected` con tag
+ * `budget=read|write`.
+ */
+@Component
+@RequiredArgsConstructor
+public class OpenSearchConcurrencyLimiter {
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int TOO_MANY_REQUESTS_MAX_ATTEMPTS = 3;
+    private static final long TOO_MANY_REQUESTS_BACKOFF_MS = 120L;
+
+    private final RestClient restClient;
+    private final OpenSearchProperties properties;
+    private final MeterRegistry meterRegistry;
+    private Budget reads;
+    private Budget writes;
+
+    /**
+     * Crea los presupuestos y registra sus métricas.
+     */
+    @PostConstruct
+    void initialize() {
+        long queueTimeoutMs = properties.getConcurrencyQueueTimeout().toMillis();
+        reads = new Budget(properties.getReadConcurrencyLimit(), properties.getConcurrencyQueueSize(),
+                queueTimeoutMs, properties.getReadLatencyThreshold().toNanos());
+        writes = new Budget(properties.getWriteConcurrencyLimit(), properties.getConcurrencyQueueSize(),
+                queueTimeoutMs, 0L);
+        registerMetrics("read", reads);
+        registerMetrics("write", writes);
+    }
+
+    /**
+     * Ejecuta una request de forma síncrona dentro de su presupuesto.
+     *
+     * @param request request a enviar.
+     * @return respuesta de OpenSearch.
+     * @throws IOException cuando falla la llamada.
+     * @throws RejectedExecutionException cuando el presupuesto está agotado, vence la espera en
+     *         cola o OpenSearch sigue respondiendo `429`.
+     */
+    public Response perform(Request request) throws IOException {
+        Budget budget = budgetFor(request);
+        for (int attempt = 1;; attempt++) {
+            awaitAdmission(budget.acquire());
+            long start = System.nanoTime();
+            try {
+                Response response = restClient.performRequest(request);
+                budget.release(false, System.nanoTime() - start);
+                return response;
+            } catch (IOException ex) {
+                budget.release(isOverload(ex), System.nanoTime() - start);
+                if (isWriteBlocked(ex)) {
+                    throw writeBlocked(ex);
+                }
+                if (!isTooManyRequests(ex)) {
+                    throw ex;
+                }
+                if (budget != reads || attempt >= TOO_MANY_REQUESTS_MAX_ATTEMPTS) {
+                    throw saturated(ex);
+                }
+                sleepBeforeRetry(attempt, ex);
+            } catch (RuntimeException ex) {
+                budget.release(false, System.nanoTime() - start);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una request sin bloquear el hilo llamador dentro de su presupuesto.
+     *
+     * @param request request a enviar.
+     * @return futuro con la respuesta o con el error de OpenSearch; falla con
+     *         {@link RejectedExecutionException} cuando el presupuesto está agotado, vence la espera
+     *         en cola o OpenSearch sigue respondiendo `429`.
+     */
+    public CompletableFuture<Response> performAsync(Request request) {
+        return performAsync(request, budgetFor(request), 1);
+    }
+
+    /**
+     * Envía un intento asíncrono; los `429` de lecturas se reintentan con un temporizador en
+     * lugar de dormir un hilo.
+     *
+     * @param request request a enviar.
+     * @param budget presupuesto de la request.
+     * @param attempt número de intento actual (1..N).
+     * @return futuro con la respuesta o con el error de OpenSearch.
+     */
+    private CompletableFuture<Response> performAsync(Request request, Budget budget, int attempt) {
+        CompletableFuture<Void> admission;
+        try {
+            admission = budget.acquire();
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<Response> response = admission.thenCompose(ignored -> send(request, budget));
+        return response.exceptionallyCompose(ex -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof Exception failure && isWriteBlocked(failure)) {
+                return CompletableFuture.failedFuture(writeBlocked(failure));
+            }
+            if (!(cause instanceof Exception failure) || !isTooManyRequests(failure)) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            if (budget != reads || attempt >= TOO_MANY_REQUESTS_MAX_ATTEMPTS) {
+                return CompletableFuture.failedFuture(saturated(failure));
+            }
+            Executor backoff = CompletableFuture.delayedExecutor(
+                    TOO_MANY_REQUESTS_BACKOFF_MS * attempt, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> attempt + 1, backoff)
+                    .thenCompose(next -> performAsync(request, budget, next));
+        });
+    }
+
+    /**
+     * Envía una request ya admitida y libera su lugar al recibir la respuesta, también cuando el
+     * cliente falla antes de enviarla.
+     *
+     * @param request request a enviar.
+     * @param budget presupuesto que admitió la request.
+     * @return futuro con la respuesta o con el error de OpenSearch.
+     */
+    private CompletableFuture<Response> send(Request request, Budget budget) {
+        long start = System.nanoTime();
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            restClient.performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    budget.release(false, System.nanoTime() - start);
+                    future.complete(response);
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    budget.release(isOverload(exception), System.nanoTime() - start);
+                    future.completeExceptionally(exception);
+                }
+            });
+        } catch (RuntimeException ex) {
+            budget.release(false, System.nanoTime() - start);
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Espera la admisión de una request síncrona.
+     *
+     * @param admission admisión devuelta por el presupuesto.
+     * @throws RejectedExecutionException cuando vence la espera en cola.
+     */
+    private static void awaitAdmission(CompletableFuture<Void> admission) {
+        try {
+            admission.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RejectedExecutionException rejected) {
+                throw rejected;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Espera antes de reintentar una lectura rechazada con `429`.
+     *
+     * @param attempt intento que falló.
+     * @param cause `429` recibido.
+     * @throws RejectedExecutionException si el hilo se interrumpe durante la espera.
+     */
+    private static void sleepBeforeRetry(int attempt, IOException cause) {
+        try {
+            Thread.sleep(TOO_MANY_REQUESTS_BACKOFF_MS * attempt);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw saturated(cause);
+        }
+    }
+
+    /**
+     * Clasifica una request: búsquedas, conteos y lecturas consumen el presupuesto de lectura;
+     * el resto, el de escritura.
+     *
+     * @param request request a clasificar.
+     * @return presupuesto aplicable.
+     */
+    private Budget budgetFor(Request request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return reads;
+        }
+        String endpoint = request.getEndpoint();
+        return endpoint.contains("/_search") || endpoint.contains("/_count") || endpoint.contains("/_mget")
+                ? reads
+                : writes;
+    }
+
+    /**
+     * Registra las métricas de un presupuesto.
+     *
+     * @param name nombre del presupuesto.
+     * @param budget presupuesto.
+     */
+    private void registerMetrics(String name, Budget budget) {
+        Gauge.builder("catalogue.opensearch.concurrency.limit", budget, Budget::limit)
+                .tag("budget", name)
+                .description("Límite adaptativo de requests simultáneas a OpenSearch")
+                .register(meterRegistry);
+        Gauge.builder("catalogue.opensearch.concurrency.inflight", budget, Budget::inFlight)
+                .tag("budget", name)
+                .register(meterRegistry);
+        Gauge.builder("catalogue.opensearch.concurrency.queued", budget, Budget::queued)
+                .tag("budget", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("catalogue.opensearch.concurrency.rejected", budget.rejected, AtomicLong::get)
+                .tag("budget", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Evalúa si un error indica saturación del cluster.
+     *
+     * @param ex error de la request.
+     * @return `true` ante `429` o timeout.
+     */
+    private static boolean isOverload(Exception ex) {
+        return isTooManyRequests(ex) || ex instanceof SocketTimeoutException;
+    }
+
+    /**
+     * Evalúa si OpenSearch rechazó la request por límite de concurrencia.
+     *
+     * @param ex error de la request.
+     * @return `true` cuando la respuesta es `429 Too Many Requests`.
+     */
+    private static boolean isTooManyRequests(Exception ex) {
+        return ex instanceof ResponseException responseEx
+                && responseEx.getResponse().getStatusLine().getStatusCode() == 429;
+    }
+
+    /**
+     * Evalúa si OpenSearch rechazó una escritura porque el índice tiene las escrituras
+     * bloqueadas, como ocurre mientras una migración copia los últimos cambios.
+     *
+     * @param ex error de la request.
+     * @return `true` ante `403` con `cluster_block_exception`.
+     */
+    private static boolean isWriteBlocked(Exception ex) {
+        return ex instanceof ResponseException responseEx
+                && responseEx.getResponse().getStatusLine().getStatusCode() == 403
+                && String.valueOf(responseEx.getMessage()).contains("cluster_block_exception");
+    }
+
+    /**
+     * Construye el rechazo que se propaga cuando el índice tiene las escrituras bloqueadas.
+     *
+     * @param cause `403` recibido.
+     * @return rechazo con la causa original.
+     */
+    private static RejectedExecutionException writeBlocked(Exception cause) {
+        return new RejectedExecutionException(
+                "El catálogo está terminando una migración de índice; reintente más tarde", cause);
+    }
+
+    /**
+     * Construye el rechazo que se propaga cuando OpenSearch está saturado.
+     *
+     * @param cause `429` recibido.
+     * @return rechazo con la causa original.
+     */
+    private static RejectedExecutionException saturated(Exception cause) {
+        return new RejectedExecutionException("OpenSearch está saturado; reintente más tarde", cause);
+    }
+
+    /**
+     * Presupuesto de concurrencia con límite AIMD y cola de espera acotada.
+     */
+    private static final class Budget {
+        private final int maxLimit;
+        private final int queueCapacity;
+        private final long queueTimeoutMs;
+        private final long latencyThresholdNanos;
+        private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private final AtomicLong rejected = new AtomicLong();
+        private double limit;
+        private int inFlight;
+
+        /**
+         * Crea un presupuesto que arranca en su límite máximo.
+         *
+         * @param maxLimit límite máximo de requests simultáneas.
+         * @param queueCapacity requests que pueden esperar con el límite alcanzado.
+         * @param queueTimeoutMs espera máxima en cola.
+         * @param latencyThresholdNanos latencia considerada congestión; `0` la ignora.
+         */
+        private Budget(int maxLimit, int queueCapacity, long queueTimeoutMs, long latencyThresholdNanos) {
+            this.maxLimit = Math.max(1, maxLimit);
+            this.queueCapacity = Math.max(0, queueCapacity);
+            this.queueTimeoutMs = Math.max(1L, queueTimeoutMs);
+            this.latencyThresholdNanos = latencyThresholdNanos;
+            this.limit = this.maxLimit;
+        }
+
+        /**
+         * Reserva un lugar o encola la espera. Una espera que vence sin ser admitida se quita de
+         * la cola y falla con {@link RejectedExecutionException}.
+         *
+         * @return futuro completado cuando la request puede enviarse.
+         * @throws RejectedExecutionException cuando el límite y la cola están completos.
+         */
+        private synchronized CompletableFuture<Void> acquire() {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waiting.size() < queueCapacity) {
+                CompletableFuture<Void> admission = new CompletableFuture<>();
+                waiting.add(admission);
+                CompletableFuture.delayedExecutor(queueTimeoutMs, TimeUnit.MILLISECONDS)
+                        .execute(() -> expire(admission));
+                return admission;
+            }
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Límite de concurrencia contra OpenSearch alcanzado");
+        }
+
+        /**
+         * Rechaza una espera vencida si todavía no fue admitida.
+         *
+         * @param admission espera encolada.
+         */
+        private void expire(CompletableFuture<Void> admission) {
+            synchronized (this) {
+                if (!waiting.remove(admission)) {
+                    return;
+                }
+                rejected.incrementAndGet();
+            }
+            admission.completeExceptionally(new RejectedExecutionException(
+                    "Venció la espera por lugar en el límite de concurrencia contra OpenSearch"));
+        }
+
+        /**
+         * Libera un lugar, ajusta el límite según el resultado y admite requests encoladas.
+         *
+         * @param overloaded `true` si la request indicó saturación.
+         * @param latencyNanos duración de la request.
+         */
+        private void release(boolean overloaded, long latencyNanos) {
+            List<CompletableFuture<Void>> admitted = new ArrayList<>();
+            synchronized (this) {
+                inFlight--;
+                if (overloaded || (latencyThresholdNanos > 0 && latencyNanos > latencyThresholdNanos)) {
+                    limit = Math.max(1.0, limit * BACKOFF_RATIO);
+                } else if (inFlight * 2 >= limit) {
+                    // Aumento aditivo de uno por ventana de `limit` respuestas, no por respuesta.
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                }
+                while (inFlight < (int) limit && !waiting.isEmpty()) {
+                    inFlight++;
+                    admitted.add(waiting.poll());
+                }
+            }
+            // Fuera del lock: completar la admisión ejecuta el envío de la request encolada.
+            admitted.forEach(admission -> admission.complete(null));
+        }
+
+        /**
+         * Límite actual.
+         *
+         * @return requests simultáneas admitidas.
+         */
+        private synchronized double limit() {
+            return limit;
+        }
+
+        /**
+         * Requests en curso.
+         *
+         * @return requests enviadas y sin respuesta.
+         */
+        private synchronized double inFlight() {
+            return inFlight;
+        }
+
+        /**
+         * Requests esperando lugar.
+         *
+         * @return tamaño de la cola.
+         */
+        private synchronized double queued() {
+            return waiting.size();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Serialización directa de cuerpos `_search` a bytes UTF-8.
+ * Escribe con un {@link JsonGenerator} sobre un buffer local dimensionado para una consulta
+ * típica, sin construir un árbol de nodos ni un `String` intermedio. No se reutilizan buffers
+ * por hilo: con hilos virtuales cada request corre en un hilo nuevo y un `ThreadLocal` solo
+ * agregaría costo. Los fragmentos constantes de las consultas se
+ * codifican una sola vez y se copian tal cual.
+ */
+final class SearchBodyWriter {
+    /**
+     * Capacidad inicial del buffer; alcanza para las consultas habituales sin crecer.
+     */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    static final SerializableString QUERY = new SerializedString("query");
+    static final SerializableString BOOL = new SerializedString("bool");
+    static final SerializableString MUST = new SerializedString("must");
+    static final SerializableString FILTER = new SerializedString("filter");
+    static final SerializableString SHOULD = new SerializedString("should");
+    static final SerializableString TERM = new SerializedString("term");
+    static final SerializableString VALUE = new SerializedString("value");
+    static final SerializableString MATCH_PHRASE = new SerializedString("match_phrase");
+    static final SerializableString MINIMUM_SHOULD_MATCH = new SerializedString("minimum_should_match");
+
+    static final SerializableString MATCH_ALL = raw("{\"match_all\":{}}");
+    static final SerializableString TITLE_PREFIX_FIELDS = raw(
+            "[\"title\",\"title.suggest\",\"title.suggest._2gram\",\"title.suggest._3gram\"]");
+    static final SerializableString SUGGEST_PREFIX_FIELDS = raw(
+            "[\"title\",\"title.suggest\",\"title.suggest._2gram\",\"title.suggest._3gram\","
+                    + "\"author\",\"author.suggest\",\"author.suggest._2gram\",\"author.suggest._3gram\"]");
+    static final SerializableString TITLE_SOURCE = raw("[\"title\"]");
+    static final SerializableString FACET_TEXT_FIELDS = raw("[\"title\",\"author\",\"category\"]");
+    static final SerializableString VISIBLE_ONLY_FILTER = raw("[{\"term\":{\"visible\":{\"value\":true}}}]");
+    static final SerializableString SORT_BY_ID = raw("[{\"id\":\"asc\"}]");
+    static final SerializableString SORT_BY_SCORE_THEN_ID = raw("[{\"_score\":\"desc\"},{\"id\":\"asc\"}]");
+    static final SerializableString VISIBLE_COMPOSITE_SOURCE = raw(
+            "{\"visible\":{\"terms\":{\"field\":\"visible\",\"missing_bucket\":true}}}");
+    static final SerializableString KEYWORD_FACET_AGGS = raw(
+            "{\"by_category\":{\"terms\":{\"field\":\"category.keyword\",\"size\":20}},"
+                    + "\"by_author\":{\"terms\":{\"field\":\"author.keyword\",\"size\":20}}}");
+    static final SerializableString SOURCE_SCRIPT_FACET_AGGS = raw(
+            "{\"by_category\":{\"terms\":{\"size\":20,\"script\":{\"lang\":\"painless\",\"source\":"
+                    + "\"def c = params._source['category']; if (c == null) return null; return c;\"}}},"
+                    + "\"by_author\":{\"terms\":{\"size\":20,\"script\":{\"lang\":\"painless\",\"source\":"
+                    + "\"def a = params._source['author']; if (a == null) return null; return a;\"}}}}");
+
+    private SearchBodyWriter() {
+    }
+
+    /**
+     * Contenido del objeto raíz de una consulta.
+     */
+    @FunctionalInterface
+    interface Body {
+        /**
+         * Escribe los campos del objeto raíz; la apertura y el cierre los hace el escritor.
+         *
+         * @param generator generador posicionado dentro del objeto raíz.
+         * @throws IOException cuando falla la escritura.
+         */
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Serializa un cuerpo de consulta.
+     *
+     * @param factory factory del `ObjectMapper`, necesaria para escribir nodos con `writeTree`.
+     * @param body contenido del objeto raíz.
+     * @return JSON codificado en UTF-8.
+     * @throws IOException cuando falla la escritura.
+     */
+    static byte[] write(JsonFactory factory, Body body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (JsonGenerator generator = factory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            body.writeTo(generator);
+            generator.writeEndObject();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Codifica una vez un fragmento JSON constante.
+     *
+     * @param json fragmento válido.
+     * @return fragmento precodificado para `writeRawValue`.
+     */
+    private static SerializableString raw(String json) {
+        SerializedString fragment = new SerializedString(json);
+        fragment.asUnquotedUTF8();
+        return fragment;
+    }
+}
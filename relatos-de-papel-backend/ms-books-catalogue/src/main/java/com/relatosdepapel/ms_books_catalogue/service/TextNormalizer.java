@@ -0,0 +1,117 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.text.Normalizer;
+
+/**
+ * Normalización de texto compartida por suggest y claves de caché.
+ * Pliega acentos y mayúsculas en una sola pasada con una tabla precalculada para los bloques
+ * latinos, griego y cirílico; el texto ASCII ya en minúsculas se devuelve sin copiarlo. Los
+ * caracteres fuera de la tabla o dependientes del contexto usan la normalización NFD completa.
+ */
+final class TextNormalizer {
+    /**
+     * Último carácter cubierto por la tabla (fin de Latin Extended Additional).
+     */
+    private static final char TABLE_END = '\u1EFF';
+    /**
+     * Marca de carácter que se elimina (diacrítico combinante).
+     */
+    private static final char DROP = '\uFFFF';
+    /**
+     * Marca de carácter que requiere la normalización completa.
+     */
+    private static final char SLOW = '\uFFFE';
+    private static final char[] FOLD = buildFoldTable();
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Normaliza texto removiendo acentos y espacios extra para comparar sugerencias.
+     *
+     * @param input texto de entrada.
+     * @return texto normalizado en minúsculas.
+     */
+    static String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                break;
+            }
+            i++;
+        }
+        if (i == length) {
+            return input.trim();
+        }
+
+        char[] out = new char[length];
+        input.getChars(0, i, out, 0);
+        int size = i;
+        for (; i < length; i++) {
+            char c = input.charAt(i);
+            if (c > TABLE_END) {
+                return fullNormalize(input);
+            }
+            char folded = FOLD[c];
+            if (folded == SLOW) {
+                return fullNormalize(input);
+            }
+            if (folded != DROP) {
+                out[size++] = folded;
+            }
+        }
+
+        int start = 0;
+        while (start < size && out[start] <= ' ') {
+            start++;
+        }
+        while (size > start && out[size - 1] <= ' ') {
+            size--;
+        }
+        return new String(out, start, size - start);
+    }
+
+    /**
+     * Normalización de referencia: NFD, eliminación de diacríticos y minúsculas.
+     *
+     * @param input texto de entrada.
+     * @return texto normalizado en minúsculas.
+     */
+    private static String fullNormalize(String input) {
+        String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
+        return normalized.replaceAll("\\p{M}", "").toLowerCase().trim();
+    }
+
+    /**
+     * Precalcula el plegado de cada carácter con la normalización de referencia, de modo que
+     * ambos caminos producen el mismo resultado. Los caracteres que no pliegan a exactamente
+     * un carácter, o cuya minúscula depende de sus vecinos, se marcan para el camino completo.
+     *
+     * @return tabla indexada por carácter.
+     */
+    private static char[] buildFoldTable() {
+        char[] table = new char[TABLE_END + 1];
+        for (char c = 0; c <= TABLE_END; c++) {
+            if (c == '\u03A3') {
+                table[c] = SLOW;
+                continue;
+            }
+            String folded = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase();
+            if (folded.isEmpty()) {
+                table[c] = DROP;
+            } else if (folded.length() == 1 && folded.charAt(0) != DROP && folded.charAt(0) != SLOW) {
+                table[c] = folded.charAt(0);
+            } else {
+                table[c] = SLOW;
+            }
+        }
+        return table;
+    }
+}
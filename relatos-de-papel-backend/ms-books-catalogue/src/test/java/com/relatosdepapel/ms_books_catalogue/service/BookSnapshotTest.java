@@ -0,0 +1,126 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.relatosdepapel.ms_books_catalogue.config.OpenSearchProperties;
+import com.relatosdepapel.ms_books_catalogue.dto.BookResponseDTO;
+
+/**
+ * Verifica el formato binario de {@link BookSnapshot}: escritura, mapeo desde disco, búsqueda por
+ * id y recorrido, con campos opcionales ausentes, validación del cierre y la capa de escrituras
+ * locales.
+ */
+class BookSnapshotTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripsEveryFieldThroughTheMappedFile() {
+		List<BookResponseDTO> books = List.of(
+				new BookResponseDTO(42L, "Canción de Ámbar 📚", "Autora", LocalDate.of(1605, 1, 16), "Clásicos",
+						"9788484030300", 5, true, 15, new BigDecimal("19.90")),
+				new BookResponseDTO(7L, null, null, null, null, null, null, null, null, null),
+				new BookResponseDTO(-3L, "", "B", LocalDate.of(2024, 2, 29), "Ficción", "x", 0, false, 0,
+						new BigDecimal("-123456789012345678901234567890.0001")));
+		write(books);
+
+		BookSnapshot loaded = snapshot();
+		loaded.load();
+
+		assertTrue(loaded.isLoaded());
+		for (BookResponseDTO book : books) {
+			assertEquals(book, loaded.find(book.getId()));
+		}
+		assertNull(loaded.find(8L));
+		List<BookResponseDTO> all = new ArrayList<>();
+		loaded.forEach(all::add);
+		all.sort(Comparator.comparing(BookResponseDTO::getId));
+		List<BookResponseDTO> expected = new ArrayList<>(books);
+		expected.sort(Comparator.comparing(BookResponseDTO::getId));
+		assertEquals(expected, all);
+	}
+
+	@Test
+	void findsEveryIdInALargerIndex() {
+		List<BookResponseDTO> books = new ArrayList<>();
+		for (long id = 5_000; id > 0; id -= 2) {
+			books.add(new BookResponseDTO(id, "Libro " + id, null, null, null, null, null, true, (int) id, null));
+		}
+		BookSnapshot written = write(books);
+
+		for (BookResponseDTO book : books) {
+			assertEquals(book, written.find(book.getId()));
+			assertNull(written.find(book.getId() + 1));
+		}
+	}
+
+	@Test
+	void overlaysLocalWritesOnTheFile() {
+		BookResponseDTO kept = new BookResponseDTO(1L, "Uno", null, null, null, null, null, true, 1, null);
+		BookResponseDTO updated = new BookResponseDTO(2L, "Dos", null, null, null, null, null, true, 2, null);
+		BookResponseDTO deleted = new BookResponseDTO(3L, "Tres", null, null, null, null, null, true, 3, null);
+		BookSnapshot snapshot = write(List.of(kept, updated, deleted));
+
+		BookResponseDTO newVersion = new BookResponseDTO(2L, "Dos (2.ª ed.)", null, null, null, null, null, true, 9,
+				null);
+		BookResponseDTO added = new BookResponseDTO(4L, "Cuatro", null, null, null, null, null, true, 4, null);
+		snapshot.apply(2L, newVersion);
+		snapshot.apply(3L, null);
+		snapshot.apply(4L, added);
+
+		assertEquals(kept, snapshot.find(1L));
+		assertEquals(newVersion, snapshot.find(2L));
+		assertNull(snapshot.find(3L));
+		assertEquals(added, snapshot.find(4L));
+		List<BookResponseDTO> all = new ArrayList<>();
+		snapshot.forEach(all::add);
+		all.sort(Comparator.comparing(BookResponseDTO::getId));
+		assertEquals(List.of(kept, newVersion, added), all);
+	}
+
+	@Test
+	void ignoresATruncatedFile() throws IOException {
+		write(List.of(new BookResponseDTO(1L, "Uno", null, null, null, null, null, true, 1, null)));
+		try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 1);
+		}
+
+		BookSnapshot loaded = snapshot();
+		loaded.load();
+
+		assertFalse(loaded.isLoaded());
+	}
+
+	private BookSnapshot write(List<BookResponseDTO> books) {
+		BookSnapshot snapshot = snapshot();
+		snapshot.rebuild(sink -> books.forEach(sink));
+		return snapshot;
+	}
+
+	private BookSnapshot snapshot() {
+		OpenSearchProperties properties = new OpenSearchProperties();
+		properties.setSnapshotPath(file().toString());
+		return new BookSnapshot(properties);
+	}
+
+	private Path file() {
+		return dir.resolve("catalogue.snapshot");
+	}
+}
@@ -0,0 +1,69 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import java.text.Normalizer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compara el plegado por tabla de {@link TextNormalizer} con la normalización de referencia
+ * (NFD y expresión regular) sobre textos ASCII, latinos con acentos y mixtos.
+ * Se ejecuta con `./mvnw -Pbenchmark -DskipTests test`, que agrega `-prof gc` para reportar
+ * también la asignación por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextNormalizerBenchmark {
+
+	@Param({ "ascii", "latin", "mixed" })
+	private String input;
+
+	private String[] texts;
+
+	@Setup
+	public void setUp() {
+		texts = switch (input) {
+			case "ascii" -> new String[] {
+					"cien anos de soledad", "Gabriel Garcia Marquez", "The Lord of the Rings", "  el principito " };
+			case "latin" -> new String[] {
+					"Cien años de soledad", "Gabriel García Márquez", "Canción de Ámbar", "Ángeles y demonios" };
+			case "mixed" -> new String[] {
+					"Ελληνικά και Русский", "Straße nach İstanbul", "ΟΔΟΣ Σοφίας", "📚 Libro de Ñandú" };
+			default -> throw new IllegalArgumentException(input);
+		};
+	}
+
+	@Benchmark
+	public void table(Blackhole blackhole) {
+		for (String text : texts) {
+			blackhole.consume(TextNormalizer.normalize(text));
+		}
+	}
+
+	@Benchmark
+	public void reference(Blackhole blackhole) {
+		for (String text : texts) {
+			blackhole.consume(reference(text));
+		}
+	}
+
+	private static String reference(String input) {
+		String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
+		return normalized.replaceAll("\\p{M}", "").toLowerCase().trim();
+	}
+}
@@ -0,0 +1,57 @@
+package com.relatosdepapel.ms_books_catalogue.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.text.Normalizer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifica que el plegado por tabla de {@link TextNormalizer} coincide con la normalización de
+ * referencia (NFD, sin diacríticos, minúsculas y trim).
+ */
+class TextNormalizerTest {
+
+	@Test
+	void matchesReferenceForEveryBmpCharacter() {
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+			String alone = String.valueOf((char) c);
+			assertEquals(reference(alone), TextNormalizer.normalize(alone), () -> describe(alone));
+			String surrounded = "Ab" + (char) c + "Cd";
+			assertEquals(reference(surrounded), TextNormalizer.normalize(surrounded), () -> describe(surrounded));
+		}
+	}
+
+	@Test
+	void matchesReferenceForContextSensitiveSigma() {
+		for (String text : new String[] { "ΟΔΟΣ", "ΣΟΦΟΣ ΆΣΤΡΟΝ", "Σ", "ΑΣ.", "λόγοΣ x" }) {
+			assertEquals(reference(text), TextNormalizer.normalize(text), () -> describe(text));
+		}
+	}
+
+	@Test
+	void matchesReferenceForSlowPathCharacters() {
+		for (String text : new String[] {
+				"İstanbul", "Straße", "ǅemal", "ŉ", "ﬁn de ﬂujo", "é combinado",
+				"📚 Libro", "Ελληνικά και Русский", "  Canción de Ámbar  ", "ÅNGSTRÖM Å", "ͅι" }) {
+			assertEquals(reference(text), TextNormalizer.normalize(text), () -> describe(text));
+		}
+	}
+
+	@Test
+	void returnsTrimmedInputForLowercaseAscii() {
+		assertEquals("el quijote", TextNormalizer.normalize("  el quijote "));
+		assertEquals("", TextNormalizer.normalize(null));
+	}
+
+	private static String reference(String input) {
+		String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
+		return normalized.replaceAll("\\p{M}", "").toLowerCase().trim();
+	}
+
+	private static String describe(String input) {
+		StringBuilder codes = new StringBuilder();
+		input.codePoints().forEach(code -> codes.append(String.format("U+%04X ", code)));
+		return codes.toString().trim();
+	}
+}